@@ -2,6 +2,7 @@ package chinchon;
 
 import chinchon.modelo.Juego;
 import chinchon.controlador.ControladorChinchon;
+import chinchon.simulacion.EstrategiaMCTS;
 import chinchon.vista.VistaConsola;
 
 /**
@@ -19,6 +20,13 @@ public class Main {
         // Crear el controlador
         ControladorChinchon controlador = new ControladorChinchon(juego);
         
+        // Opcional: los últimos N asientos los juega la computadora (java chinchon.Main N [ms por jugada])
+        int automaticos = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        long milisegundos = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        for (int i = 0; i < automaticos && i < 4; i++) {
+            controlador.asignarEstrategia(3 - i, new EstrategiaMCTS(milisegundos, System.nanoTime() + i));
+        }
+        
         // Crear la vista
         VistaConsola vista = new VistaConsola(juego, controlador);
         
@@ -0,0 +1,153 @@
+package chinchon.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import chinchon.modelo.CacheEvaluaciones;
+import chinchon.modelo.Carta;
+import chinchon.modelo.EvaluadorLotes;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Mano;
+import chinchon.modelo.Mazo;
+import chinchon.modelo.TablaCierres;
+
+/**
+ * Clase BenchmarkModelo - mide los caminos calientes del modelo sobre un
+ * corpus de manos sembradas: búsqueda de grupos, verificación de cierre,
+ * cálculo de puntos, armado y barajado del mazo, y una mano completa de
+ * Juego con jugadas fijas. Informa operaciones por segundo y bytes
+ * asignados por operación, como línea base para comparar optimizaciones.
+ * 
+ * Por defecto mide sin la cache compartida de evaluaciones ni la tabla de
+ * cierres, que en el juego están activas: las 4096 manos del corpus entran
+ * enteras en la cache, así que con ellas se medirían aciertos y no la
+ * evaluación. Con "con-cache" se miden tal como las usa el juego.
+ * 
+ * No usa JMH porque el proyecto se compila con javac solo, sin sistema de
+ * build ni dependencias. Medidor hace el calentamiento, las iteraciones y
+ * el sumidero de resultados; para comparar versiones conviene correr cada
+ * una en un proceso nuevo y varias veces.
+ * 
+ * Uso: java chinchon.benchmark.BenchmarkModelo [ms por iteración] [iteraciones] [semilla] [con-cache]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class BenchmarkModelo {
+    
+    private static final int MANOS_POR_CORPUS = 4096;
+    private static final int MASCARA_INDICE = MANOS_POR_CORPUS - 1;
+    private static final int MAX_TURNOS_SCRIPT = 200;
+    
+    public static void main(String[] args) {
+        long milisPorIteracion = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        int iteraciones = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long semilla = args.length > 2 ? Long.parseLong(args[2]) : 20240601L;
+        boolean conCache = args.length > 3 && args[3].equals("con-cache");
+        if (!conCache) {
+            // Antes de la primera evaluación, que es cuando se crean las dos
+            System.setProperty(CacheEvaluaciones.PROPIEDAD_MEGABYTES, "0");
+            System.setProperty(TablaCierres.PROPIEDAD_RUTA, "");
+        }
+        
+        Medidor medidor = new Medidor(milisPorIteracion, milisPorIteracion, iteraciones);
+        List<Medidor.Resultado> resultados = new ArrayList<>();
+        
+        for (CorpusManos.Tipo tipo : CorpusManos.Tipo.values()) {
+            CorpusManos siete = new CorpusManos(tipo, MANOS_POR_CORPUS, 7, semilla);
+            String sufijo = " [" + tipo + "]";
+            
+            // Mano recién armada: incluye el costo de agregar las 7 cartas
+            resultados.add(medidor.medir("crearMano" + sufijo,
+                i -> siete.crearMano(i & MASCARA_INDICE).getMascara()));
+            resultados.add(medidor.medir("encontrarGruposLigados" + sufijo,
+                i -> siete.crearMano(i & MASCARA_INDICE).encontrarGruposLigados().size()));
+            resultados.add(medidor.medir("verificarCierre" + sufijo,
+                i -> siete.crearMano(i & MASCARA_INDICE).verificarCierre().getPuntosNoLigadas()));
+            
+            // Consultas repetidas sobre la misma mano sin cambios
+            Mano[] armadas = new Mano[MANOS_POR_CORPUS];
+            for (int i = 0; i < armadas.length; i++) {
+                armadas[i] = siete.crearMano(i);
+            }
+            resultados.add(medidor.medir("verificarCierre repetido" + sufijo,
+                i -> armadas[i & MASCARA_INDICE].verificarCierre().getPuntosNoLigadas()));
+            resultados.add(medidor.medir("calcularPuntosNoLigadas" + sufijo, i -> {
+                Mano mano = armadas[i & MASCARA_INDICE];
+                return mano.calcularPuntosNoLigadas(mano.encontrarGruposLigados());
+            }));
+            
+            // Manos de 8 cartas, como las que se evalúan al descartar
+            CorpusManos ocho = new CorpusManos(tipo, MANOS_POR_CORPUS, 8, semilla + 1);
+            resultados.add(medidor.medir("Mano.evaluar 8 cartas" + sufijo,
+                i -> Mano.evaluar(ocho.getMascara(i & MASCARA_INDICE)).getPuntosNoLigadas()));
+            
+            // Las mismas manos de a un lote entero (una operación evalúa las 4096)
+            long[] mascaras = new long[MANOS_POR_CORPUS];
+            for (int i = 0; i < mascaras.length; i++) {
+                mascaras[i] = ocho.getMascara(i);
+            }
+            EvaluadorLotes.Resultados lote = new EvaluadorLotes.Resultados(MANOS_POR_CORPUS);
+            resultados.add(medidor.medir("EvaluadorLotes 8 cartas x" + MANOS_POR_CORPUS + sufijo, i -> {
+                EvaluadorLotes.evaluar(mascaras, mascaras.length, lote);
+                return lote.getPuntosNoLigadas(i & MASCARA_INDICE);
+            }));
+        }
+        
+        resultados.add(medidor.medir("new Mazo + barajar", i -> {
+            Mazo mazo = new Mazo(true, 2, new SplittableRandom(semilla + i));
+            mazo.barajar();
+            return mazo.getNumeroCartas();
+        }));
+        Mazo reutilizado = new Mazo(true, 2, new SplittableRandom(semilla));
+        resultados.add(medidor.medir("Mazo.reiniciar(semilla)", i -> {
+            reutilizado.reiniciar(semilla + i);
+            return reutilizado.getNumeroCartas();
+        }));
+        resultados.add(medidor.medir("mano completa de Juego", i -> jugarMano(semilla + i)));
+        
+        System.out.println(conCache ? "Con cache de evaluaciones y tabla de cierres"
+                                    : "Sin cache de evaluaciones ni tabla de cierres");
+        System.out.println(String.format("%-42s %14s   %-10s %13s %15s %13s",
+            "operación", "ops/s", "desvío", "tiempo", "asignado", "tasa"));
+        for (Medidor.Resultado resultado : resultados) {
+            System.out.println(resultado);
+        }
+        System.out.println("(sumidero " + medidor.getSumidero() + ")");
+    }
+    
+    /**
+     * Juega una mano de 4 jugadores con jugadas fijas: siempre se roba del
+     * mazo y se descarta la carta no ligada de más puntos, hasta que alguien
+     * cierra o se acaba el mazo. Devuelve la cantidad de turnos jugados.
+     */
+    static long jugarMano(long semilla) {
+        Juego juego = new Juego(4, true, 2, new SplittableRandom(semilla));
+        int turnos = 0;
+        while (!juego.isManoCerrada() && !juego.isPartidaTerminada() && turnos < MAX_TURNOS_SCRIPT) {
+            if (!juego.tomarDelMazo()) {
+                break;
+            }
+            long mano = juego.getJugadorActual().getMano().getMascara();
+            juego.descartarCarta(indiceDeDescarte(mano));
+            turnos++;
+        }
+        return turnos;
+    }
+    
+    private static int indiceDeDescarte(long mano) {
+        long sueltas = mano & ~Mano.cartasLigadas(mano);
+        long candidatas = sueltas != 0 ? sueltas : mano;
+        long elegida = Long.lowestOneBit(candidatas);
+        int mayor = -1;
+        for (long resto = candidatas; resto != 0; resto &= resto - 1) {
+            int ordinal = Long.numberOfTrailingZeros(resto);
+            int valor = Carta.porOrdinal(ordinal).getValorPuntos();
+            if (valor >= mayor) {
+                mayor = valor;
+                elegida = 1L << ordinal;
+            }
+        }
+        return Long.bitCount(mano & (elegida - 1));
+    }
+}
@@ -0,0 +1,78 @@
+package chinchon.benchmark;
+
+import java.util.SplittableRandom;
+import chinchon.modelo.Carta;
+import chinchon.modelo.Mano;
+import chinchon.modelo.Mazo;
+
+/**
+ * Clase CorpusManos - conjunto fijo de manos sembradas para las mediciones.
+ * Con la misma semilla se generan siempre las mismas manos, así los
+ * resultados de distintas versiones se pueden comparar.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class CorpusManos {
+    
+    /* Tipos de manos del corpus */
+    public enum Tipo {
+        /** Baraja normal de 40 cartas con 2 comodines */
+        ALEATORIAS,
+        /** Mazo con 8 comodines, solo manos con 2 o más comodines */
+        MUCHOS_COMODINES,
+        /** Manos con a lo sumo 2 cartas sin ligar, cerca del cierre */
+        CASI_CIERRE
+    }
+    
+    private static final long MASCARA_COMODINES = -1L << Carta.comodin(1).getOrdinal();
+    
+    private final long[] mascaras;
+    
+    /**
+     * @param tipo tipo de manos
+     * @param cantidad cantidad de manos
+     * @param cartasPorMano 7 (mano en espera) u 8 (mano después de robar)
+     * @param semilla semilla del generador
+     */
+    public CorpusManos(Tipo tipo, int cantidad, int cartasPorMano, long semilla) {
+        mascaras = new long[cantidad];
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        int comodines = tipo == Tipo.MUCHOS_COMODINES ? 8 : 2;
+        Mazo mazo = new Mazo(true, comodines, aleatorio);
+        int generadas = 0;
+        while (generadas < cantidad) {
+            mazo.reiniciar(aleatorio.nextLong());
+            long mascara = 0L;
+            for (int i = 0; i < cartasPorMano; i++) {
+                mascara |= 1L << mazo.repartirCarta().getOrdinal();
+            }
+            if (tipo == Tipo.CASI_CIERRE && Long.bitCount(mascara & ~Mano.cartasLigadas(mascara)) > 2) {
+                continue;
+            }
+            if (tipo == Tipo.MUCHOS_COMODINES && Long.bitCount(mascara & MASCARA_COMODINES) < 2) {
+                continue;
+            }
+            mascaras[generadas++] = mascara;
+        }
+    }
+    
+    public int tamanio() {
+        return mascaras.length;
+    }
+    
+    public long getMascara(int i) {
+        return mascaras[i];
+    }
+    
+    /**
+     * Arma un objeto Mano nuevo con las cartas de la mano i
+     */
+    public Mano crearMano(int i) {
+        Mano mano = new Mano();
+        for (long resto = mascaras[i]; resto != 0; resto &= resto - 1) {
+            mano.agregarCarta(Carta.porOrdinal(Long.numberOfTrailingZeros(resto)));
+        }
+        return mano;
+    }
+}
@@ -0,0 +1,156 @@
+package chinchon.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Clase Medidor - mide throughput y memoria asignada por operación de un
+ * fragmento de código, con calentamiento previo y varias iteraciones.
+ * 
+ * La memoria se mide con el contador de bytes asignados por hilo de la JVM
+ * (com.sun.management.ThreadMXBean), así que solo cuenta lo que asigna el
+ * hilo que corre la medición.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class Medidor {
+    
+    /**
+     * Operación a medir; recibe el número de invocación y devuelve un valor
+     * que se acumula para que el JIT no pueda eliminar el trabajo
+     */
+    public interface Operacion {
+        long ejecutar(int invocacion);
+    }
+    
+    private final long milisCalentamiento;
+    private final long milisPorIteracion;
+    private final int iteraciones;
+    private final com.sun.management.ThreadMXBean hilos;
+    private long sumidero;
+    
+    public Medidor(long milisCalentamiento, long milisPorIteracion, int iteraciones) {
+        this.milisCalentamiento = milisCalentamiento;
+        this.milisPorIteracion = milisPorIteracion;
+        this.iteraciones = iteraciones;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.hilos = (com.sun.management.ThreadMXBean) bean;
+            this.hilos.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.hilos = null; // la JVM no informa asignaciones; se reporta -1
+        }
+    }
+    
+    /**
+     * Calienta y mide la operación; devuelve el resultado con la media y el desvío
+     */
+    public Resultado medir(String nombre, Operacion operacion) {
+        correr(operacion, milisCalentamiento * 1_000_000L);
+        
+        double[] porSegundo = new double[iteraciones];
+        long totalOperaciones = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < iteraciones; i++) {
+            long bytesAntes = bytesAsignados();
+            long inicio = System.nanoTime();
+            long operaciones = correr(operacion, milisPorIteracion * 1_000_000L);
+            long nanos = System.nanoTime() - inicio;
+            totalBytes += bytesAsignados() - bytesAntes;
+            totalOperaciones += operaciones;
+            porSegundo[i] = operaciones * 1e9 / nanos;
+        }
+        
+        double media = 0;
+        for (double valor : porSegundo) {
+            media += valor;
+        }
+        media /= iteraciones;
+        double varianza = 0;
+        for (double valor : porSegundo) {
+            varianza += (valor - media) * (valor - media);
+        }
+        double desvio = iteraciones > 1 ? Math.sqrt(varianza / (iteraciones - 1)) : 0;
+        double bytesPorOperacion = hilos == null ? -1 : (double) totalBytes / totalOperaciones;
+        return new Resultado(nombre, media, desvio, bytesPorOperacion);
+    }
+    
+    /**
+     * Ejecuta la operación en tandas hasta agotar el tiempo; devuelve cuántas veces corrió
+     */
+    private long correr(Operacion operacion, long nanos) {
+        long limite = System.nanoTime() + nanos;
+        long operaciones = 0;
+        long acumulado = 0;
+        int invocacion = 0;
+        do {
+            // Tandas de 64 para no medir el reloj en cada llamada
+            for (int k = 0; k < 64; k++) {
+                acumulado += operacion.ejecutar(invocacion++);
+            }
+            operaciones += 64;
+        } while (System.nanoTime() < limite);
+        sumidero += acumulado;
+        return operaciones;
+    }
+    
+    private long bytesAsignados() {
+        return hilos == null ? 0 : hilos.getCurrentThreadAllocatedBytes();
+    }
+    
+    /**
+     * Valor acumulado de todas las operaciones (para que nada sea código muerto)
+     */
+    public long getSumidero() {
+        return sumidero;
+    }
+    
+    /**
+     * Resultado de medir una operación
+     */
+    public static class Resultado {
+        private final String nombre;
+        private final double operacionesPorSegundo;
+        private final double desvio;
+        private final double bytesPorOperacion;
+        
+        public Resultado(String nombre, double operacionesPorSegundo, double desvio, double bytesPorOperacion) {
+            this.nombre = nombre;
+            this.operacionesPorSegundo = operacionesPorSegundo;
+            this.desvio = desvio;
+            this.bytesPorOperacion = bytesPorOperacion;
+        }
+        
+        public String getNombre() {
+            return nombre;
+        }
+        
+        public double getOperacionesPorSegundo() {
+            return operacionesPorSegundo;
+        }
+        
+        public double getDesvio() {
+            return desvio;
+        }
+        
+        public double getBytesPorOperacion() {
+            return bytesPorOperacion;
+        }
+        
+        /**
+         * Tasa de asignación en MB por segundo
+         */
+        public double getMegabytesPorSegundo() {
+            return bytesPorOperacion < 0 ? -1 : bytesPorOperacion * operacionesPorSegundo / (1024 * 1024);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-42s %14.0f ± %-10.0f %10.1f ns/op %10.1f B/op %8.1f MB/s",
+                nombre, operacionesPorSegundo, desvio, 1e9 / operacionesPorSegundo,
+                bytesPorOperacion, getMegabytesPorSegundo());
+        }
+    }
+}
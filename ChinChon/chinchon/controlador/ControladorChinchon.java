@@ -1,9 +1,12 @@
 package chinchon.controlador;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Scanner;
 import chinchon.modelo.Juego;
 import chinchon.modelo.Jugador;
 import chinchon.modelo.Mano;
+import chinchon.simulacion.Estrategia;
 
 /**
  * Clase ControladorChinchon - maneja la interacción entre la vista y el modelo
@@ -15,10 +18,48 @@ public class ControladorChinchon
 {
     private Juego juego;
     private Scanner scanner;
+    private Map<Integer, Estrategia> automaticos;
     
     public ControladorChinchon(Juego juego) {
         this.juego = juego;
         this.scanner = new Scanner(System.in);
+        this.automaticos = new HashMap<>();
+    }
+    
+    /**
+     * Hace que el jugador del asiento indicado juegue solo con la estrategia dada
+     */
+    public void asignarEstrategia(int asiento, Estrategia estrategia) {
+        automaticos.put(asiento, estrategia);
+    }
+    
+    /**
+     * Indica si el turno actual lo juega una estrategia automática
+     */
+    public boolean esTurnoAutomatico() {
+        return automaticos.containsKey(juego.getIndiceJugadorActual());
+    }
+    
+    /**
+     * Juega el turno actual (robar y descartar) con la estrategia del asiento
+     */
+    public boolean jugarTurnoAutomatico() {
+        Estrategia estrategia = automaticos.get(juego.getIndiceJugadorActual());
+        Jugador jugador = juego.getJugadorActual();
+        if (estrategia == null || jugador == null) {
+            return false;
+        }
+        
+        if (jugador.getPuntos() > 100 && !jugador.estaReenganchado()
+                && estrategia.reenganchar(juego, jugador)) {
+            juego.reenganchar();
+        }
+        
+        boolean delPozo = estrategia.tomarDelPozo(juego, jugador);
+        if (!tomarCarta(delPozo) && !tomarCarta(!delPozo)) {
+            return false;
+        }
+        return descartarCarta(estrategia.elegirDescarte(juego, jugador));
     }
     
     /**
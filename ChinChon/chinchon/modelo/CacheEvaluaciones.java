@@ -0,0 +1,349 @@
+package chinchon.modelo;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Clase CacheEvaluaciones - guarda resultados de cierre ya calculados,
+ * compartidos entre todos los Juego del proceso
+ *
+ * La clave es la máscara de la mano (un long, igual para la misma mano sin
+ * importar el orden en que se juntaron las cartas). El valor es el
+ * ResultadoCierre completo: tipo, comodines, puntos sin ligar y grupos.
+ *
+ * Está dividida en segmentos con su propio candado para que varios hilos
+ * no se frenen entre sí; cada segmento desaloja la entrada usada hace más
+ * tiempo (LRU) cuando se llena. La capacidad sale de un techo de memoria
+ * configurable, estimando el tamaño de cada entrada.
+ *
+ * Los resultados guardados se comparten entre todas las manos y todos los
+ * hilos, así que ResultadoCierre es inmutable (grupos incluidos).
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public final class CacheEvaluaciones
+{
+    /** Propiedad del sistema con el techo de memoria de la cache compartida, en MB (0 la desactiva) */
+    public static final String PROPIEDAD_MEGABYTES = "chinchon.cacheEvaluaciones.mb";
+    public static final int MEGABYTES_POR_DEFECTO = 4;
+
+    /*
+     * Estimación de bytes por entrada: su lugar en los arreglos del segmento
+     * (~40), ResultadoCierre (~40) y hasta tres grupos con sus listas y
+     * arreglos (~200). Las cartas son únicas y no cuentan.
+     */
+    static final int BYTES_POR_ENTRADA = 280;
+    private static final int SEGMENTOS = 32;
+    private static final int TAMANIO_INICIAL_SEGMENTO = 16;
+    private static final int VACIO = -1;
+
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    private final long capacidad;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+
+    /**
+     * @param techoBytes memoria máxima aproximada que puede ocupar la cache
+     */
+    public CacheEvaluaciones(long techoBytes)
+    {
+        long entradas = Math.max(SEGMENTOS, techoBytes / BYTES_POR_ENTRADA);
+        int porSegmento = (int) Math.min(Integer.MAX_VALUE, entradas / SEGMENTOS);
+        capacidad = (long) porSegmento * SEGMENTOS;
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(porSegmento);
+        }
+    }
+
+    /**
+     * Obtiene la cache compartida, o null si está desactivada
+     */
+    public static CacheEvaluaciones getCompartida() {
+        return Compartida.CACHE;
+    }
+
+    private static class Compartida {
+        static final CacheEvaluaciones CACHE = crear();
+
+        private static CacheEvaluaciones crear() {
+            long megabytes = Long.getLong(PROPIEDAD_MEGABYTES, MEGABYTES_POR_DEFECTO);
+            return megabytes <= 0 ? null : new CacheEvaluaciones(megabytes * 1024 * 1024);
+        }
+    }
+
+    /**
+     * Un segmento con su candado: tabla hash de claves long, encadenada por
+     * índices, y una lista doblemente enlazada en orden de uso (primero la
+     * más reciente). Todo está en arreglos, así no hay un nodo por entrada
+     * ni un Long por consulta; crecen de a poco hasta la capacidad.
+     * Solo se usa con el candado tomado.
+     */
+    private final class Segmento
+    {
+        private final int capacidad;
+        private final ReentrantLock candado = new ReentrantLock();
+        private long[] claves;
+        private Mano.ResultadoCierre[] valores;
+        private int[] cubetas;     // primera entrada de cada cubeta
+        private int[] enCubeta;    // siguiente entrada de la misma cubeta
+        private int[] anterior;    // vecinas en el orden de uso
+        private int[] posterior;
+        private int masReciente = VACIO;
+        private int menosReciente = VACIO;
+        private int tamanio;
+
+        Segmento(int capacidad) {
+            this.capacidad = capacidad;
+            int inicial = Math.min(capacidad, TAMANIO_INICIAL_SEGMENTO);
+            claves = new long[inicial];
+            valores = new Mano.ResultadoCierre[inicial];
+            enCubeta = new int[inicial];
+            anterior = new int[inicial];
+            posterior = new int[inicial];
+            armarCubetas();
+        }
+
+        Mano.ResultadoCierre get(long clave) {
+            int i = buscar(clave);
+            if (i == VACIO) {
+                return null;
+            }
+            moverAlFrente(i);
+            return valores[i];
+        }
+
+        void put(long clave, Mano.ResultadoCierre valor) {
+            int i = buscar(clave);
+            if (i != VACIO) {
+                valores[i] = valor;
+                moverAlFrente(i);
+                return;
+            }
+            if (tamanio == claves.length && tamanio < capacidad) {
+                crecer();
+            }
+            if (tamanio < claves.length) {
+                i = tamanio++;
+            } else {
+                // Lleno: se reusa el lugar de la usada hace más tiempo
+                i = menosReciente;
+                quitarDeCubeta(i);
+                desenlazar(i);
+                desalojos.increment();
+            }
+            claves[i] = clave;
+            valores[i] = valor;
+            int c = cubeta(clave);
+            enCubeta[i] = cubetas[c];
+            cubetas[c] = i;
+            alFrente(i);
+        }
+
+        void clear() {
+            Arrays.fill(valores, 0, tamanio, null);
+            Arrays.fill(cubetas, VACIO);
+            tamanio = 0;
+            masReciente = VACIO;
+            menosReciente = VACIO;
+        }
+
+        int size() {
+            return tamanio;
+        }
+
+        private int buscar(long clave) {
+            for (int i = cubetas[cubeta(clave)]; i != VACIO; i = enCubeta[i]) {
+                if (claves[i] == clave) {
+                    return i;
+                }
+            }
+            return VACIO;
+        }
+
+        /**
+         * Cubeta de una clave, con bits del hash distintos de los que eligen el segmento
+         */
+        private int cubeta(long clave) {
+            return (int) ((clave * 0x9E3779B97F4A7C15L) >>> 32) & (cubetas.length - 1);
+        }
+
+        private void quitarDeCubeta(int i) {
+            int c = cubeta(claves[i]);
+            if (cubetas[c] == i) {
+                cubetas[c] = enCubeta[i];
+                return;
+            }
+            int j = cubetas[c];
+            while (enCubeta[j] != i) {
+                j = enCubeta[j];
+            }
+            enCubeta[j] = enCubeta[i];
+        }
+
+        private void moverAlFrente(int i) {
+            if (i != masReciente) {
+                desenlazar(i);
+                alFrente(i);
+            }
+        }
+
+        private void desenlazar(int i) {
+            int a = anterior[i];
+            int p = posterior[i];
+            if (a != VACIO) {
+                posterior[a] = p;
+            } else {
+                masReciente = p;
+            }
+            if (p != VACIO) {
+                anterior[p] = a;
+            } else {
+                menosReciente = a;
+            }
+        }
+
+        private void alFrente(int i) {
+            anterior[i] = VACIO;
+            posterior[i] = masReciente;
+            if (masReciente != VACIO) {
+                anterior[masReciente] = i;
+            }
+            masReciente = i;
+            if (menosReciente == VACIO) {
+                menosReciente = i;
+            }
+        }
+
+        /**
+         * Duplica los arreglos (sin pasar la capacidad) y redistribuye las cubetas
+         */
+        private void crecer() {
+            int nuevo = (int) Math.min(capacidad, 2L * claves.length);
+            claves = Arrays.copyOf(claves, nuevo);
+            valores = Arrays.copyOf(valores, nuevo);
+            enCubeta = Arrays.copyOf(enCubeta, nuevo);
+            anterior = Arrays.copyOf(anterior, nuevo);
+            posterior = Arrays.copyOf(posterior, nuevo);
+            armarCubetas();
+            for (int i = 0; i < tamanio; i++) {
+                int c = cubeta(claves[i]);
+                enCubeta[i] = cubetas[c];
+                cubetas[c] = i;
+            }
+        }
+
+        /**
+         * Cubetas vacías, una potencia de 2 con al menos una por entrada
+         */
+        private void armarCubetas() {
+            cubetas = new int[Integer.highestOneBit(Math.max(1, claves.length - 1)) << 1];
+            Arrays.fill(cubetas, VACIO);
+        }
+    }
+
+    /**
+     * Segmento de una mano: mezcla los bits para repartir bien manos parecidas
+     */
+    private Segmento segmentoDe(long mascara) {
+        long h = mascara * 0x9E3779B97F4A7C15L;
+        return segmentos[(int) (h >>> 59)];
+    }
+
+    /**
+     * Resultado guardado para la mano, o null si no está
+     */
+    public Mano.ResultadoCierre consultar(long mascara) {
+        Segmento segmento = segmentoDe(mascara);
+        Mano.ResultadoCierre resultado;
+        segmento.candado.lock();
+        try {
+            resultado = segmento.get(mascara);
+        } finally {
+            segmento.candado.unlock();
+        }
+        if (resultado == null) {
+            fallos.increment();
+        } else {
+            aciertos.increment();
+        }
+        return resultado;
+    }
+
+    /**
+     * Guarda el resultado de una mano (con sus grupos ya calculados)
+     */
+    public void guardar(long mascara, Mano.ResultadoCierre resultado) {
+        Segmento segmento = segmentoDe(mascara);
+        segmento.candado.lock();
+        try {
+            segmento.put(mascara, resultado);
+        } finally {
+            segmento.candado.unlock();
+        }
+    }
+
+    /**
+     * Vacía la cache (los contadores se conservan)
+     */
+    public void limpiar() {
+        for (Segmento segmento : segmentos) {
+            segmento.candado.lock();
+            try {
+                segmento.clear();
+            } finally {
+                segmento.candado.unlock();
+            }
+        }
+    }
+
+    /**
+     * Cantidad de entradas guardadas
+     */
+    public long getTamanio() {
+        long total = 0;
+        for (Segmento segmento : segmentos) {
+            segmento.candado.lock();
+            try {
+                total += segmento.size();
+            } finally {
+                segmento.candado.unlock();
+            }
+        }
+        return total;
+    }
+
+    public long getCapacidad() {
+        return capacidad;
+    }
+
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getDesalojos() {
+        return desalojos.sum();
+    }
+
+    /**
+     * Proporción de consultas que encontraron el resultado guardado
+     */
+    public double getTasaAciertos() {
+        long a = aciertos.sum();
+        long total = a + fallos.sum();
+        return total == 0 ? 0.0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache de evaluaciones: %d/%d entradas (~%d MB), %d aciertos, %d fallos (%.1f%%), %d desalojos",
+            getTamanio(), capacidad, capacidad * BYTES_POR_ENTRADA / (1024 * 1024),
+            getAciertos(), getFallos(), 100 * getTasaAciertos(), getDesalojos());
+    }
+}
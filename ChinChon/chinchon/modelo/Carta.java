@@ -8,26 +8,75 @@ package chinchon.modelo;
  */
 public class Carta implements Comparable<Carta>
 {
-    private Palo palo;
-    private int numero; // 1-7 para números, 10-12 para figuras (sota, caballo, rey)
+    private final Palo palo;
+    private final int numero; // 1-7 para números, 10-12 para figuras (sota, caballo, rey)
+    private final int ordinal;
     
     // Constantes para identificar comodines
     public static final int COMODIN_NUMERO = 0;
     
-    /**
-     * Constructor para una carta normal
+    /*
+     * Las cartas son únicas: cada una tiene un ordinal fijo, palo * 10 + posición
+     * del número (1-7 -> 0-6, sota/caballo/rey -> 7-9), y los comodines siguen
+     * desde el 40. El orden de los ordinales coincide con compareTo.
      */
-    public Carta(Palo palo, int numero) {
+    static final int CARTAS_POR_PALO = 10;
+    static final int ORDINAL_PRIMER_COMODIN = 40;
+    public static final int MAX_COMODINES = 64 - ORDINAL_PRIMER_COMODIN;
+    private static final Carta[] POR_ORDINAL = new Carta[ORDINAL_PRIMER_COMODIN + MAX_COMODINES];
+    
+    static {
+        for (Palo palo : Palo.values()) {
+            for (int pos = 0; pos < CARTAS_POR_PALO; pos++) {
+                int numero = pos < 7 ? pos + 1 : pos + 3;
+                int ordinal = palo.ordinal() * CARTAS_POR_PALO + pos;
+                POR_ORDINAL[ordinal] = new Carta(palo, numero, ordinal);
+            }
+        }
+        for (int i = 0; i < MAX_COMODINES; i++) {
+            POR_ORDINAL[ORDINAL_PRIMER_COMODIN + i] = new Carta(null, i + 1, ORDINAL_PRIMER_COMODIN + i);
+        }
+    }
+    
+    private Carta(Palo palo, int numero, int ordinal) {
         this.palo = palo;
         this.numero = numero;
+        this.ordinal = ordinal;
     }
     
     /**
-     * Constructor para comodín (sin palo)
+     * Obtiene la carta normal de un palo y número (1-7, 10-12)
      */
-    public Carta(int numero) {
-        this.palo = null;
-        this.numero = numero;
+    public static Carta of(Palo palo, int numero) {
+        if (palo == null || numero < 1 || numero > 12 || numero == 8 || numero == 9) {
+            throw new IllegalArgumentException("Carta inválida: " + numero + " de " + palo);
+        }
+        int posicion = numero <= 7 ? numero - 1 : numero - 3;
+        return POR_ORDINAL[palo.ordinal() * CARTAS_POR_PALO + posicion];
+    }
+    
+    /**
+     * Obtiene el comodín número n (desde 1)
+     */
+    public static Carta comodin(int n) {
+        if (n < 1 || n > MAX_COMODINES) {
+            throw new IllegalArgumentException("Comodín inválido: " + n);
+        }
+        return POR_ORDINAL[ORDINAL_PRIMER_COMODIN + n - 1];
+    }
+    
+    /**
+     * Obtiene la carta con el ordinal dado
+     */
+    public static Carta porOrdinal(int ordinal) {
+        return POR_ORDINAL[ordinal];
+    }
+    
+    /**
+     * Ordinal fijo de la carta (0-39 cartas normales, 40 en adelante comodines)
+     */
+    public int getOrdinal() {
+        return ordinal;
     }
     
     public Palo getPalo() {
@@ -60,31 +109,18 @@ public class Carta implements Comparable<Carta>
      */
     @Override
     public int compareTo(Carta otra) {
-        if (this.esComodin() && otra.esComodin()) {
-            return Integer.compare(this.numero, otra.numero);
-        }
-        if (this.esComodin()) {
-            return 1;
-        }
-        if (otra.esComodin()) {
-            return -1;
-        }
-        int comparacionPalo = this.palo.compareTo(otra.palo);
-        if (comparacionPalo != 0) {
-            return comparacionPalo;
-        }
-        return Integer.compare(this.numero, otra.numero);
+        return Integer.compare(this.ordinal, otra.ordinal);
     }
     
     @Override
     public boolean equals(Object obj) {
-        if (this == obj) return true;
-        if (obj == null || getClass() != obj.getClass()) return false;
-        Carta carta = (Carta) obj;
-        if (esComodin() && carta.esComodin()) {
-            return numero == carta.numero;
-        }
-        return numero == carta.numero && palo == carta.palo;
+        // Hay una sola instancia por carta
+        return this == obj;
+    }
+    
+    @Override
+    public int hashCode() {
+        return ordinal;
     }
     
     @Override
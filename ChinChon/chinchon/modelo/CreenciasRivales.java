@@ -0,0 +1,272 @@
+package chinchon.modelo;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Clase CreenciasRivales - estima, con lo que se ve en la mesa, qué cartas
+ * tiene cada jugador en la mano
+ * 
+ * Se engancha como oyente de acciones del Juego y sigue solo información
+ * pública: las cartas que cada uno levantó del pozo (esas se saben seguro
+ * hasta que las descarte), las que descartó y las que no quiso levantar.
+ * Para las demás cartas que nadie vio, cada jugador tiene un peso por carta:
+ * 
+ * - levantar una carta del pozo sube el peso de sus vecinas (mismo número
+ *   o mismo palo a distancia 1 o 2), que le servirían para ligarla
+ * - robar del mazo dejando la carta del pozo baja el de las vecinas de esa
+ * - descartar una carta baja el de sus vecinas
+ * 
+ * La probabilidad de que un jugador tenga una carta oculta es la cantidad
+ * de cartas que no se le conocen por la parte del peso de esa carta en el
+ * total. Como todo es público, un mismo objeto sirve para cualquier asiento:
+ * al consultar se indica desde qué asiento se mira y se descuentan las
+ * cartas de su propia mano.
+ * 
+ * Cada acción actualiza unas pocas máscaras y a lo sumo 7 pesos; el estado
+ * se rearma entero solo al repartir. No está sincronizado: lo usa el mismo
+ * hilo que la partida.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class CreenciasRivales implements OyenteAcciones
+{
+    static final float TOMADA_DEL_POZO = 1.5f;
+    static final float RECHAZADA = 0.7f;
+    static final float DESCARTADA = 0.5f;
+    static final float PESO_MINIMO = 0.05f;
+    static final float PESO_MAXIMO = 20f;
+    
+    /* Para cada carta, las que podrían ligarse con ella en un grupo */
+    private static final long[] VECINAS = new long[64];
+    
+    static {
+        for (int bit = 0; bit < Mano.BIT_PRIMER_COMODIN; bit++) {
+            int palo = bit / Mano.CARTAS_POR_PALO;
+            int pos = bit % Mano.CARTAS_POR_PALO;
+            long escalera = 0L;
+            for (int d = -2; d <= 2; d++) {
+                if (d != 0 && pos + d >= 0 && pos + d < Mano.CARTAS_POR_PALO) {
+                    escalera |= 1L << (bit + d);
+                }
+            }
+            VECINAS[bit] = (escalera & Mano.MASCARA_PALO[palo]) | (Mano.MASCARA_NUMERO[pos] & ~(1L << bit));
+        }
+    }
+    
+    private final Juego juego;
+    private final int jugadores;
+    private long ocultas;                // cartas que nadie vio (en el mazo o en alguna mano)
+    private long pozo;                   // cartas en el pozo
+    private final long[] conocidas;      // por jugador: levantadas del pozo y todavía en su mano
+    private final int[] cartas;          // por jugador: cuántas cartas tiene
+    private final float[][] peso;        // por jugador y carta
+    private final float[] sumaPesos;     // por jugador: suma de los pesos de las ocultas
+    private boolean repartoPendiente;
+    
+    /**
+     * Creencias sobre la partida dada; para que la siga hay que engancharlas
+     * con juego.agregarOyenteAcciones (en cualquier momento: si la partida ya
+     * empezó, arrancan con lo que hay en la mesa)
+     */
+    public CreenciasRivales(Juego juego) {
+        this.juego = juego;
+        jugadores = juego.getJugadores().size();
+        conocidas = new long[jugadores];
+        cartas = new int[jugadores];
+        peso = new float[jugadores][64];
+        sumaPesos = new float[jugadores];
+        repartoPendiente = true;
+    }
+    
+    /**
+     * Rearma el estado si hubo un reparto (se avisa antes de repartir, así
+     * que se hace en la acción o consulta siguiente)
+     */
+    private void sincronizar() {
+        if (!repartoPendiente) {
+            return;
+        }
+        repartoPendiente = false;
+        pozo = juego.getPozo().getMascara();
+        ocultas = juego.getMazo().getMascaraCompleta() & ~pozo;
+        List<Jugador> lista = juego.getJugadores();
+        for (int j = 0; j < jugadores; j++) {
+            conocidas[j] = 0L;
+            cartas[j] = lista.get(j).getMano().getNumeroCartas();
+            Arrays.fill(peso[j], 1f);
+            sumaPesos[j] = Long.bitCount(ocultas);
+        }
+    }
+    
+    @Override
+    public void alRepartir(long semilla) {
+        repartoPendiente = true;
+    }
+    
+    @Override
+    public void alTomarDelMazo() {
+        sincronizar();
+        int jugador = juego.getIndiceJugadorActual();
+        cartas[jugador]++;
+        Carta superior = juego.getPozo().verCartaSuperior(); // la que no quiso
+        if (superior != null) {
+            multiplicar(jugador, VECINAS[superior.getOrdinal()], RECHAZADA);
+        }
+    }
+    
+    @Override
+    public void alReciclarPozo(long semilla) {
+        // Las cartas del pozo, menos la de arriba, volvieron al mazo
+        long recicladas = pozo & ~juego.getPozo().getMascara();
+        pozo &= ~recicladas;
+        ocultas |= recicladas;
+        for (int j = 0; j < jugadores; j++) {
+            for (long resto = recicladas; resto != 0; resto &= resto - 1) {
+                peso[j][Long.numberOfTrailingZeros(resto)] = 1f;
+            }
+            sumaPesos[j] += Long.bitCount(recicladas);
+        }
+    }
+    
+    @Override
+    public void alTomarDelPozo() {
+        sincronizar();
+        int jugador = juego.getIndiceJugadorActual();
+        int ordinal = juego.getPozo().verCartaSuperior().getOrdinal(); // todavía en el pozo
+        pozo &= ~(1L << ordinal);
+        conocidas[jugador] |= 1L << ordinal;
+        cartas[jugador]++;
+        multiplicar(jugador, VECINAS[ordinal], TOMADA_DEL_POZO);
+    }
+    
+    @Override
+    public void alDescartar(int indiceCarta) {
+        sincronizar();
+        int jugador = juego.getIndiceJugadorActual();
+        long resto = juego.getJugadorActual().getMano().getMascara(); // con la carta todavía en la mano
+        for (int i = 0; i < indiceCarta; i++) {
+            resto &= resto - 1;
+        }
+        long bit = Long.lowestOneBit(resto);
+        int ordinal = Long.numberOfTrailingZeros(bit);
+        if ((conocidas[jugador] & bit) != 0) {
+            conocidas[jugador] &= ~bit;
+        } else if ((ocultas & bit) != 0) {
+            ocultas &= ~bit;
+            for (int j = 0; j < jugadores; j++) {
+                sumaPesos[j] -= peso[j][ordinal];
+            }
+        }
+        pozo |= bit;
+        cartas[jugador]--;
+        multiplicar(jugador, VECINAS[ordinal], DESCARTADA);
+    }
+    
+    @Override
+    public void alColocarGrupos() {
+    }
+    
+    @Override
+    public void alReenganchar() {
+    }
+    
+    /**
+     * Multiplica el peso de las cartas dadas (las que siguen ocultas) para el jugador
+     */
+    private void multiplicar(int jugador, long cartasAfectadas, float factor) {
+        float[] pesos = peso[jugador];
+        for (long resto = cartasAfectadas & ocultas; resto != 0; resto &= resto - 1) {
+            int ordinal = Long.numberOfTrailingZeros(resto);
+            float nuevo = Math.min(PESO_MAXIMO, Math.max(PESO_MINIMO, pesos[ordinal] * factor));
+            sumaPesos[jugador] += nuevo - pesos[ordinal];
+            pesos[ordinal] = nuevo;
+        }
+    }
+    
+    /**
+     * Probabilidad de que el rival tenga la carta, vista desde el asiento del
+     * observador (que sabe qué cartas tiene él)
+     */
+    public float probabilidad(int observador, int rival, int ordinal) {
+        sincronizar();
+        long bit = 1L << ordinal;
+        long propia = juego.getJugadores().get(observador).getMano().getMascara();
+        if (rival == observador) {
+            return (propia & bit) != 0 ? 1f : 0f;
+        }
+        if ((conocidas[rival] & bit) != 0) {
+            return 1f;
+        }
+        if ((ocultas & ~propia & bit) == 0) {
+            return 0f;
+        }
+        return Math.min(1f, ocultasDe(rival) / sumaVisible(rival, propia) * peso[rival][ordinal]);
+    }
+    
+    /**
+     * Deja en destino (de 64 lugares, uno por ordinal) la probabilidad de que
+     * el rival tenga cada carta, vista desde el asiento del observador
+     */
+    public void probabilidades(int observador, int rival, float[] destino) {
+        sincronizar();
+        Arrays.fill(destino, 0f);
+        long propia = juego.getJugadores().get(observador).getMano().getMascara();
+        if (rival == observador) {
+            for (long resto = propia; resto != 0; resto &= resto - 1) {
+                destino[Long.numberOfTrailingZeros(resto)] = 1f;
+            }
+            return;
+        }
+        float escala = ocultasDe(rival) / sumaVisible(rival, propia);
+        float[] pesos = peso[rival];
+        for (long resto = ocultas & ~propia; resto != 0; resto &= resto - 1) {
+            int ordinal = Long.numberOfTrailingZeros(resto);
+            destino[ordinal] = Math.min(1f, escala * pesos[ordinal]);
+        }
+        for (long resto = conocidas[rival]; resto != 0; resto &= resto - 1) {
+            destino[Long.numberOfTrailingZeros(resto)] = 1f;
+        }
+    }
+    
+    /**
+     * Máscara de las cartas que el rival seguro tiene (las levantó del pozo)
+     */
+    public long getConocidas(int rival) {
+        sincronizar();
+        return conocidas[rival];
+    }
+    
+    /**
+     * Máscara de las cartas que el observador no vio (ni en la mesa ni en su mano)
+     */
+    public long getNoVistas(int observador) {
+        sincronizar();
+        return ocultas & ~juego.getJugadores().get(observador).getMano().getMascara();
+    }
+    
+    /**
+     * Cartas del rival que no se conocen
+     */
+    public int getCartasOcultas(int rival) {
+        sincronizar();
+        return ocultasDe(rival);
+    }
+    
+    private int ocultasDe(int rival) {
+        return cartas[rival] - Long.bitCount(conocidas[rival]);
+    }
+    
+    /**
+     * Suma de los pesos del rival sobre las cartas ocultas que el observador
+     * no tiene (las de su mano son a lo sumo 8)
+     */
+    private float sumaVisible(int rival, long propia) {
+        float suma = sumaPesos[rival];
+        for (long resto = propia & ocultas; resto != 0; resto &= resto - 1) {
+            suma -= peso[rival][Long.numberOfTrailingZeros(resto)];
+        }
+        return Math.max(suma, PESO_MINIMO);
+    }
+}
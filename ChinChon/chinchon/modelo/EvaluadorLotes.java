@@ -0,0 +1,264 @@
+package chinchon.modelo;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Clase EvaluadorLotes - evalúa muchas manos de una vez, dadas como un
+ * arreglo de máscaras (ver Mano), sin crear un objeto por mano
+ *
+ * Da lo mismo que Mano.evaluar para cada mano: si puede cerrar, el tipo de
+ * cierre, los comodines usados y los puntos sin ligar. Trabaja en dos pasadas:
+ *
+ * 1. Una pasada de aritmética de bits, igual para todas las manos, que si el
+ *    módulo jdk.incubator.vector está presente se hace con la Vector API
+ *    sobre varias manos a la vez (ver PrefiltroVectorial, que se compila
+ *    aparte desde la carpeta vectorial):
+ *    - marca las cartas aisladas: las que no tienen ninguna carta real del
+ *      mismo número ni del mismo palo a una distancia que los comodines de la
+ *      mano puedan cubrir. Nunca entran en un grupo (todo grupo tiene al menos
+ *      dos cartas reales), así que suman sus puntos directo; si son más de una,
+ *      o una que no es baja, la mano no puede cerrar.
+ *    - arma la clave de lo que falta resolver (la mano entera si puede cerrar,
+ *      si no el resto sin las aisladas) en forma canónica: los palos ordenados
+ *      y la cantidad de comodines. Las reglas no distinguen palos ni comodines,
+ *      así que manos con la misma clave tienen el mismo código.
+ * 2. Para cada mano se busca la clave en una memoria compartida de códigos y
+ *    solo si no está se resuelve (o se consulta la TablaCierres).
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public final class EvaluadorLotes
+{
+    /** Propiedad del sistema para no usar la Vector API aunque esté disponible */
+    public static final String PROPIEDAD_VECTORIAL = "chinchon.vectorial";
+
+    static final long MASCARA_REALES = ~Mano.MASCARA_COMODINES;
+    static final long MASCARA_PALO = (1L << Mano.CARTAS_POR_PALO) - 1;
+    static final long[] DESPLAZABLES_ARRIBA = new long[Mano.CARTAS_POR_PALO];
+    static final long[] DESPLAZABLES_ABAJO = new long[Mano.CARTAS_POR_PALO];
+    static final int BIT_CANTIDAD_COMODINES = Mano.BIT_PRIMER_COMODIN;
+    static final long CON_CIERRE = 1L << 45; // en la clave: resolver buscando cierre
+
+    // Memoria de códigos: cada entrada guarda la clave y su código en un solo long,
+    // así que se lee y se escribe sin candados (una entrada pisada solo es un fallo)
+    private static final int BITS_MEMORIA = 18; // 2 MB
+    private static final int BITS_CODIGO = 11;
+    private static final AtomicLongArray MEMORIA = new AtomicLongArray(1 << BITS_MEMORIA);
+
+    // Primera pasada con la Vector API, o null para hacerla con un ciclo común
+    private static final PrimeraPasada VECTORIAL = cargarVectorial();
+
+    static {
+        // Bits que pueden quedar ocupados al mover las cartas d posiciones dentro
+        // de su palo sin pasarse al palo vecino
+        for (int d = 1; d < Mano.CARTAS_POR_PALO; d++) {
+            for (int bit = 0; bit < Mano.BIT_PRIMER_COMODIN; bit++) {
+                int pos = bit % Mano.CARTAS_POR_PALO;
+                if (pos >= d) {
+                    DESPLAZABLES_ARRIBA[d] |= 1L << bit;
+                }
+                if (pos < Mano.CARTAS_POR_PALO - d) {
+                    DESPLAZABLES_ABAJO[d] |= 1L << bit;
+                }
+            }
+        }
+    }
+
+    private EvaluadorLotes() {
+    }
+
+    /**
+     * Primera pasada sobre varias manos (la implementa PrefiltroVectorial)
+     */
+    interface PrimeraPasada {
+        void preparar(long[] manos, long[] aisladas, long[] claves, int cantidad);
+    }
+
+    /**
+     * Carga PrefiltroVectorial por nombre, así esta clase compila y corre sin
+     * el módulo jdk.incubator.vector; si falta el módulo o la clase no se
+     * compiló (está en la carpeta vectorial, ver LEEME) devuelve null
+     */
+    private static PrimeraPasada cargarVectorial() {
+        if (!Boolean.parseBoolean(System.getProperty(PROPIEDAD_VECTORIAL, "true"))
+            || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (PrimeraPasada) Class.forName("chinchon.modelo.PrefiltroVectorial")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indica si la primera pasada corre con la Vector API
+     */
+    public static boolean esVectorial() {
+        return VECTORIAL != null;
+    }
+
+    /**
+     * Evalúa las manos y devuelve sus resultados
+     */
+    public static Resultados evaluar(long[] manos) {
+        Resultados resultados = new Resultados(manos.length);
+        evaluar(manos, manos.length, resultados);
+        return resultados;
+    }
+
+    /**
+     * Evalúa las primeras cantidad manos en resultados (que se puede reutilizar entre lotes)
+     */
+    public static void evaluar(long[] manos, int cantidad, Resultados resultados) {
+        resultados.preparar(cantidad);
+        long[] aisladas = resultados.aisladas;
+        long[] claves = resultados.claves;
+        if (VECTORIAL != null) {
+            VECTORIAL.preparar(manos, aisladas, claves, cantidad);
+        } else {
+            for (int i = 0; i < cantidad; i++) {
+                aisladas[i] = aisladas(manos[i]);
+                claves[i] = clave(manos[i], aisladas[i]);
+            }
+        }
+
+        int[] codigos = resultados.codigos;
+        for (int i = 0; i < cantidad; i++) {
+            int codigo = codigoDeClave(claves[i]);
+            if ((claves[i] & CON_CIERRE) == 0 && aisladas[i] != 0) {
+                codigo = TablaCierres.empaquetar(null, TablaCierres.comodinesDe(codigo),
+                                                 TablaCierres.puntosDe(codigo) + Mano.sumarPuntos(aisladas[i]));
+            }
+            codigos[i] = codigo;
+        }
+    }
+
+    /**
+     * Código de la mano canónica de la clave, de la memoria o calculado
+     * (para resolverla se vuelve a armar la mano con los primeros comodines)
+     */
+    private static int codigoDeClave(long clave) {
+        int indice = (int) ((clave * 0x9E3779B97F4A7C15L) >>> (64 - BITS_MEMORIA));
+        long entrada = MEMORIA.getOpaque(indice);
+        if (entrada >>> BITS_CODIGO == clave) {
+            return (int) (entrada & ((1 << BITS_CODIGO) - 1));
+        }
+
+        long mano = (clave & MASCARA_REALES)
+            | ((1L << (clave >>> BIT_CANTIDAD_COMODINES & 0x1F)) - 1) << Mano.BIT_PRIMER_COMODIN;
+        int codigo;
+        if ((clave & CON_CIERRE) != 0) {
+            TablaCierres tabla = TablaCierres.getInstancia();
+            codigo = tabla == null ? -1 : tabla.consultar(mano);
+            if (codigo < 0) {
+                codigo = SolucionadorLigadas.codificar(mano);
+            }
+        } else {
+            codigo = SolucionadorLigadas.codificarSinCierre(mano);
+        }
+        MEMORIA.setOpaque(indice, clave << BITS_CODIGO | codigo);
+        return codigo;
+    }
+
+    /**
+     * Cartas reales de la mano sin ninguna otra carta real del mismo número,
+     * ni del mismo palo a distancia menor o igual a los comodines más uno
+     */
+    static long aisladas(long mano) {
+        long reales = mano & MASCARA_REALES;
+        long vecinas = (reales << 10 | reales >>> 10 | reales << 20 | reales >>> 20
+                        | reales << 30 | reales >>> 30) & MASCARA_REALES;
+        int alcance = Math.min(Long.bitCount(mano & Mano.MASCARA_COMODINES) + 1, Mano.CARTAS_POR_PALO - 1);
+        for (int d = 1; d <= alcance; d++) {
+            vecinas |= (reales << d & DESPLAZABLES_ARRIBA[d]) | (reales >>> d & DESPLAZABLES_ABAJO[d]);
+        }
+        return reales & ~vecinas;
+    }
+
+    /**
+     * Clave de lo que hay que resolver de la mano: la mano entera con la marca
+     * CON_CIERRE si las aisladas permiten cerrar, si no el resto sin ellas
+     */
+    static long clave(long mano, long aisladas) {
+        boolean cierre = Long.bitCount(mano) == 7 && Long.bitCount(aisladas) <= 1
+            && (aisladas & ~Mano.CARTAS_BAJAS) == 0;
+        return cierre ? canonica(mano) | CON_CIERRE : canonica(mano & ~aisladas);
+    }
+
+    /**
+     * Forma canónica de una mano: los palos ordenados de mayor a menor valor
+     * de sus 10 bits y, desde el bit 40, la cantidad de comodines
+     */
+    static long canonica(long mano) {
+        long a = mano & MASCARA_PALO;
+        long b = mano >>> 10 & MASCARA_PALO;
+        long c = mano >>> 20 & MASCARA_PALO;
+        long d = mano >>> 30 & MASCARA_PALO;
+        // Red de ordenamiento de 4 elementos
+        long t = Math.min(a, b); a = Math.max(a, b); b = t;
+        t = Math.min(c, d); c = Math.max(c, d); d = t;
+        t = Math.min(a, c); a = Math.max(a, c); c = t;
+        t = Math.min(b, d); b = Math.max(b, d); d = t;
+        t = Math.min(b, c); b = Math.max(b, c); c = t;
+        long comodines = Long.bitCount(mano & Mano.MASCARA_COMODINES);
+        return a | b << 10 | c << 20 | d << 30 | comodines << BIT_CANTIDAD_COMODINES;
+    }
+
+    /**
+     * Resultados de un lote, uno por mano, guardados como códigos en un arreglo
+     */
+    public static final class Resultados {
+        private int[] codigos;
+        private long[] aisladas;
+        private long[] claves;
+        private int cantidad;
+
+        public Resultados(int capacidad) {
+            codigos = new int[capacidad];
+            aisladas = new long[capacidad];
+            claves = new long[capacidad];
+        }
+
+        private void preparar(int cantidad) {
+            if (codigos.length < cantidad) {
+                codigos = new int[cantidad];
+                aisladas = new long[cantidad];
+                claves = new long[cantidad];
+            }
+            this.cantidad = cantidad;
+        }
+
+        public int getCantidad() {
+            return cantidad;
+        }
+
+        public boolean puedeCerrar(int i) {
+            return TablaCierres.tipoDe(codigos[i]) != null;
+        }
+
+        /**
+         * Tipo de cierre de la mano i, o null si no puede cerrar
+         */
+        public Mano.TipoCierre getTipo(int i) {
+            return TablaCierres.tipoDe(codigos[i]);
+        }
+
+        public int getPuntosNoLigadas(int i) {
+            return TablaCierres.puntosDe(codigos[i]);
+        }
+
+        public int getNumComodines(int i) {
+            return TablaCierres.comodinesDe(codigos[i]);
+        }
+
+        /**
+         * Resultado de la mano i como lo daría Mano.evaluar (los grupos se arman al pedirlos)
+         */
+        public Mano.ResultadoCierre getResultado(int i, long mascara) {
+            return new Mano.ResultadoCierre(codigos[i], mascara);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package chinchon.modelo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Clase EventosJFR - eventos propios para Java Flight Recorder.
+ * 
+ * Juego y Mano los emiten en cada jugada y en cada evaluación de reglas.
+ * Si no hay una grabación activa que los pida no se guarda nada y el costo
+ * es despreciable. Para grabarlos:
+ *   java -XX:StartFlightRecording=filename=partida.jfr -cp . chinchon.Main
+ * y verlos con: jfr print --categories Chin-Chon partida.jfr
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class EventosJFR {
+    
+    /** Instancia que solo se usa para preguntar si el evento Turno está habilitado */
+    static final Turno TURNO = new Turno();
+    
+    private EventosJFR() {
+    }
+    
+    @Name("chinchon.Turno")
+    @Label("Turno")
+    @Category({"Chin-Chon", "Juego"})
+    @Description("Turno de un jugador, desde que le toca hasta que descarta")
+    @StackTrace(false)
+    static class Turno extends Event {
+        @Label("Jugador")
+        String jugador;
+        
+        @Label("Origen del robo")
+        String origen;
+        
+        @Label("Cerró la mano")
+        boolean cerro;
+    }
+    
+    @Name("chinchon.Robo")
+    @Label("Robo")
+    @Category({"Chin-Chon", "Juego"})
+    @StackTrace(false)
+    static class Robo extends Event {
+        @Label("Jugador")
+        String jugador;
+        
+        @Label("Origen")
+        @Description("MAZO o POZO")
+        String origen;
+        
+        @Label("Carta")
+        String carta;
+    }
+    
+    @Name("chinchon.Descarte")
+    @Label("Descarte")
+    @Category({"Chin-Chon", "Juego"})
+    @StackTrace(false)
+    static class Descarte extends Event {
+        @Label("Jugador")
+        String jugador;
+        
+        @Label("Carta")
+        String carta;
+    }
+    
+    @Name("chinchon.Cierre")
+    @Label("Cierre de mano")
+    @Category({"Chin-Chon", "Juego"})
+    @StackTrace(false)
+    static class Cierre extends Event {
+        @Label("Jugador")
+        String jugador;
+        
+        @Label("Tipo de cierre")
+        String tipo;
+        
+        @Label("Comodines")
+        int comodines;
+        
+        @Label("Puntos no ligados")
+        int puntosNoLigadas;
+        
+        @Label("Chinchón")
+        boolean chinchon;
+    }
+    
+    @Name("chinchon.ManoNueva")
+    @Label("Mano nueva")
+    @Category({"Chin-Chon", "Juego"})
+    @StackTrace(false)
+    static class ManoNueva extends Event {
+        @Label("Semilla")
+        long semilla;
+        
+        @Label("Jugadores activos")
+        int jugadoresActivos;
+    }
+    
+    @Name("chinchon.Reciclaje")
+    @Label("Reciclaje del pozo")
+    @Category({"Chin-Chon", "Juego"})
+    @Description("Se acabó el mazo y las cartas del pozo volvieron a él")
+    @StackTrace(false)
+    static class Reciclaje extends Event {
+        @Label("Semilla")
+        long semilla;
+        
+        @Label("Cartas recicladas")
+        int cartas;
+    }
+    
+    @Name("chinchon.Evaluacion")
+    @Label("Evaluación de mano")
+    @Category({"Chin-Chon", "Reglas"})
+    @Description("Costo de verificarCierre y encontrarGruposLigados")
+    @StackTrace(false)
+    static class Evaluacion extends Event {
+        @Label("Operación")
+        String operacion;
+        
+        @Label("Cartas")
+        int cartas;
+        
+        @Label("Grupos")
+        @Description("-1 si los grupos todavía no se calcularon")
+        int grupos;
+        
+        @Label("Puede cerrar")
+        boolean puedeCerrar;
+        
+        @Label("Resultado guardado")
+        @Description("La mano no había cambiado desde la evaluación anterior")
+        boolean guardado;
+    }
+}
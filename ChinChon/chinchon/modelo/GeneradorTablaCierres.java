@@ -0,0 +1,80 @@
+package chinchon.modelo;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+/**
+ * Clase GeneradorTablaCierres - genera fuera de línea el archivo que usa TablaCierres
+ *
+ * Recorre las C(42, 7) manos posibles en paralelo, resuelve cada una con el
+ * solucionador de ligadas y escribe su código en la posición de su rango.
+ *
+ * Uso: java chinchon.modelo.GeneradorTablaCierres [archivo]
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class GeneradorTablaCierres
+{
+    private static final long MANOS_POR_BLOQUE = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        Path ruta = Paths.get(args.length > 0 ? args[0] : TablaCierres.RUTA_POR_DEFECTO);
+        long inicio = System.nanoTime();
+        generar(ruta);
+        System.out.printf("Tabla de %d manos escrita en %s (%.1f s)%n", TablaCierres.COMBINACIONES,
+            ruta, (System.nanoTime() - inicio) / 1e9);
+    }
+
+    /**
+     * Escribe la tabla completa en el archivo indicado
+     */
+    public static void generar(Path ruta) throws IOException {
+        long total = TablaCierres.COMBINACIONES;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                TablaCierres.TAMANO_CABECERA + 2 * total);
+            datos.order(ByteOrder.LITTLE_ENDIAN);
+
+            long bloques = (total + MANOS_POR_BLOQUE - 1) / MANOS_POR_BLOQUE;
+            AtomicLong terminados = new AtomicLong();
+            LongStream.range(0, bloques).parallel().forEach(bloque -> {
+                long desde = bloque * MANOS_POR_BLOQUE;
+                long hasta = Math.min(desde + MANOS_POR_BLOQUE, total);
+                long mascara = TablaCierres.mascaraDeRango(desde);
+                for (long rango = desde; rango < hasta; rango++) {
+                    int codigo = SolucionadorLigadas.codificar(mascara);
+                    datos.putShort(TablaCierres.TAMANO_CABECERA + (int) (2 * rango), (short) codigo);
+                    mascara = siguienteMano(mascara);
+                }
+                long hechos = terminados.incrementAndGet();
+                if (hechos % 64 == 0) {
+                    System.out.printf("  %d%%%n", hechos * 100 / bloques);
+                }
+            });
+
+            // La cabecera se escribe al final: una tabla a medio generar no es válida
+            datos.putInt(4, TablaCierres.VERSION);
+            datos.putLong(8, total);
+            datos.putInt(0, TablaCierres.MAGICO);
+            datos.force();
+        }
+    }
+
+    /**
+     * Siguiente máscara con la misma cantidad de bits (siguiente rango en orden colexicográfico)
+     */
+    private static long siguienteMano(long mascara) {
+        long menor = mascara & -mascara;
+        long subida = mascara + menor;
+        return subida | (((mascara ^ subida) >>> 2) / menor);
+    }
+}
@@ -0,0 +1,110 @@
+package chinchon.modelo;
+
+import java.util.Arrays;
+
+/**
+ * Clase GrupoOyentes - reparte cada acción de un Juego entre varios oyentes,
+ * en el orden en que se agregaron (ver Juego.agregarOyenteAcciones)
+ * 
+ * Es inmutable: agregar o quitar un oyente arma un grupo nuevo, así el
+ * Juego sigue teniendo un solo campo y con un único oyente no hay grupo.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class GrupoOyentes implements OyenteAcciones
+{
+    private final OyenteAcciones[] oyentes;
+    
+    private GrupoOyentes(OyenteAcciones[] oyentes) {
+        this.oyentes = oyentes;
+    }
+    
+    /**
+     * Oyente que avisa al actual (que puede ser null o un grupo) y después al nuevo
+     */
+    static OyenteAcciones con(OyenteAcciones actual, OyenteAcciones nuevo) {
+        if (actual == null) {
+            return nuevo;
+        }
+        OyenteAcciones[] anteriores = actual instanceof GrupoOyentes
+            ? ((GrupoOyentes) actual).oyentes
+            : new OyenteAcciones[] {actual};
+        OyenteAcciones[] todos = Arrays.copyOf(anteriores, anteriores.length + 1);
+        todos[anteriores.length] = nuevo;
+        return new GrupoOyentes(todos);
+    }
+    
+    /**
+     * Oyente actual sin el indicado (null si no queda ninguno)
+     */
+    static OyenteAcciones sin(OyenteAcciones actual, OyenteAcciones quitado) {
+        if (actual == quitado) {
+            return null;
+        }
+        if (!(actual instanceof GrupoOyentes)) {
+            return actual;
+        }
+        OyenteAcciones[] anteriores = ((GrupoOyentes) actual).oyentes;
+        OyenteAcciones[] restantes = new OyenteAcciones[anteriores.length];
+        int cantidad = 0;
+        for (OyenteAcciones oyente : anteriores) {
+            if (oyente != quitado) {
+                restantes[cantidad++] = oyente;
+            }
+        }
+        if (cantidad == anteriores.length) {
+            return actual;
+        }
+        return cantidad == 1 ? restantes[0] : new GrupoOyentes(Arrays.copyOf(restantes, cantidad));
+    }
+    
+    @Override
+    public void alRepartir(long semilla) {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alRepartir(semilla);
+        }
+    }
+    
+    @Override
+    public void alTomarDelMazo() {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alTomarDelMazo();
+        }
+    }
+    
+    @Override
+    public void alReciclarPozo(long semilla) {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alReciclarPozo(semilla);
+        }
+    }
+    
+    @Override
+    public void alTomarDelPozo() {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alTomarDelPozo();
+        }
+    }
+    
+    @Override
+    public void alDescartar(int indiceCarta) {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alDescartar(indiceCarta);
+        }
+    }
+    
+    @Override
+    public void alColocarGrupos() {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alColocarGrupos();
+        }
+    }
+    
+    @Override
+    public void alReenganchar() {
+        for (OyenteAcciones oyente : oyentes) {
+            oyente.alReenganchar();
+        }
+    }
+}
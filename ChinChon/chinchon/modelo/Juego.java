@@ -1,8 +1,11 @@
 package chinchon.modelo;
 
 import java.util.*;
+import java.util.random.RandomGenerator;
+import chinchon.observador.Evento;
 import chinchon.observador.Observable;
 import chinchon.observador.Observer;
+import chinchon.observador.TipoEvento;
 
 /**
  * Clase Juego - representa el estado y lógica del juego Chin-Chon
@@ -12,6 +15,8 @@ import chinchon.observador.Observer;
  */
 public class Juego implements Observable {
     private List<Observer> observadores = new ArrayList<>();
+    private EnumSet<TipoEvento> eventosPendientes = EnumSet.noneOf(TipoEvento.class);
+    private int operacionesEnCurso; // Mientras sea > 0 los eventos se acumulan
     private Mazo mazo;
     private List<Jugador> jugadores;
     private Pozo pozo;
@@ -22,20 +27,32 @@ public class Juego implements Observable {
     private List<List<Carta>> gruposEnMesa; // Grupos ligados colocados en la mesa
     private boolean partidaTerminada;
     private Jugador ganador;
+    private RandomGenerator aleatorio; // De aquí sale la semilla de cada mano
+    private long semillaMano;
+    private Mano.ResultadoCierre ultimoCierre;
+    private OyenteAcciones oyente; // Opcional, por ejemplo para grabar la partida (ver GrupoOyentes)
+    private EventosJFR.Turno turno; // Evento JFR del turno en curso (null si no se graba)
     
     public Juego(int numJugadores) {
         this(numJugadores, true, 2); // Por defecto 4 jugadores con 2 comodines
     }
     
     public Juego(int numJugadores, boolean conComodines, int numComodines) {
+        this(numJugadores, conComodines, numComodines, new SplittableRandom());
+    }
+    
+    /**
+     * Constructor con el generador de números aleatorios del que salen las semillas
+     * de cada mano (con un generador sembrado la partida es reproducible)
+     */
+    public Juego(int numJugadores, boolean conComodines, int numComodines, RandomGenerator aleatorio) {
         jugadores = new ArrayList<>();
         for (int i = 1; i <= numJugadores; i++) {
             jugadores.add(new Jugador("Jugador " + i));
         }
         
-        mazo = new Mazo(conComodines, numComodines);
-        mazo.barajar();
-        
+        this.aleatorio = aleatorio;
+        mazo = new Mazo(conComodines, numComodines, aleatorio);
         pozo = new Pozo();
         jugadorActual = 0;
         primeraVuelta = 0;
@@ -47,19 +64,70 @@ public class Juego implements Observable {
         
         // Repartir 7 cartas a cada jugador
         repartirCartas();
-        
-        // Colocar la primera carta en el pozo
-        if (!mazo.estaVacio()) {
-            pozo.agregarCarta(mazo.repartirCarta());
+    }
+    
+    /**
+     * Copia independiente de un juego para probar jugadas (ver fork)
+     */
+    private Juego(Juego original, RandomGenerator aleatorio) {
+        jugadores = new ArrayList<>(original.jugadores.size());
+        for (Jugador jugador : original.jugadores) {
+            jugadores.add(new Jugador(jugador));
         }
+        
+        this.aleatorio = aleatorio;
+        mazo = new Mazo(original.mazo, aleatorio);
+        pozo = new Pozo(original.pozo);
+        jugadorActual = original.jugadorActual;
+        primeraVuelta = original.primeraVuelta;
+        manoCerrada = original.manoCerrada;
+        jugadorQueCerro = original.jugadorQueCerro == null ? null
+            : jugadores.get(original.jugadores.indexOf(original.jugadorQueCerro));
+        gruposEnMesa = new ArrayList<>(original.gruposEnMesa);
+        partidaTerminada = original.partidaTerminada;
+        ganador = original.ganador == null ? null
+            : jugadores.get(original.jugadores.indexOf(original.ganador));
+        semillaMano = original.semillaMano;
+        ultimoCierre = original.ultimoCierre;
+        iniciarTurno();
+    }
+    
+    /**
+     * Copia el estado del juego para probar jugadas ("qué pasa si descarto
+     * esta carta y el rival roba aquella") sin tocar el original: jugadores,
+     * manos, mazo (en el mismo orden), pozo con su historial y puntos.
+     * No copia observadores ni oyente de acciones. Las manos siguientes se
+     * barajan con un generador propio, sembrado con la semilla de esta mano.
+     */
+    public Juego fork() {
+        return fork(new SplittableRandom(semillaMano));
+    }
+    
+    /**
+     * Como fork, con el generador que usará la copia para barajar las manos
+     * siguientes y al reciclar el pozo
+     */
+    public Juego fork(RandomGenerator aleatorio) {
+        return new Juego(this, aleatorio);
     }
     
     /**
-     * Reparte 7 cartas a cada jugador
+     * Rearma y baraja el mazo con una semilla nueva, vacía el pozo,
+     * reparte 7 cartas a cada jugador activo y coloca la primera carta en el pozo
      */
     private void repartirCartas() {
+        semillaMano = aleatorio.nextLong();
+        if (oyente != null) {
+            oyente.alRepartir(semillaMano);
+        }
+        mazo.reiniciar(semillaMano);
+        pozo.vaciar();
+        
         for (Jugador jugador : jugadores) {
             jugador.limpiarMano();
+            if (jugador.estaEliminado()) {
+                continue;
+            }
             for (int i = 0; i < 7; i++) {
                 Carta carta = mazo.repartirCarta();
                 if (carta != null) {
@@ -67,6 +135,66 @@ public class Juego implements Observable {
                 }
             }
         }
+        
+        // Colocar la primera carta en el pozo
+        if (!mazo.estaVacio()) {
+            pozo.agregarCarta(mazo.repartirCarta());
+        }
+        
+        EventosJFR.ManoNueva evento = new EventosJFR.ManoNueva();
+        if (evento.shouldCommit()) {
+            evento.semilla = semillaMano;
+            for (Jugador jugador : jugadores) {
+                evento.jugadoresActivos += jugador.estaEliminado() ? 0 : 1;
+            }
+            evento.commit();
+        }
+        iniciarTurno();
+    }
+    
+    /**
+     * Empieza a medir el turno del jugador actual; si ninguna grabación pide
+     * el evento no se crea (quedaría guardado en un campo, así que el JIT no
+     * puede evitar la asignación)
+     */
+    private void iniciarTurno() {
+        if (!EventosJFR.TURNO.isEnabled()) {
+            turno = null;
+            return;
+        }
+        turno = new EventosJFR.Turno();
+        turno.begin();
+    }
+    
+    /**
+     * Termina el turno en curso y lo graba si hay una grabación que lo pida
+     */
+    private void terminarTurno(Jugador jugador) {
+        if (turno == null) {
+            return;
+        }
+        turno.end();
+        if (turno.shouldCommit()) {
+            turno.jugador = jugador.getNombre();
+            turno.cerro = manoCerrada;
+            turno.commit();
+        }
+    }
+    
+    /**
+     * Registra de dónde robó el jugador actual
+     */
+    private void registrarRobo(String origen, Carta carta) {
+        if (turno != null) {
+            turno.origen = origen;
+        }
+        EventosJFR.Robo evento = new EventosJFR.Robo();
+        if (evento.shouldCommit()) {
+            evento.jugador = getJugadorActual().getNombre();
+            evento.origen = origen;
+            evento.carta = carta.toString();
+            evento.commit();
+        }
     }
     
     /**
@@ -79,6 +207,13 @@ public class Juego implements Observable {
         return null;
     }
     
+    /**
+     * Obtiene la posición del jugador actual en la lista de jugadores
+     */
+    public int getIndiceJugadorActual() {
+        return jugadorActual;
+    }
+    
     /**
      * Obtiene todos los jugadores
      */
@@ -107,6 +242,13 @@ public class Juego implements Observable {
         return new ArrayList<>(gruposEnMesa);
     }
     
+    /**
+     * Obtiene la semilla con la que se barajó la mano actual
+     */
+    public long getSemillaMano() {
+        return semillaMano;
+    }
+    
     /**
      * Verifica si la mano está cerrada
      */
@@ -121,6 +263,31 @@ public class Juego implements Observable {
         return jugadorQueCerro;
     }
     
+    /**
+     * Obtiene el resultado del último cierre de mano (null si todavía nadie cerró)
+     */
+    public Mano.ResultadoCierre getUltimoCierre() {
+        return ultimoCierre;
+    }
+    
+    /**
+     * Agrega un oyente de las acciones que cambian el estado; puede haber varios
+     * (por ejemplo, un registro y las creencias de la vista) y cada uno recibe
+     * todas las acciones, en el orden en que se agregaron.
+     * Para grabar una partida entera hay que agregarlo antes de la primera jugada;
+     * la semilla del primer reparto se obtiene con getSemillaMano.
+     */
+    public void agregarOyenteAcciones(OyenteAcciones nuevo) {
+        oyente = GrupoOyentes.con(oyente, nuevo);
+    }
+    
+    /**
+     * Quita un oyente de acciones, dejando a los demás
+     */
+    public void quitarOyenteAcciones(OyenteAcciones quitado) {
+        oyente = GrupoOyentes.sin(oyente, quitado);
+    }
+    
     /**
      * Verifica si es la primera vuelta
      */
@@ -150,15 +317,43 @@ public class Juego implements Observable {
             return false;
         }
         
+        boolean reciclado = mazo.estaVacio() && pozo.getNumeroCartas() > 1;
+        long semillaReciclaje = reciclado ? reciclarPozo() : 0L;
         Carta carta = mazo.repartirCarta();
         if (carta != null) {
+            if (oyente != null) {
+                oyente.alTomarDelMazo();
+                if (reciclado) {
+                    oyente.alReciclarPozo(semillaReciclaje);
+                }
+            }
             getJugadorActual().getMano().agregarCarta(carta);
-            notificarObservadores();
+            registrarRobo("MAZO", carta);
+            notificar(TipoEvento.CARTA_ROBADA);
             return true;
         }
         return false;
     }
     
+    /**
+     * Rearma el mazo con el pozo, dejando su carta de arriba, y lo baraja
+     * con una semilla nueva (así la mano puede seguir en vez de trabarse)
+     * @return la semilla con la que se barajó
+     */
+    private long reciclarPozo() {
+        int recicladas = pozo.getNumeroCartas() - 1;
+        long semilla = aleatorio.nextLong();
+        mazo.reciclar(pozo, semilla);
+        
+        EventosJFR.Reciclaje evento = new EventosJFR.Reciclaje();
+        if (evento.shouldCommit()) {
+            evento.semilla = semilla;
+            evento.cartas = recicladas;
+            evento.commit();
+        }
+        return semilla;
+    }
+    
     /**
      * Toma la carta superior del pozo
      */
@@ -167,10 +362,17 @@ public class Juego implements Observable {
             return false;
         }
         
+        if (pozo.estaVacio()) {
+            return false;
+        }
+        if (oyente != null) {
+            oyente.alTomarDelPozo(); // con la carta todavía en el pozo
+        }
         Carta carta = pozo.tomarCarta();
         if (carta != null) {
             getJugadorActual().getMano().agregarCarta(carta);
-            notificarObservadores();
+            registrarRobo("POZO", carta);
+            notificar(TipoEvento.CARTA_ROBADA);
             return true;
         }
         return false;
@@ -189,9 +391,32 @@ public class Juego implements Observable {
             return false;
         }
         
-        Carta carta = jugador.getMano().retirarCarta(indiceCarta);
+        iniciarOperacion();
+        try {
+            return descartar(jugador, indiceCarta);
+        } finally {
+            terminarOperacion();
+        }
+    }
+    
+    /**
+     * Descarta la carta y cierra la mano si corresponde
+     * (los eventos del descarte y del cierre salen juntos)
+     */
+    private boolean descartar(Jugador jugador, int indiceCarta) {
+        boolean valido = indiceCarta >= 0 && indiceCarta < jugador.getMano().getNumeroCartas();
+        if (valido && oyente != null) {
+            oyente.alDescartar(indiceCarta); // con la carta todavía en la mano
+        }
+        Carta carta = valido ? jugador.getMano().retirarCarta(indiceCarta) : null;
         if (carta != null) {
             pozo.agregarCarta(carta);
+            EventosJFR.Descarte evento = new EventosJFR.Descarte();
+            if (evento.shouldCommit()) {
+                evento.jugador = jugador.getNombre();
+                evento.carta = carta.toString();
+                evento.commit();
+            }
             
             // Verificar si se puede cerrar (después de descartar quedan 7 cartas)
             if (jugador.getMano().getNumeroCartas() == 7) {
@@ -201,12 +426,14 @@ public class Juego implements Observable {
                 }
             }
             
+            terminarTurno(jugador);
+            
             // Avanzar al siguiente jugador si no se cerró la mano
             if (!manoCerrada) {
                 siguienteTurno();
             }
             
-            notificarObservadores();
+            notificar(TipoEvento.CARTA_DESCARTADA);
             return true;
         }
         return false;
@@ -218,9 +445,20 @@ public class Juego implements Observable {
     private void cerrarMano(Mano.ResultadoCierre resultado) {
         manoCerrada = true;
         jugadorQueCerro = getJugadorActual();
+        ultimoCierre = resultado;
         
-        // Colocar los grupos ligados en la mesa
-        gruposEnMesa = jugadorQueCerro.getMano().encontrarGruposLigados();
+        EventosJFR.Cierre evento = new EventosJFR.Cierre();
+        if (evento.shouldCommit()) {
+            evento.jugador = jugadorQueCerro.getNombre();
+            evento.tipo = resultado.getTipo().name();
+            evento.comodines = resultado.getNumComodines();
+            evento.puntosNoLigadas = resultado.getPuntosNoLigadas();
+            evento.chinchon = resultado.getTipo() == Mano.TipoCierre.ESCALERA_7 && resultado.getNumComodines() == 0;
+            evento.commit();
+        }
+        
+        // Colocar en la mesa los grupos ligados que eligió la verificación del cierre
+        gruposEnMesa = new ArrayList<>(resultado.getGrupos());
         
         // Verificar si cerró con chinchón (escalera de 7 sin comodines)
         if (resultado.getTipo() == Mano.TipoCierre.ESCALERA_7 && resultado.getNumComodines() == 0) {
@@ -230,9 +468,10 @@ public class Juego implements Observable {
         } else {
             // Calcular puntos y bonificaciones
             calcularPuntosYCerrarMano(resultado);
+            eventosPendientes.add(TipoEvento.PUNTOS_ACTUALIZADOS);
         }
         
-        notificarObservadores();
+        notificar(TipoEvento.MANO_CERRADA);
     }
     
     /**
@@ -243,7 +482,7 @@ public class Juego implements Observable {
         for (Jugador jugador : jugadores) {
             if (jugador == jugadorQueCerro) {
                 // El que cierra puede tener bonus si cerró con 7 cartas ligadas
-                int puntosNoLigadas = jugador.getMano().calcularPuntosNoLigadas(gruposEnMesa);
+                int puntosNoLigadas = resultado.getPuntosNoLigadas();
                 if (puntosNoLigadas == 0 && resultado.getTipo() == Mano.TipoCierre.ESCALERA_7) {
                     // Cerró con escalera de 7, aplicar bonus
                     int bonus = 0;
@@ -315,6 +554,7 @@ public class Juego implements Observable {
             jugadorActual = (jugadorActual + 1) % jugadores.size();
             intentos++;
         }
+        iniciarTurno();
     }
     
     /**
@@ -327,20 +567,28 @@ public class Juego implements Observable {
         
         Jugador jugador = getJugadorActual();
         List<List<Carta>> gruposLigados = jugador.getMano().encontrarGruposLigados();
+        if (oyente != null) {
+            oyente.alColocarGrupos(); // antes de que se reparta la mano siguiente
+        }
         
-        // Si el que cerró tiene todas las cartas ligadas, no se pueden colocar más
-        int puntosNoLigadasCerrador = jugadorQueCerro.getMano().calcularPuntosNoLigadas(gruposEnMesa);
-        if (puntosNoLigadasCerrador == 0) {
-            // No se pueden colocar cartas adicionales
+        iniciarOperacion();
+        try {
+            // Si el que cerró tiene todas las cartas ligadas, no se pueden colocar más
+            int puntosNoLigadasCerrador = jugadorQueCerro.getMano().calcularPuntosNoLigadas(gruposEnMesa);
+            if (puntosNoLigadasCerrador == 0) {
+                // No se pueden colocar cartas adicionales
+                avanzarDespuesDeCierre();
+                return false;
+            }
+            
+            // Añadir los grupos nuevos a la mesa
+            gruposEnMesa.addAll(gruposLigados);
             avanzarDespuesDeCierre();
-            return false;
+            notificar(TipoEvento.GRUPOS_COLOCADOS);
+            return true;
+        } finally {
+            terminarOperacion();
         }
-        
-        // Añadir los grupos nuevos a la mesa
-        gruposEnMesa.addAll(gruposLigados);
-        avanzarDespuesDeCierre();
-        notificarObservadores();
-        return true;
     }
     
     /**
@@ -377,28 +625,10 @@ public class Juego implements Observable {
         primeraVuelta = 0;
         jugadorActual = 0;
         
-        // Limpiar mazo y pozo, crear nuevo mazo
-        mazo = new Mazo(true, 2); // 2 comodines para 4 jugadores
-        mazo.barajar();
-        pozo = new Pozo();
-        
-        // Repartir nuevas cartas solo a jugadores activos
-        for (Jugador jugador : jugadoresActivos()) {
-            jugador.limpiarMano();
-            for (int i = 0; i < 7; i++) {
-                Carta carta = mazo.repartirCarta();
-                if (carta != null) {
-                    jugador.getMano().agregarCarta(carta);
-                }
-            }
-        }
-        
-        // Colocar primera carta en el pozo
-        if (!mazo.estaVacio()) {
-            pozo.agregarCarta(mazo.repartirCarta());
-        }
+        // Reutilizar el mismo mazo y pozo, repartiendo solo a jugadores activos
+        repartirCartas();
         
-        notificarObservadores();
+        notificar(TipoEvento.MANO_NUEVA);
     }
     
     /**
@@ -408,6 +638,9 @@ public class Juego implements Observable {
         Jugador jugador = getJugadorActual();
         if (jugador.getPuntos() > 100 && !jugador.estaReenganchado() && 
             jugadoresActivos().size() > 2) {
+            if (oyente != null) {
+                oyente.alReenganchar();
+            }
             jugador.setReenganchado(true);
             // Obtener la máxima puntuación de los otros jugadores activos
             int maxPuntos = 0;
@@ -417,7 +650,8 @@ public class Juego implements Observable {
                 }
             }
             jugador.restarPuntos(jugador.getPuntos() - maxPuntos);
-            notificarObservadores();
+            eventosPendientes.add(TipoEvento.PUNTOS_ACTUALIZADOS);
+            notificar(TipoEvento.REENGANCHE);
             return true;
         }
         return false;
@@ -434,10 +668,40 @@ public class Juego implements Observable {
         observadores.remove(o);
     }
     
+    /**
+     * Avisa a los observadores lo que haya cambiado hasta ahora
+     * (si no se registró ningún tipo de cambio, el evento va vacío)
+     */
     @Override
     public void notificarObservadores() {
+        Evento evento = new Evento(eventosPendientes);
+        eventosPendientes.clear();
         for (Observer o : observadores) {
-            o.actualizar(this);
+            o.actualizar(this, evento);
+        }
+    }
+    
+    /**
+     * Registra un cambio; se avisa enseguida salvo que haya una operación en curso
+     */
+    private void notificar(TipoEvento tipo) {
+        eventosPendientes.add(tipo);
+        if (operacionesEnCurso == 0) {
+            notificarObservadores();
+        }
+    }
+    
+    private void iniciarOperacion() {
+        operacionesEnCurso++;
+    }
+    
+    /**
+     * Al terminar la operación más externa se envía un único evento con todos los cambios
+     */
+    private void terminarOperacion() {
+        operacionesEnCurso--;
+        if (operacionesEnCurso == 0 && !eventosPendientes.isEmpty()) {
+            notificarObservadores();
         }
     }
 }
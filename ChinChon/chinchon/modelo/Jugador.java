@@ -22,6 +22,17 @@ public class Jugador
         this.eliminado = false;
     }
     
+    /**
+     * Copia independiente de otro jugador, con su propia mano
+     */
+    Jugador(Jugador otro) {
+        this.nombre = otro.nombre;
+        this.puntos = otro.puntos;
+        this.mano = new Mano(otro.mano);
+        this.reenganchado = otro.reenganchado;
+        this.eliminado = otro.eliminado;
+    }
+    
     public String getNombre() {
         return nombre;
     }
@@ -10,333 +10,534 @@ import java.util.*;
  */
 public class Mano
 {
-    private List<Carta> cartas;
+    /*
+     * Representación como máscara de 64 bits: el bit de cada carta es su
+     * ordinal (ver Carta). Recorrer los bits de menor a mayor da el mismo
+     * orden que Carta.compareTo (palo, número, comodines al final).
+     */
+    static final int CARTAS_POR_PALO = Carta.CARTAS_POR_PALO;
+    static final int BIT_PRIMER_COMODIN = Carta.ORDINAL_PRIMER_COMODIN;
+    static final long MASCARA_COMODINES = -1L << BIT_PRIMER_COMODIN;
+    static final long[] MASCARA_PALO = new long[Palo.values().length];
+    static final long[] MASCARA_NUMERO = new long[CARTAS_POR_PALO];
+    static final int[] NUMERO_DE_POSICION = {1, 2, 3, 4, 5, 6, 7, 10, 11, 12};
+    private static final int[] VALOR_POR_BIT = new int[64];
+    static final long BARAJA_ESTANDAR = (1L << (BIT_PRIMER_COMODIN + 2)) - 1;
+    static final long CARTAS_BAJAS; // números 1 a 4, las que pueden quedar sueltas al cerrar
+    
+    static {
+        for (int palo = 0; palo < MASCARA_PALO.length; palo++) {
+            MASCARA_PALO[palo] = ((1L << CARTAS_POR_PALO) - 1) << (palo * CARTAS_POR_PALO);
+            for (int pos = 0; pos < CARTAS_POR_PALO; pos++) {
+                int bit = palo * CARTAS_POR_PALO + pos;
+                MASCARA_NUMERO[pos] |= 1L << bit;
+                VALOR_POR_BIT[bit] = Math.min(NUMERO_DE_POSICION[pos], 10);
+            }
+        }
+        for (int bit = BIT_PRIMER_COMODIN; bit < 64; bit++) {
+            VALOR_POR_BIT[bit] = 20;
+        }
+        CARTAS_BAJAS = MASCARA_NUMERO[0] | MASCARA_NUMERO[1] | MASCARA_NUMERO[2] | MASCARA_NUMERO[3];
+    }
+    
+    private long mascara;
+    
+    /*
+     * Estado de ligado que se mantiene al agregar o retirar cartas: para cada
+     * palo, las cartas que tienen otra del mismo palo a una distancia que los
+     * comodines pueden cubrir, y para cada número, las cartas que tienen pareja.
+     * Solo esas pueden entrar en un grupo; el resultado completo se guarda
+     * hasta la próxima modificación.
+     */
+    private long candidatasEscalera; // cada palo ocupa sus propios bits
+    private long candidatasPierna;   // y cada número también
+    private long candidatas;
+    private ResultadoCierre cierre;
     
     public Mano() {
-        cartas = new ArrayList<>();
+        mascara = 0L;
+    }
+    
+    /**
+     * Copia independiente de otra mano, con su estado de ligado
+     * (el resultado de cierre guardado se comparte: no cambia)
+     */
+    Mano(Mano otra) {
+        mascara = otra.mascara;
+        candidatasEscalera = otra.candidatasEscalera;
+        candidatasPierna = otra.candidatasPierna;
+        candidatas = otra.candidatas;
+        cierre = otra.cierre;
     }
     
     /**
      * Añade una carta a la mano
      */
     public void agregarCarta(Carta carta) {
-        cartas.add(carta);
-        ordenar();
+        long bit = 1L << carta.getOrdinal();
+        if ((mascara & bit) == 0) {
+            mascara |= bit;
+            actualizarLigado(carta.getOrdinal());
+        }
     }
     
     /**
      * Retira una carta de la mano
      */
     public boolean retirarCarta(Carta carta) {
-        return cartas.remove(carta);
+        long bit = 1L << carta.getOrdinal();
+        if ((mascara & bit) == 0) {
+            return false;
+        }
+        mascara &= ~bit;
+        actualizarLigado(carta.getOrdinal());
+        return true;
     }
     
     /**
      * Retira una carta por índice
      */
     public Carta retirarCarta(int indice) {
-        if (indice >= 0 && indice < cartas.size()) {
-            return cartas.remove(indice);
+        int bit = bitEnIndice(indice);
+        if (bit < 0) {
+            return null;
         }
-        return null;
+        mascara &= ~(1L << bit);
+        actualizarLigado(bit);
+        return Carta.porOrdinal(bit);
+    }
+    
+    /**
+     * Actualiza el estado de ligado después de agregar o retirar la carta del bit
+     * indicado; solo se recalculan su palo y su número (o todo, si es un comodín,
+     * porque cambia la distancia que se puede cubrir)
+     */
+    private void actualizarLigado(int bit) {
+        cierre = null;
+        if (bit >= BIT_PRIMER_COMODIN) {
+            for (int palo = 0; palo < MASCARA_PALO.length; palo++) {
+                actualizarPalo(palo);
+            }
+        } else {
+            actualizarPalo(bit / CARTAS_POR_PALO);
+            actualizarNumero(bit % CARTAS_POR_PALO);
+        }
+        candidatas = candidatasEscalera | candidatasPierna;
+    }
+    
+    /**
+     * Cartas del palo que pueden formar escalera con otra carta real del mismo palo
+     */
+    private void actualizarPalo(int palo) {
+        long reales = mascara & MASCARA_PALO[palo];
+        int alcance = Long.bitCount(mascara & MASCARA_COMODINES) + 1;
+        long resultado = 0L;
+        for (int d = 1; d <= alcance && d < CARTAS_POR_PALO; d++) {
+            resultado |= reales & ((reales >>> d) | (reales << d));
+        }
+        candidatasEscalera = (candidatasEscalera & ~MASCARA_PALO[palo]) | resultado;
+    }
+    
+    /**
+     * Cartas del número que pueden formar pierna (hace falta al menos un par)
+     */
+    private void actualizarNumero(int posicion) {
+        long reales = mascara & MASCARA_NUMERO[posicion];
+        candidatasPierna = (candidatasPierna & ~MASCARA_NUMERO[posicion])
+            | (Long.bitCount(reales) >= 2 ? reales : 0L);
     }
     
     /**
      * Obtiene una carta por índice sin retirarla
      */
     public Carta obtenerCarta(int indice) {
-        if (indice >= 0 && indice < cartas.size()) {
-            return cartas.get(indice);
+        int bit = bitEnIndice(indice);
+        return bit < 0 ? null : Carta.porOrdinal(bit);
+    }
+    
+    /**
+     * Obtiene el bit de la carta que está en la posición indicada (o -1)
+     */
+    private int bitEnIndice(int indice) {
+        if (indice < 0 || indice >= Long.bitCount(mascara)) {
+            return -1;
         }
-        return null;
+        long resto = mascara;
+        for (int i = 0; i < indice; i++) {
+            resto &= resto - 1; // quitar el bit más bajo
+        }
+        return Long.numberOfTrailingZeros(resto);
     }
     
     /**
      * Obtiene todas las cartas
      */
     public List<Carta> getCartas() {
-        return new ArrayList<>(cartas);
+        return cartasDe(mascara);
+    }
+    
+    /**
+     * Obtiene la máscara de bits de la mano
+     */
+    public long getMascara() {
+        return mascara;
+    }
+    
+    /**
+     * Convierte una máscara en la lista ordenada de sus cartas
+     */
+    static List<Carta> cartasDe(long bits) {
+        List<Carta> lista = new ArrayList<>(Long.bitCount(bits));
+        for (long resto = bits; resto != 0; resto &= resto - 1) {
+            lista.add(Carta.porOrdinal(Long.numberOfTrailingZeros(resto)));
+        }
+        return lista;
     }
     
     /**
      * Obtiene el número de cartas en la mano
      */
     public int getNumeroCartas() {
-        return cartas.size();
+        return Long.bitCount(mascara);
     }
     
     /**
      * Ordena las cartas por palo y número
+     * (la máscara ya las mantiene ordenadas, se conserva por compatibilidad)
      */
     public void ordenar() {
-        Collections.sort(cartas);
     }
     
     /**
      * Verifica si la mano está vacía
      */
     public boolean estaVacia() {
-        return cartas.isEmpty();
+        return mascara == 0L;
     }
     
     /**
      * Limpia todas las cartas
      */
     public void limpiar() {
-        cartas.clear();
+        mascara = 0L;
+        candidatasEscalera = 0L;
+        candidatasPierna = 0L;
+        candidatas = 0L;
+        cierre = null;
     }
     
     /**
      * Calcula los puntos de las cartas no ligadas
      */
     public int calcularPuntosNoLigadas(List<List<Carta>> gruposLigados) {
-        List<Carta> cartasLigadas = new ArrayList<>();
+        long ligadas = 0L;
         for (List<Carta> grupo : gruposLigados) {
-            cartasLigadas.addAll(grupo);
+            for (Carta carta : grupo) {
+                ligadas |= 1L << carta.getOrdinal();
+            }
         }
-        
+        return sumarPuntos(mascara & ~ligadas);
+    }
+    
+    /**
+     * Suma el valor en puntos de las cartas de una máscara
+     */
+    static int sumarPuntos(long bits) {
         int puntos = 0;
-        for (Carta carta : cartas) {
-            if (!cartasLigadas.contains(carta)) {
-                puntos += carta.getValorPuntos();
-            }
+        for (long resto = bits; resto != 0; resto &= resto - 1) {
+            puntos += VALOR_POR_BIT[Long.numberOfTrailingZeros(resto)];
         }
         return puntos;
     }
     
     /**
-     * Encuentra todos los grupos de cartas ligadas posibles
-     * Retorna una lista de grupos, donde cada grupo es una lista de cartas ligadas
+     * Encuentra la mejor forma de ligar las cartas de la mano
+     * Retorna una lista de grupos disjuntos, donde cada grupo es una lista de cartas ligadas
      */
     public List<List<Carta>> encontrarGruposLigados() {
-        List<List<Carta>> grupos = new ArrayList<>();
-        List<Carta> usadas = new ArrayList<>();
-        
-        // Buscar grupos del mismo número (al menos 3)
-        Map<Integer, List<Carta>> porNumero = new HashMap<>();
-        for (Carta carta : cartas) {
-            if (!carta.esComodin()) {
-                porNumero.putIfAbsent(carta.getNumero(), new ArrayList<>());
-                porNumero.get(carta.getNumero()).add(carta);
-            }
+        EventosJFR.Evaluacion evento = new EventosJFR.Evaluacion();
+        evento.begin();
+        boolean guardado = cierre != null;
+        ResultadoCierre resultado = calcularCierre(); // sin un evento propio adentro de este
+        List<List<Carta>> grupos = new ArrayList<>(resultado.getGrupos());
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = "encontrarGruposLigados";
+            evento.cartas = getNumeroCartas();
+            evento.grupos = grupos.size();
+            evento.puedeCerrar = resultado.puedeCerrar();
+            evento.guardado = guardado;
+            evento.commit();
         }
-        
-        // Añadir comodines disponibles
-        List<Carta> comodines = new ArrayList<>();
-        for (Carta carta : cartas) {
-            if (carta.esComodin()) {
-                comodines.add(carta);
-            }
+        return grupos;
+    }
+    
+    /**
+     * Verifica Si se puede cerrar la mano
+     * Retorna un objeto con información sobre si se puede cerrar y por qué,
+     * junto con los grupos elegidos y los puntos que quedan sin ligar
+     * (el resultado se guarda hasta que la mano cambie)
+     */
+    public ResultadoCierre verificarCierre() {
+        EventosJFR.Evaluacion evento = new EventosJFR.Evaluacion();
+        evento.begin();
+        boolean guardado = cierre != null;
+        calcularCierre();
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = "verificarCierre";
+            evento.cartas = getNumeroCartas();
+            evento.grupos = cierre.cantidadGrupos();
+            evento.puedeCerrar = cierre.puedeCerrar();
+            evento.guardado = guardado;
+            evento.commit();
         }
-        
-        // Formar grupos con el mismo número
-        for (Map.Entry<Integer, List<Carta>> entry : porNumero.entrySet()) {
-            List<Carta> grupo = new ArrayList<>(entry.getValue());
-            if (grupo.size() >= 2 && grupo.size() + comodines.size() >= 3) {
-                // Añadir comodines si es necesario (máximo 1 comodín por cada 2 cartas reales)
-                int comodinesNecesarios = Math.max(0, 3 - grupo.size());
-                comodinesNecesarios = Math.min(comodinesNecesarios, comodines.size());
-                for (int i = 0; i < comodinesNecesarios && i < comodines.size(); i++) {
-                    if (!usadas.contains(comodines.get(i))) {
-                        grupo.add(comodines.get(i));
-                        usadas.add(comodines.get(i));
-                    }
-                }
-                if (grupo.size() >= 3) {
-                    grupos.add(grupo);
-                }
+        return cierre;
+    }
+    
+    /**
+     * Resultado de cierre guardado, o calculado si la mano cambió
+     * (sin eventos: cada método público registra uno solo)
+     */
+    private ResultadoCierre calcularCierre() {
+        if (cierre == null) {
+            if (candidatas == 0L) {
+                // Ninguna carta puede entrar en un grupo: no hace falta buscar
+                cierre = new ResultadoCierre(false, null, 0, Collections.emptyList(), sumarPuntos(mascara));
+            } else {
+                // Las cartas reales que no son candidatas quedan sueltas sí o sí
+                cierre = evaluar(mascara, mascara & ~MASCARA_COMODINES & ~candidatas);
             }
         }
-        
-        // Buscar escaleras del mismo palo
-        Map<Palo, List<Carta>> porPalo = new HashMap<>();
-        for (Carta carta : cartas) {
-            if (!carta.esComodin()) {
-                porPalo.putIfAbsent(carta.getPalo(), new ArrayList<>());
-                porPalo.get(carta.getPalo()).add(carta);
+        return cierre;
+    }
+    
+    /**
+     * Evalúa una mano dada como máscara de bits sin necesidad de un objeto Mano
+     * (útil para probar descartes o robos sin modificar la mano real)
+     */
+    public static ResultadoCierre evaluar(long mascara) {
+        return evaluar(mascara, 0L);
+    }
+    
+    /**
+     * Evalúa la mano sabiendo qué cartas no pueden entrar en ningún grupo
+     * (el solucionador busca solo entre las demás)
+     */
+    static ResultadoCierre evaluar(long mascara, long sueltas) {
+        // Las manos de 7 cartas se consultan en la tabla precalculada si está disponible
+        TablaCierres tabla = TablaCierres.getInstancia();
+        if (tabla != null) {
+            int codigo = tabla.consultar(mascara);
+            if (codigo >= 0) {
+                return new ResultadoCierre(codigo, mascara);
             }
         }
         
-        // Para cada palo, buscar escaleras
-        for (Map.Entry<Palo, List<Carta>> entry : porPalo.entrySet()) {
-            List<Carta> cartasDelPalo = entry.getValue();
-            Collections.sort(cartasDelPalo, Comparator.comparingInt(Carta::getNumero));
-            
-            // Buscar escaleras consecutivas
-            List<List<Carta>> escalerasDelPalo = buscarEscaleras(cartasDelPalo, comodines, usadas);
-            grupos.addAll(escalerasDelPalo);
+        // Si no, en la cache compartida entre todos los juegos
+        CacheEvaluaciones cache = CacheEvaluaciones.getCompartida();
+        if (cache == null) {
+            return SolucionadorLigadas.resolver(mascara, sueltas);
         }
-        
-        return grupos;
+        ResultadoCierre resultado = cache.consultar(mascara);
+        if (resultado == null) {
+            resultado = SolucionadorLigadas.resolver(mascara, sueltas);
+            cache.guardar(mascara, resultado);
+        }
+        return resultado;
+    }
+    
+    /**
+     * Indica si una mano de 7 cartas puede cerrar, sin armar grupos
+     * (más rápido que evaluar cuando solo importa la respuesta)
+     */
+    public static boolean puedeCerrar(long mascara) {
+        TablaCierres tabla = TablaCierres.getInstancia();
+        int codigo = tabla == null ? -1 : tabla.consultar(mascara);
+        if (codigo < 0) {
+            codigo = SolucionadorLigadas.codificar(mascara);
+        }
+        return TablaCierres.tipoDe(codigo) != null;
+    }
+    
+    /**
+     * Calcula los outs de esta mano de 7 cartas con la baraja estándar
+     * (40 cartas y 2 comodines)
+     * @param vistas cartas que ya se vieron (historial del pozo); la mano se agrega sola
+     */
+    public Outs calcularOuts(long vistas) {
+        return calcularOuts(mascara, vistas, BARAJA_ESTANDAR);
     }
     
     /**
-     * Busca escaleras en una lista ordenada de cartas del mismo palo
+     * Calcula qué cartas no vistas, si se roban, permiten cerrar después de
+     * algún descarte, y la probabilidad de robar una de ellas
+     * 
+     * Para cada descarte posible quedan 6 cartas. Una carta que no tiene con
+     * quién ligarse entre esas 6 (mismo número, o mismo palo a una distancia
+     * que cubren los comodines) solo puede quedar ligada con la carta robada,
+     * así que el robo tiene que ser pareja de todas las sueltas (salvo quizás
+     * una carta baja que quede afuera). Eso deja pocas cartas para probar en
+     * lugar de las 35 x 8 combinaciones de robo y descarte.
+     * 
+     * @param mano mano de 7 cartas
+     * @param vistas cartas que ya se vieron
+     * @param baraja todas las cartas del mazo completo (ver Mazo.getMascaraCompleta)
      */
-    private List<List<Carta>> buscarEscaleras(List<Carta> cartasDelPalo, List<Carta> comodines, List<Carta> usadas) {
-        List<List<Carta>> escaleras = new ArrayList<>();
+    public static Outs calcularOuts(long mano, long vistas, long baraja) {
+        long noVistas = baraja & ~vistas & ~mano;
+        if (puedeCerrar(mano)) {
+            // Cualquier robo sirve: se descarta la carta robada
+            return new Outs(noVistas, noVistas);
+        }
         
-        // Buscar secuencias consecutivas de al menos 3 cartas
-        for (int i = 0; i < cartasDelPalo.size(); i++) {
-            List<Carta> escalera = new ArrayList<>();
-            escalera.add(cartasDelPalo.get(i));
-            int siguienteEsperado = cartasDelPalo.get(i).getNumero() + 1;
-            
-            for (int j = i + 1; j < cartasDelPalo.size(); j++) {
-                Carta actual = cartasDelPalo.get(j);
-                if (actual.getNumero() == siguienteEsperado) {
-                    escalera.add(actual);
-                    siguienteEsperado++;
-                } else if (actual.getNumero() > siguienteEsperado) {
-                    // Hay un hueco, intentar usar comodín
-                    boolean comodinUsado = false;
-                    for (Carta comodin : comodines) {
-                        if (!usadas.contains(comodin)) {
-                            escalera.add(comodin);
-                            usadas.add(comodin);
-                            comodinUsado = true;
-                            siguienteEsperado++;
-                            j--; // Revisar la misma carta otra vez
-                            break;
-                        }
-                    }
-                    if (!comodinUsado) {
-                        break;
-                    }
-                }
-            }
-            
-            // Usar comodines adicionales si es necesario para alcanzar 3 cartas
-            while (escalera.size() < 3) {
-                boolean comodinAñadido = false;
-                for (Carta comodin : comodines) {
-                    if (!usadas.contains(comodin)) {
-                        escalera.add(comodin);
-                        usadas.add(comodin);
-                        comodinAñadido = true;
-                        break;
-                    }
-                }
-                if (!comodinAñadido) {
-                    break;
+        long outs = 0L;
+        for (long resto = mano; resto != 0; resto &= resto - 1) {
+            long seis = mano & ~Long.lowestOneBit(resto);
+            long candidatas = candidatasDeRobo(seis) & noVistas & ~outs;
+            for (long c = candidatas; c != 0; c &= c - 1) {
+                long carta = Long.lowestOneBit(c);
+                if (puedeCerrar(seis | carta)) {
+                    outs |= carta;
                 }
             }
             
-            if (escalera.size() >= 3) {
-                escaleras.add(escalera);
+            // Los comodines son intercambiables: alcanza con probar uno
+            long comodines = noVistas & MASCARA_COMODINES & ~outs;
+            if (comodines != 0 && comodinPuedeServir(seis)
+                    && puedeCerrar(seis | Long.lowestOneBit(comodines))) {
+                outs |= comodines;
             }
         }
-        
-        return escaleras;
+        return new Outs(outs, noVistas);
     }
     
     /**
-     * Verifica Si se puede cerrar la mano
-     * Retorna un objeto con información sobre si se puede cerrar y por qué
+     * Cartas reales que, agregadas a estas 6, podrían dejar la mano cerrable
      */
-    public ResultadoCierre verificarCierre() {
-        // Primero verificar que hay exactamente 7 cartas
-        if (cartas.size() != 7) {
-            return new ResultadoCierre(false, null);
-        }
-        
-        List<List<Carta>> gruposLigados = encontrarGruposLigados();
-        
-        // Verificar escalera de 7 cartas
-        for (List<Carta> grupo : gruposLigados) {
-            if (grupo.size() == 7 && esEscalera(grupo)) {
-                int numComodines = contarComodines(grupo);
-                // Verificar que todas las cartas están en el grupo
-                if (contieneTodasLasCartas(grupo)) {
-                    return new ResultadoCierre(true, TipoCierre.ESCALERA_7, numComodines);
-                }
+    private static long candidatasDeRobo(long seis) {
+        int alcance = Long.bitCount(seis & MASCARA_COMODINES) + 1;
+        long reales = seis & ~MASCARA_COMODINES;
+        long todas = 0L;
+        long sueltas = 0L;
+        for (long resto = reales; resto != 0; resto &= resto - 1) {
+            int bit = Long.numberOfTrailingZeros(resto);
+            long parejas = parejasDe(bit, alcance);
+            todas |= parejas;
+            if ((parejas & reales) == 0) {
+                sueltas |= 1L << bit;
             }
         }
         
-        // Verificar dos grupos: uno de 3 y otro de 4
-        if (gruposLigados.size() >= 2) {
-            for (List<Carta> grupo1 : gruposLigados) {
-                for (List<Carta> grupo2 : gruposLigados) {
-                    if (grupo1 != grupo2 && 
-                        ((grupo1.size() == 3 && grupo2.size() == 4) ||
-                         (grupo1.size() == 4 && grupo2.size() == 3))) {
-                        // Verificar que las cartas de ambos grupos cubren todas las 7 cartas
-                        List<Carta> cartasCombinadas = new ArrayList<>();
-                        cartasCombinadas.addAll(grupo1);
-                        cartasCombinadas.addAll(grupo2);
-                        if (contieneTodasLasCartas(cartasCombinadas)) {
-                            return new ResultadoCierre(true, TipoCierre.DOS_GRUPOS_3_4);
-                        }
-                    }
-                }
+        if (sueltas == 0) {
+            // Con las 6 ligadas, la carta robada puede ser la baja que queda suelta
+            if ((cartasLigadas(seis) | MASCARA_COMODINES) == (seis | MASCARA_COMODINES)) {
+                todas |= CARTAS_BAJAS;
             }
+            return todas;
         }
         
-        // Verificar dos grupos de 3 (o escalera de 6) + carta < 5
-        if (gruposLigados.size() >= 2) {
-            for (List<Carta> grupo1 : gruposLigados) {
-                for (List<Carta> grupo2 : gruposLigados) {
-                    if (grupo1 != grupo2 && grupo1.size() >= 3 && grupo2.size() >= 3) {
-                        List<Carta> cartasLigadas = new ArrayList<>();
-                        cartasLigadas.addAll(grupo1);
-                        cartasLigadas.addAll(grupo2);
-                        
-                        // Buscar una carta suelta menor que 5
-                        for (Carta carta : cartas) {
-                            if (!cartasLigadas.contains(carta) && !carta.esComodin() && carta.getNumero() < 5) {
-                                // Verificar que las cartas ligadas + la carta suelta = 7 cartas
-                                cartasLigadas.add(carta);
-                                if (contieneTodasLasCartas(cartasLigadas)) {
-                                    return new ResultadoCierre(true, TipoCierre.DOS_GRUPOS_3_MAS_CARTA_BAJA);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+        // El robo tiene que ser pareja de todas las sueltas, o de todas menos una baja
+        long candidatas = parejasDeTodas(sueltas, alcance, todas);
+        for (long bajas = sueltas & CARTAS_BAJAS; bajas != 0; bajas &= bajas - 1) {
+            candidatas |= parejasDeTodas(sueltas & ~Long.lowestOneBit(bajas), alcance, todas);
         }
-        
-        return new ResultadoCierre(false, null);
+        return candidatas;
     }
     
     /**
-     * Verifica si una lista de cartas contiene todas las cartas de la mano
+     * Indica si un comodín robado podría dejar cerrable la mano: con él, cada
+     * carta real tiene que tener pareja, salvo a lo sumo una carta baja
      */
-    private boolean contieneTodasLasCartas(List<Carta> listaCartas) {
-        if (listaCartas.size() != cartas.size()) {
-            return false;
-        }
-        for (Carta carta : cartas) {
-            if (!listaCartas.contains(carta)) {
-                return false;
+    private static boolean comodinPuedeServir(long seis) {
+        int alcance = Long.bitCount(seis & MASCARA_COMODINES) + 2;
+        long reales = seis & ~MASCARA_COMODINES;
+        long sueltas = 0L;
+        for (long resto = reales; resto != 0; resto &= resto - 1) {
+            int bit = Long.numberOfTrailingZeros(resto);
+            if ((parejasDe(bit, alcance) & reales) == 0) {
+                sueltas |= 1L << bit;
             }
         }
-        return true;
+        return sueltas == 0 || (Long.bitCount(sueltas) == 1 && (sueltas & CARTAS_BAJAS) != 0);
     }
     
-    private boolean esEscalera(List<Carta> grupo) {
-        // Verificar si todas las cartas son del mismo palo o tienen comodines
-        Palo paloBase = null;
-        for (Carta carta : grupo) {
-            if (!carta.esComodin()) {
-                if (paloBase == null) {
-                    paloBase = carta.getPalo();
-                } else if (carta.getPalo() != paloBase) {
-                    return false;
-                }
-            }
+    /**
+     * Intersección de las parejas de cada carta (si no hay cartas, el valor dado)
+     */
+    private static long parejasDeTodas(long cartas, int alcance, long siNoHay) {
+        if (cartas == 0) {
+            return siNoHay;
         }
-        return true;
+        long resultado = -1L;
+        for (long resto = cartas; resto != 0; resto &= resto - 1) {
+            resultado &= parejasDe(Long.numberOfTrailingZeros(resto), alcance);
+        }
+        return resultado;
     }
     
-    private int contarComodines(List<Carta> grupo) {
-        int count = 0;
-        for (Carta carta : grupo) {
-            if (carta.esComodin()) {
-                count++;
-            }
+    /**
+     * Cartas reales que pueden estar en un mismo grupo con la carta del bit dado:
+     * las del mismo número y las del mismo palo a distancia menor o igual al alcance
+     */
+    private static long parejasDe(int bit, int alcance) {
+        int palo = bit / CARTAS_POR_PALO;
+        int pos = bit % CARTAS_POR_PALO;
+        long ventana = (1L << (2 * alcance + 1)) - 1;
+        ventana = bit >= alcance ? ventana << (bit - alcance) : ventana >>> (alcance - bit);
+        return ((ventana & MASCARA_PALO[palo]) | MASCARA_NUMERO[pos]) & ~(1L << bit);
+    }
+    
+    /**
+     * Resultado de calcularOuts
+     */
+    public static class Outs {
+        private final long mascara;
+        private final long noVistas;
+        
+        Outs(long mascara, long noVistas) {
+            this.mascara = mascara;
+            this.noVistas = noVistas;
+        }
+        
+        /**
+         * Cartas que permiten cerrar si se roban
+         */
+        public long getMascara() {
+            return mascara;
+        }
+        
+        public List<Carta> getCartas() {
+            return cartasDe(mascara);
+        }
+        
+        public int getCantidad() {
+            return Long.bitCount(mascara);
+        }
+        
+        /**
+         * Cartas que no se vieron (en el mazo o en manos ajenas)
+         */
+        public int getNoVistas() {
+            return Long.bitCount(noVistas);
         }
-        return count;
+        
+        /**
+         * Probabilidad de que la próxima carta del mazo sea un out
+         * (todas las cartas no vistas tienen la misma chance de estar arriba)
+         */
+        public double getProbabilidad() {
+            int total = getNoVistas();
+            return total == 0 ? 0.0 : (double) getCantidad() / total;
+        }
+    }
+    
+    /**
+     * Máscara de las cartas que quedan ligadas en la mejor partición de una mano
+     * (sin armar las listas de grupos)
+     */
+    public static long cartasLigadas(long mascara) {
+        return SolucionadorLigadas.ligadas(mascara);
     }
     
     /**
@@ -345,22 +546,62 @@ public class Mano
      * ¿Puedo cerrar? (Sí/No - boolean).
      * ¿Qué tipo de juego hice? (TipoCierre).
      * ¿cuántos comodines usé? (int - importante para restar puntos extra como -25 o -50)
+     * Además guarda los grupos elegidos y los puntos que quedaron sin ligar.
+     * Es inmutable (grupos incluidos): la cache de evaluaciones comparte un
+     * mismo resultado entre todas las manos y todos los hilos.
      */
     public static class ResultadoCierre {
-        private boolean puedeCerrar;
-        private TipoCierre tipo;
-        private int numComodines;
+        private final boolean puedeCerrar;
+        private final TipoCierre tipo;
+        private final int numComodines;
+        private final int puntosNoLigadas;
+        
+        // Si el resultado salió de la tabla, los grupos se calculan recién cuando se piden
+        // (volatile para publicarlos entre hilos; calcularlos dos veces da lo mismo)
+        private volatile List<List<Carta>> grupos;
+        private final long mascaraPendiente;
         
         public ResultadoCierre(boolean puedeCerrar, TipoCierre tipo) {
-            this.puedeCerrar = puedeCerrar;
-            this.tipo = tipo;
-            this.numComodines = 0;
+            this(puedeCerrar, tipo, 0);
         }
         
         public ResultadoCierre(boolean puedeCerrar, TipoCierre tipo, int numComodines) {
+            this(puedeCerrar, tipo, numComodines, Collections.emptyList(), 0);
+        }
+        
+        public ResultadoCierre(boolean puedeCerrar, TipoCierre tipo, int numComodines,
+                               List<List<Carta>> grupos, int puntosNoLigadas) {
             this.puedeCerrar = puedeCerrar;
             this.tipo = tipo;
             this.numComodines = numComodines;
+            this.grupos = copiarGrupos(grupos);
+            this.puntosNoLigadas = puntosNoLigadas;
+            this.mascaraPendiente = 0L;
+        }
+        
+        /**
+         * Resultado leído de TablaCierres; los grupos se resuelven al pedirlos
+         */
+        ResultadoCierre(int codigo, long mascara) {
+            this.tipo = TablaCierres.tipoDe(codigo);
+            this.puedeCerrar = tipo != null;
+            this.numComodines = TablaCierres.comodinesDe(codigo);
+            this.puntosNoLigadas = TablaCierres.puntosDe(codigo);
+            this.mascaraPendiente = mascara;
+        }
+        
+        /**
+         * Copia de solo lectura de los grupos y de cada grupo
+         */
+        private static List<List<Carta>> copiarGrupos(List<List<Carta>> grupos) {
+            if (grupos.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<List<Carta>> copia = new ArrayList<>(grupos.size());
+            for (List<Carta> grupo : grupos) {
+                copia.add(List.copyOf(grupo));
+            }
+            return Collections.unmodifiableList(copia);
         }
         
         public boolean puedeCerrar() {
@@ -374,6 +615,32 @@ public class Mano
         public int getNumComodines() {
             return numComodines;
         }
+        
+        /**
+         * Grupos ligados elegidos (disjuntos)
+         */
+        public List<List<Carta>> getGrupos() {
+            List<List<Carta>> resultado = grupos;
+            if (resultado == null) {
+                resultado = SolucionadorLigadas.resolver(mascaraPendiente).getGrupos();
+                grupos = resultado;
+            }
+            return resultado;
+        }
+        
+        /**
+         * Cantidad de grupos, o -1 si vienen de la tabla y todavía no se pidieron
+         */
+        int cantidadGrupos() {
+            return grupos == null ? -1 : grupos.size();
+        }
+        
+        /**
+         * Puntos de las cartas que quedaron fuera de los grupos
+         */
+        public int getPuntosNoLigadas() {
+            return puntosNoLigadas;
+        }
     }
     
     /* Tipos de cierre */
@@ -386,13 +653,13 @@ public class Mano
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < cartas.size(); i++) {
-            sb.append(i).append(": ").append(cartas.get(i));
-            if (i < cartas.size() - 1) {
+        int i = 0;
+        for (long resto = mascara; resto != 0; resto &= resto - 1) {
+            if (i > 0) {
                 sb.append(", ");
             }
+            sb.append(i++).append(": ").append(Carta.porOrdinal(Long.numberOfTrailingZeros(resto)));
         }
         return sb.toString();
     }
 }
-
@@ -1,16 +1,23 @@
 package chinchon.modelo;
 
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 /**
  * Clase Mazo - representa el mazo de cartas de la baraja española
  * 
+ * Guarda los ordinales de las cartas en un arreglo de bytes que se reutiliza:
+ * reiniciar vuelve a llenarlo y lo baraja en el lugar, sin crear objetos.
+ * 
  * @author Valentin Ziegenbein
  * @version 1.0
  */
 public class Mazo
 {
-    private List<Carta> cartas;
+    private byte[] cartas; // ordinales; la carta de arriba es la última
+    private int cantidad;
+    private final int total; // cartas del mazo completo
+    private RandomGenerator aleatorio;
     
     /**
      * Constructor que crea un mazo español estándar (40 cartas)
@@ -25,65 +32,169 @@ public class Mazo
      * @param numComodines número de comodines a añadir
      */
     public Mazo(boolean conComodines, int numComodines) {
-        cartas = new ArrayList<>();
-        
-        // Crear cartas normales (1-7, 10-12) para cada palo
-        Palo[] palos = Palo.values();
-        for (Palo palo : palos) {
-            // Números del 1 al 7
-            for (int i = 1; i <= 7; i++) {
-                cartas.add(new Carta(palo, i));
-            }
-            // Figuras (10 = Sota, 11 = Caballo, 12 = Rey)
-            for (int i = 10; i <= 12; i++) {
-                cartas.add(new Carta(palo, i));
-            }
+        this(conComodines, numComodines, new SplittableRandom());
+    }
+    
+    /**
+     * Constructor con el generador de números aleatorios que usa barajar
+     * @param conComodines si incluir comodines
+     * @param numComodines número de comodines a añadir
+     * @param aleatorio generador para barajar (por ejemplo un SplittableRandom por hilo)
+     */
+    public Mazo(boolean conComodines, int numComodines, RandomGenerator aleatorio) {
+        int comodines = conComodines ? numComodines : 0;
+        if (comodines < 0 || comodines > Carta.MAX_COMODINES) {
+            throw new IllegalArgumentException("Número de comodines inválido: " + numComodines);
         }
-        
-        // Añadir comodines si se solicitan
-        if (conComodines) {
-            for (int i = 1; i <= numComodines; i++) {
-                cartas.add(new Carta(i)); // Comodines numerados
-            }
+        total = Carta.ORDINAL_PRIMER_COMODIN + comodines;
+        cartas = new byte[total];
+        this.aleatorio = aleatorio;
+        llenar();
+    }
+    
+    /**
+     * Copia independiente de otro mazo, con las cartas en el mismo orden
+     */
+    Mazo(Mazo otro, RandomGenerator aleatorio) {
+        cartas = otro.cartas.clone();
+        cantidad = otro.cantidad;
+        total = otro.total;
+        this.aleatorio = aleatorio;
+    }
+    
+    /**
+     * Vuelve a poner todas las cartas en orden (cartas normales por palo y número, luego comodines)
+     */
+    private void llenar() {
+        for (int i = 0; i < total; i++) {
+            cartas[i] = (byte) i;
         }
+        cantidad = total;
     }
     
     /**
      * Baraja el mazo
      */
     public void barajar() {
-        Collections.shuffle(cartas);
+        for (int i = cantidad - 1; i > 0; i--) {
+            intercambiar(i, aleatorio.nextInt(i + 1));
+        }
+    }
+    
+    /**
+     * Vuelve a juntar todas las cartas y las baraja con el generador del mazo
+     */
+    public void reiniciar() {
+        llenar();
+        barajar();
+    }
+    
+    /**
+     * Vuelve a juntar todas las cartas y las baraja de forma reproducible:
+     * la misma semilla da siempre el mismo orden, sin depender del generador del mazo
+     */
+    public void reiniciar(long semilla) {
+        llenar();
+        barajar(semilla);
+    }
+    
+    /**
+     * Cuando el mazo se acabó, pasa al mazo las cartas del pozo menos la de arriba
+     * y las baraja con la semilla dada. No copia carta por carta: el mazo se queda
+     * con el arreglo del pozo y le da al pozo el suyo, que está vacío.
+     * @return false si el mazo todavía tiene cartas o el pozo no tiene qué reciclar
+     */
+    public boolean reciclar(Pozo pozo, long semilla) {
+        int recicladas = pozo.getNumeroCartas() - 1;
+        if (cantidad > 0 || recicladas <= 0) {
+            return false;
+        }
+        cartas = pozo.entregarCartas(cartas);
+        cantidad = recicladas;
+        barajar(semilla);
+        return true;
+    }
+    
+    /**
+     * Baraja en el lugar de forma reproducible a partir de la semilla
+     */
+    private void barajar(long semilla) {
+        long estado = semilla;
+        for (int i = cantidad - 1; i > 0; i--) {
+            estado += 0x9E3779B97F4A7C15L;
+            // Número en [0, i] a partir de los 32 bits altos
+            intercambiar(i, (int) (((mezclar(estado) >>> 32) * (i + 1)) >>> 32));
+        }
+    }
+    
+    /**
+     * Función de mezcla de SplitMix64
+     */
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    private void intercambiar(int i, int j) {
+        byte temporal = cartas[i];
+        cartas[i] = cartas[j];
+        cartas[j] = temporal;
+    }
+    
+    /**
+     * Cambia el generador que usa barajar
+     */
+    public void setAleatorio(RandomGenerator aleatorio) {
+        this.aleatorio = aleatorio;
     }
     
     /**
      * Reparte una carta del mazo
      */
     public Carta repartirCarta() {
-        if (cartas.isEmpty()) {
+        if (cantidad == 0) {
             return null;
         }
-        return cartas.remove(cartas.size() - 1);
+        return Carta.porOrdinal(cartas[--cantidad]);
     }
     
     /**
      * Obtiene el número de cartas restantes
      */
     public int getNumeroCartas() {
-        return cartas.size();
+        return cantidad;
     }
     
     /**
      * Verifica si el mazo está vacío
      */
     public boolean estaVacio() {
-        return cartas.isEmpty();
+        return cantidad == 0;
+    }
+    
+    /**
+     * Obtiene la cantidad de comodines del mazo completo
+     */
+    public int getNumComodines() {
+        return total - Carta.ORDINAL_PRIMER_COMODIN;
+    }
+    
+    /**
+     * Máscara con todas las cartas que forman este mazo completo (bit = ordinal)
+     */
+    public long getMascaraCompleta() {
+        return total == 64 ? -1L : (1L << total) - 1;
     }
     
     /**
      * Obtiene todas las cartas (para debug)
      */
     public List<Carta> getCartas() {
-        return new ArrayList<>(cartas); // Retorna copia
+        List<Carta> copia = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            copia.add(Carta.porOrdinal(cartas[i]));
+        }
+        return copia; // Retorna copia
     }
 }
-
@@ -0,0 +1,54 @@
+package chinchon.modelo;
+
+/**
+ * Interfaz OyenteAcciones - recibe cada transición de estado de un Juego,
+ * en el orden en que ocurren, con la información justa para volver a
+ * producirla (por ejemplo, para grabar la partida y reproducirla después)
+ * 
+ * Solo se informan las acciones que se aplican; una acción rechazada
+ * (por ejemplo, robar con el mazo vacío) no cambia el estado y no se avisa.
+ * Los robos y descartes se avisan antes de que la carta entre o salga de la
+ * mano, así el oyente todavía ve la mano como estaba (y al robar del pozo,
+ * la carta todavía está arriba del pozo).
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public interface OyenteAcciones {
+    /**
+     * Se repartió una mano nueva barajando con la semilla dada
+     */
+    void alRepartir(long semilla);
+    
+    /**
+     * El jugador actual robó del mazo
+     */
+    void alTomarDelMazo();
+    
+    /**
+     * Se acabó el mazo y se rearmó con el pozo, barajando con la semilla dada.
+     * Se avisa después de alTomarDelMazo, aunque el reciclaje ocurrió antes del
+     * robo: es parte de esa acción y al reproducirla la semilla se pide ahí.
+     */
+    void alReciclarPozo(long semilla);
+    
+    /**
+     * El jugador actual robó del pozo
+     */
+    void alTomarDelPozo();
+    
+    /**
+     * El jugador actual descartó la carta del índice dado
+     */
+    void alDescartar(int indiceCarta);
+    
+    /**
+     * El jugador actual colocó sus grupos después de un cierre
+     */
+    void alColocarGrupos();
+    
+    /**
+     * El jugador actual se reenganchó
+     */
+    void alReenganchar();
+}
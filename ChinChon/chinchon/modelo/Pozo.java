@@ -1,60 +1,197 @@
 package chinchon.modelo;
 
-import java.util.Stack;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Clase Pozo - representa el pozo donde se descartan las cartas
  * 
+ * Las cartas se guardan como ordinales en un arreglo (cada carta es única, así
+ * que nunca hay más de 64 en el pozo, ni más que las del mazo). Además del pozo en sí se lleva el
+ * historial de todos los descartes de la mano, que es información pública.
+ * No está sincronizado: lo usa un solo hilo por partida.
+ * 
  * @author Valentin Ziegenbein
  * @version 1.0
  */
 public class Pozo
 {
-    private Stack<Carta> cartas;
+    private byte[] cartas;
+    private int cantidad;
+    private long mascara;
+    
+    private byte[] historial;
+    private int descartes;
+    private long mascaraDescartadas;
+    private final Historial vistaHistorial;
     
     public Pozo() {
-        cartas = new Stack<>();
+        cartas = new byte[64];
+        historial = new byte[64];
+        vistaHistorial = new Historial();
+    }
+    
+    /**
+     * Copia independiente de otro pozo, con su historial
+     */
+    Pozo(Pozo otro) {
+        cartas = otro.cartas.clone();
+        cantidad = otro.cantidad;
+        mascara = otro.mascara;
+        historial = otro.historial.clone();
+        descartes = otro.descartes;
+        mascaraDescartadas = otro.mascaraDescartadas;
+        vistaHistorial = new Historial();
     }
     
     /**
      * Añade una carta al pozo
      */
     public void agregarCarta(Carta carta) {
-        cartas.push(carta);
+        int ordinal = carta.getOrdinal();
+        cartas[cantidad++] = (byte) ordinal;
+        mascara |= 1L << ordinal;
+        
+        if (descartes == historial.length) {
+            historial = Arrays.copyOf(historial, historial.length * 2);
+        }
+        historial[descartes++] = (byte) ordinal;
+        mascaraDescartadas |= 1L << ordinal;
     }
     
     /**
      * Toma la carta superior del pozo
      */
     public Carta tomarCarta() {
-        if (cartas.isEmpty()) {
+        if (cantidad == 0) {
             return null;
         }
-        return cartas.pop();
+        int ordinal = cartas[--cantidad];
+        mascara &= ~(1L << ordinal);
+        return Carta.porOrdinal(ordinal);
     }
     
     /**
      * Observa la carta superior sin tomarla
      */
     public Carta verCartaSuperior() {
-        if (cartas.isEmpty()) {
+        if (cantidad == 0) {
             return null;
         }
-        return cartas.peek();
+        return Carta.porOrdinal(cartas[cantidad - 1]);
     }
     
     /**
      * Verifica si el pozo está vacío
      */
     public boolean estaVacio() {
-        return cartas.isEmpty();
+        return cantidad == 0;
+    }
+    
+    /**
+     * Quita todas las cartas del pozo y olvida el historial
+     */
+    public void vaciar() {
+        cantidad = 0;
+        mascara = 0L;
+        descartes = 0;
+        mascaraDescartadas = 0L;
+    }
+    
+    /**
+     * Entrega el arreglo con las cartas del pozo, menos la de arriba que queda
+     * sola en el arreglo de reemplazo. Las entregadas vuelven a ser desconocidas,
+     * así que salen de la máscara de descartadas (el historial no cambia).
+     * Lo usa Mazo.reciclar cuando se acaba el mazo.
+     */
+    byte[] entregarCartas(byte[] reemplazo) {
+        byte superior = cartas[cantidad - 1];
+        long entregadas = mascara & ~(1L << superior);
+        byte[] entregado = cartas;
+        cartas = reemplazo;
+        cartas[0] = superior;
+        cantidad = 1;
+        mascara = 1L << superior;
+        mascaraDescartadas &= ~entregadas;
+        return entregado;
+    }
+    
+    /**
+     * Obtiene todas las cartas del pozo, de abajo hacia arriba (son públicas)
+     */
+    public List<Carta> getCartas() {
+        List<Carta> copia = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            copia.add(Carta.porOrdinal(cartas[i]));
+        }
+        return copia; // Retorna copia
     }
     
     /**
      * Obtiene el número de cartas en el pozo
      */
     public int getNumeroCartas() {
-        return cartas.size();
+        return cantidad;
+    }
+    
+    /**
+     * Ordinal de la carta en la posición dada, contando desde abajo
+     */
+    public int getOrdinal(int posicion) {
+        if (posicion < 0 || posicion >= cantidad) {
+            throw new IndexOutOfBoundsException(posicion);
+        }
+        return cartas[posicion];
+    }
+    
+    /**
+     * Máscara de las cartas que están ahora en el pozo (bit = ordinal)
+     */
+    public long getMascara() {
+        return mascara;
+    }
+    
+    /**
+     * Máscara de las cartas descartadas en esta mano, sigan o no en el pozo
+     * (sin las que volvieron al mazo al reciclarlo)
+     */
+    public long getMascaraDescartadas() {
+        return mascaraDescartadas;
+    }
+    
+    /**
+     * Indica si la carta fue descartada en esta mano y no volvió al mazo
+     */
+    public boolean fueDescartada(Carta carta) {
+        return (mascaraDescartadas & (1L << carta.getOrdinal())) != 0;
+    }
+    
+    /**
+     * Historial de descartes en orden, incluidas las cartas que después se
+     * tomaron del pozo. Es una vista de solo lectura que no copia nada y
+     * refleja los descartes siguientes.
+     */
+    public List<Carta> getHistorial() {
+        return vistaHistorial;
+    }
+    
+    /**
+     * Vista sobre el arreglo de historial
+     */
+    private class Historial extends AbstractList<Carta> {
+        @Override
+        public Carta get(int indice) {
+            if (indice < 0 || indice >= descartes) {
+                throw new IndexOutOfBoundsException(indice);
+            }
+            return Carta.porOrdinal(historial[indice]);
+        }
+        
+        @Override
+        public int size() {
+            return descartes;
+        }
     }
 }
-
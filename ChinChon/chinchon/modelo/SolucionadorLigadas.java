@@ -0,0 +1,467 @@
+package chinchon.modelo;
+
+import java.util.*;
+
+/**
+ * Clase SolucionadorLigadas - encuentra la partición de una mano en grupos
+ * ligados que deja la menor cantidad de puntos sin ligar.
+ *
+ * Trabaja sobre la máscara de bits de la mano (ver Mano): enumera todos los
+ * grupos candidatos (mismo número o escalera del mismo palo, con al menos dos
+ * cartas reales) y hace una búsqueda memorizada sobre los subconjuntos de la
+ * mano, probando para la carta más baja de cada subconjunto dejarla suelta o
+ * ligarla en cada grupo candidato con la cantidad de comodines que convenga.
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class SolucionadorLigadas
+{
+    private static final int SIN_CALCULAR = -1;
+    private static final int MAX_CARTAS_GRUPO_NUMERO = 4;
+
+    // Un solucionador por hilo, reutilizando sus arreglos de trabajo
+    private static final ThreadLocal<SolucionadorLigadas> POR_HILO =
+        ThreadLocal.withInitial(SolucionadorLigadas::new);
+
+    // Cartas de la mano actual (índice local -> bit de la máscara)
+    private final int[] bits = new int[64];
+    private final int[] valores = new int[64];
+    private int numCartas;
+    private int comodinesLocales;
+
+    // Grupos candidatos: cartas reales (máscara local), comodines mínimo/máximo,
+    // y el palo si es escalera (-1 si es grupo del mismo número)
+    private int[] candidatoReales = new int[64];
+    private int[] candidatoMinComodines = new int[64];
+    private int[] candidatoMaxComodines = new int[64];
+    private int[] candidatoPalo = new int[64];
+    private int numCandidatos;
+
+    // Memoria de la búsqueda: puntos mínimos y elección tomada por subconjunto
+    private int[] mejorPuntos = new int[0];
+    private int[] eleccion = new int[0];
+
+    // Decisión para la mano actual: tipo de cierre (null si no cierra) y subconjunto ligado
+    private Mano.TipoCierre tipoElegido;
+    private int ligadasElegidas;
+    private int puntosFijos;    // cartas que se sabe de antemano que quedan sueltas
+    private int cartasEnGrupos; // lo llena recorrerEleccion
+
+    private SolucionadorLigadas() {
+    }
+
+    /**
+     * Resuelve una mano y construye su resultado de cierre con los grupos elegidos
+     */
+    static Mano.ResultadoCierre resolver(long mascara) {
+        SolucionadorLigadas solucionador = POR_HILO.get();
+        solucionador.decidir(mascara);
+        return solucionador.construirResultado(mascara);
+    }
+
+    /**
+     * Como resolver, sabiendo de antemano qué cartas no pueden entrar en ningún
+     * grupo (ver Mano.verificarCierre): la búsqueda se hace solo sobre las demás,
+     * que son muchos menos subconjuntos
+     */
+    static Mano.ResultadoCierre resolver(long mascara, long sueltas) {
+        if (sueltas == 0L) {
+            return resolver(mascara);
+        }
+        SolucionadorLigadas solucionador = POR_HILO.get();
+        solucionador.decidir(mascara, sueltas);
+        return solucionador.construirResultado(mascara);
+    }
+
+    /**
+     * Resuelve una mano sin armar los grupos y devuelve el resultado empaquetado
+     * con el formato de TablaCierres
+     */
+    static int codificar(long mascara) {
+        SolucionadorLigadas solucionador = POR_HILO.get();
+        solucionador.decidir(mascara);
+        return solucionador.construirCodigo(mascara);
+    }
+
+    /**
+     * Como codificar, pero solo busca la partición con menos puntos sin ligar,
+     * aunque la mano tenga 7 cartas (el código nunca trae tipo de cierre)
+     */
+    static int codificarSinCierre(long mascara) {
+        SolucionadorLigadas solucionador = POR_HILO.get();
+        solucionador.preparar(mascara);
+        solucionador.tipoElegido = null;
+        solucionador.ligadasElegidas = (1 << solucionador.numCartas) - 1;
+        solucionador.buscar(solucionador.ligadasElegidas);
+        return solucionador.construirCodigo(mascara);
+    }
+
+    /**
+     * Máscara de las cartas que quedan dentro de algún grupo en la mejor partición
+     */
+    static long ligadas(long mascara) {
+        SolucionadorLigadas solucionador = POR_HILO.get();
+        solucionador.decidir(mascara);
+        if (solucionador.tipoElegido == Mano.TipoCierre.ESCALERA_7) {
+            return mascara;
+        }
+        solucionador.recorrerEleccion(null);
+        return solucionador.global(solucionador.cartasEnGrupos);
+    }
+
+    /**
+     * Decide el tipo de cierre y qué subconjunto de la mano se liga.
+     * Para el cierre con carta baja, la carta suelta queda fuera del subconjunto.
+     */
+    private void decidir(long mascara) {
+        preparar(mascara);
+        int todas = (1 << numCartas) - 1;
+        tipoElegido = null;
+        ligadasElegidas = todas;
+
+        if (numCartas == 7) {
+            // Escalera de 7: todas las cartas reales del mismo palo y sin huecos que no cubran los comodines
+            if (esEscaleraCompleta(mascara)) {
+                tipoElegido = Mano.TipoCierre.ESCALERA_7;
+                return;
+            }
+
+            // Dos grupos, uno de 3 y otro de 4 (no hay otra forma de ligar las 7 sin escalera de 7)
+            if (buscar(todas) == 0) {
+                tipoElegido = Mano.TipoCierre.DOS_GRUPOS_3_4;
+                return;
+            }
+
+            // Dos grupos de 3 (o escalera de 6) + la carta suelta más baja posible menor que 5
+            int mejorSuelta = -1;
+            for (int i = 0; i < numCartas; i++) {
+                int bit = bits[i];
+                if (bit < Mano.BIT_PRIMER_COMODIN && bit % Mano.CARTAS_POR_PALO < 4
+                        && (mejorSuelta < 0 || valores[i] < valores[mejorSuelta])
+                        && buscar(todas & ~(1 << i)) == 0) {
+                    mejorSuelta = i;
+                }
+            }
+            if (mejorSuelta >= 0) {
+                tipoElegido = Mano.TipoCierre.DOS_GRUPOS_3_MAS_CARTA_BAJA;
+                ligadasElegidas = todas & ~(1 << mejorSuelta);
+                return;
+            }
+        }
+
+        buscar(todas);
+    }
+
+    /**
+     * Decide sobre las cartas que pueden ligarse. Con sueltas fijas no hay escalera
+     * de 7 ni dos grupos de 3 y 4; solo se puede cerrar si la única suelta es una
+     * carta baja y las otras 6 quedan todas ligadas.
+     */
+    private void decidir(long mascara, long sueltas) {
+        preparar(mascara & ~sueltas);
+        puntosFijos = Mano.sumarPuntos(sueltas);
+        int todas = (1 << numCartas) - 1;
+        tipoElegido = null;
+        ligadasElegidas = todas;
+        boolean cartaBaja = Long.bitCount(mascara) == 7 && Long.bitCount(sueltas) == 1
+            && (sueltas & Mano.CARTAS_BAJAS) != 0;
+        if (buscar(todas) == 0 && cartaBaja) {
+            tipoElegido = Mano.TipoCierre.DOS_GRUPOS_3_MAS_CARTA_BAJA;
+        }
+    }
+
+    /**
+     * Carga las cartas de la máscara, los grupos candidatos y limpia la memoria
+     */
+    private void preparar(long mascara) {
+        numCartas = 0;
+        comodinesLocales = 0;
+        puntosFijos = 0;
+        for (long resto = mascara; resto != 0; resto &= resto - 1) {
+            int bit = Long.numberOfTrailingZeros(resto);
+            if (bit >= Mano.BIT_PRIMER_COMODIN) {
+                comodinesLocales |= 1 << numCartas;
+            }
+            bits[numCartas] = bit;
+            valores[numCartas] = Mano.sumarPuntos(1L << bit);
+            numCartas++;
+        }
+
+        int tamano = 1 << numCartas;
+        if (mejorPuntos.length < tamano) {
+            mejorPuntos = new int[tamano];
+            eleccion = new int[tamano];
+        }
+        Arrays.fill(mejorPuntos, 0, tamano, SIN_CALCULAR);
+
+        numCandidatos = 0;
+        int totalComodines = Integer.bitCount(comodinesLocales);
+        for (int pos = 0; pos < Mano.CARTAS_POR_PALO; pos++) {
+            agregarCandidatosNumero(locales(mascara & Mano.MASCARA_NUMERO[pos]), totalComodines);
+        }
+        for (int palo = 0; palo < Mano.MASCARA_PALO.length; palo++) {
+            agregarCandidatosEscalera(palo, locales(mascara & Mano.MASCARA_PALO[palo]), totalComodines);
+        }
+    }
+
+    /**
+     * Convierte una máscara de la mano en la máscara de índices locales
+     */
+    private int locales(long parte) {
+        int resultado = 0;
+        for (int i = 0; i < numCartas; i++) {
+            if ((parte & (1L << bits[i])) != 0) {
+                resultado |= 1 << i;
+            }
+        }
+        return resultado;
+    }
+
+    private void agregarCandidatosNumero(int reales, int totalComodines) {
+        if (Integer.bitCount(reales) < 2) {
+            return;
+        }
+        // Todo subconjunto de al menos 2 cartas reales, completado con comodines hasta 3 o 4
+        for (int sub = reales; sub != 0; sub = (sub - 1) & reales) {
+            int cantidad = Integer.bitCount(sub);
+            int minimo = Math.max(0, 3 - cantidad);
+            if (cantidad >= 2 && minimo <= totalComodines) {
+                agregarCandidato(sub, minimo, MAX_CARTAS_GRUPO_NUMERO - cantidad, -1);
+            }
+        }
+    }
+
+    private void agregarCandidatosEscalera(int palo, int reales, int totalComodines) {
+        if (Integer.bitCount(reales) < 2) {
+            return;
+        }
+        // Todo subconjunto de al menos 2 cartas reales; los comodines cubren los huecos
+        // y pueden alargar la escalera por los extremos
+        for (int sub = reales; sub != 0; sub = (sub - 1) & reales) {
+            int cantidad = Integer.bitCount(sub);
+            if (cantidad < 2) {
+                continue;
+            }
+            int primera = posicion(Integer.numberOfTrailingZeros(sub));
+            int ultima = posicion(31 - Integer.numberOfLeadingZeros(sub));
+            int minimo = Math.max(ultima - primera + 1, 3) - cantidad;
+            if (minimo <= totalComodines) {
+                agregarCandidato(sub, minimo, Mano.CARTAS_POR_PALO - cantidad, palo);
+            }
+        }
+    }
+
+    private void agregarCandidato(int reales, int minimo, int maximo, int palo) {
+        if (numCandidatos == candidatoReales.length) {
+            int nuevo = numCandidatos * 2;
+            candidatoReales = Arrays.copyOf(candidatoReales, nuevo);
+            candidatoMinComodines = Arrays.copyOf(candidatoMinComodines, nuevo);
+            candidatoMaxComodines = Arrays.copyOf(candidatoMaxComodines, nuevo);
+            candidatoPalo = Arrays.copyOf(candidatoPalo, nuevo);
+        }
+        candidatoReales[numCandidatos] = reales;
+        candidatoMinComodines[numCandidatos] = minimo;
+        candidatoMaxComodines[numCandidatos] = maximo;
+        candidatoPalo[numCandidatos] = palo;
+        numCandidatos++;
+    }
+
+    /**
+     * Posición del número (0-9) de la carta con índice local dado
+     */
+    private int posicion(int local) {
+        return bits[local] % Mano.CARTAS_POR_PALO;
+    }
+
+    /**
+     * Menor cantidad de puntos sin ligar posible para el subconjunto
+     */
+    private int buscar(int subconjunto) {
+        if (subconjunto == 0) {
+            return 0;
+        }
+        if (mejorPuntos[subconjunto] != SIN_CALCULAR) {
+            return mejorPuntos[subconjunto];
+        }
+
+        int menor = Integer.numberOfTrailingZeros(subconjunto);
+        int mejor;
+        int mejorEleccion = 0;
+        if ((comodinesLocales & (1 << menor)) != 0) {
+            // Solo quedan comodines: no pueden formar grupo solos
+            mejor = sumarValores(subconjunto);
+        } else {
+            // Dejar la carta más baja suelta
+            mejor = valores[menor] + buscar(subconjunto & ~(1 << menor));
+
+            // O ligarla en algún grupo candidato que la contenga
+            int comodines = subconjunto & comodinesLocales;
+            int disponibles = Integer.bitCount(comodines);
+            for (int c = 0; c < numCandidatos && mejor > 0; c++) {
+                int reales = candidatoReales[c];
+                if ((reales & (1 << menor)) == 0 || (reales & ~subconjunto) != 0
+                        || candidatoMinComodines[c] > disponibles) {
+                    continue;
+                }
+                int maximo = Math.min(candidatoMaxComodines[c], disponibles);
+                int usados = primerosBits(comodines, candidatoMinComodines[c]);
+                for (int k = candidatoMinComodines[c]; k <= maximo; k++) {
+                    if (k > candidatoMinComodines[c]) {
+                        usados |= Integer.lowestOneBit(comodines & ~usados);
+                    }
+                    int puntos = buscar(subconjunto & ~reales & ~usados);
+                    if (puntos < mejor) {
+                        mejor = puntos;
+                        mejorEleccion = (c << 5 | k) + 1;
+                    }
+                }
+            }
+        }
+
+        mejorPuntos[subconjunto] = mejor;
+        eleccion[subconjunto] = mejorEleccion;
+        return mejor;
+    }
+
+    /**
+     * Los primeros n bits encendidos de una máscara
+     */
+    private static int primerosBits(int mascara, int n) {
+        int resultado = 0;
+        for (int i = 0; i < n; i++) {
+            int bit = Integer.lowestOneBit(mascara & ~resultado);
+            resultado |= bit;
+        }
+        return resultado;
+    }
+
+    /**
+     * Reconstruye los grupos elegidos por la búsqueda y arma el resultado
+     */
+    private Mano.ResultadoCierre construirResultado(long mascara) {
+        if (tipoElegido == Mano.TipoCierre.ESCALERA_7) {
+            int numComodines = Long.bitCount(mascara & Mano.MASCARA_COMODINES);
+            List<List<Carta>> grupos = new ArrayList<>(1);
+            grupos.add(escaleraDe(mascara & ~Mano.MASCARA_COMODINES, numComodines, mascara));
+            return new Mano.ResultadoCierre(true, tipoElegido, numComodines, grupos, 0);
+        }
+        List<List<Carta>> grupos = new ArrayList<>();
+        int comodinesUsados = recorrerEleccion(grupos);
+        return new Mano.ResultadoCierre(tipoElegido != null, tipoElegido, comodinesUsados,
+            grupos, puntosElegidos());
+    }
+
+    /**
+     * Empaqueta el resultado decidido sin armar listas de cartas
+     */
+    private int construirCodigo(long mascara) {
+        if (tipoElegido == Mano.TipoCierre.ESCALERA_7) {
+            return TablaCierres.empaquetar(tipoElegido, Long.bitCount(mascara & Mano.MASCARA_COMODINES), 0);
+        }
+        return TablaCierres.empaquetar(tipoElegido, recorrerEleccion(null), puntosElegidos());
+    }
+
+    /**
+     * Puntos sin ligar del subconjunto elegido más la carta suelta del cierre con carta baja
+     */
+    private int puntosElegidos() {
+        int todas = (1 << numCartas) - 1;
+        return buscar(ligadasElegidas) + sumarValores(todas & ~ligadasElegidas) + puntosFijos;
+    }
+
+    /**
+     * Recorre las elecciones de la búsqueda para el subconjunto elegido,
+     * agregando los grupos a la lista (si no es null), y devuelve los comodines usados
+     */
+    private int recorrerEleccion(List<List<Carta>> grupos) {
+        int comodinesUsados = 0;
+        cartasEnGrupos = 0;
+        int resto = ligadasElegidas;
+        while (resto != 0) {
+            int elegido = eleccion[resto];
+            if (elegido == 0) {
+                int menor = Integer.numberOfTrailingZeros(resto);
+                if ((comodinesLocales & (1 << menor)) != 0) {
+                    break; // solo quedan comodines sueltos
+                }
+                resto &= ~(1 << menor);
+                continue;
+            }
+            int c = (elegido - 1) >>> 5;
+            int k = (elegido - 1) & 31;
+            int usados = primerosBits(resto & comodinesLocales, k);
+            if (grupos != null) {
+                long reales = global(candidatoReales[c]);
+                long comodines = global(usados);
+                if (candidatoPalo[c] >= 0) {
+                    grupos.add(escaleraDe(reales, k, comodines));
+                } else {
+                    grupos.add(Mano.cartasDe(reales | comodines));
+                }
+            }
+            comodinesUsados += k;
+            cartasEnGrupos |= candidatoReales[c] | usados;
+            resto &= ~candidatoReales[c] & ~usados;
+        }
+        return comodinesUsados;
+    }
+
+    private int sumarValores(int localMascara) {
+        int puntos = 0;
+        for (int resto = localMascara; resto != 0; resto &= resto - 1) {
+            puntos += valores[Integer.numberOfTrailingZeros(resto)];
+        }
+        return puntos;
+    }
+
+    private long global(int localMascara) {
+        long resultado = 0L;
+        for (int resto = localMascara; resto != 0; resto &= resto - 1) {
+            resultado |= 1L << bits[Integer.numberOfTrailingZeros(resto)];
+        }
+        return resultado;
+    }
+
+    /**
+     * Verifica si las 7 cartas forman una sola escalera (con comodines)
+     */
+    private static boolean esEscaleraCompleta(long mascara) {
+        long reales = mascara & ~Mano.MASCARA_COMODINES;
+        if (Long.bitCount(reales) < 2) {
+            return false;
+        }
+        int primera = Long.numberOfTrailingZeros(reales);
+        int ultima = 63 - Long.numberOfLeadingZeros(reales);
+        return primera / Mano.CARTAS_POR_PALO == ultima / Mano.CARTAS_POR_PALO
+            && ultima - primera + 1 <= Long.bitCount(mascara);
+    }
+
+    /**
+     * Arma una escalera en orden, con los comodines en los huecos y
+     * los sobrantes alargándola por arriba (o por abajo si no hay lugar)
+     */
+    private static List<Carta> escaleraDe(long reales, int numComodines, long comodines) {
+        int primeraBit = Long.numberOfTrailingZeros(reales);
+        int base = primeraBit - primeraBit % Mano.CARTAS_POR_PALO;
+        int primera = primeraBit - base;
+        int ultima = 63 - Long.numberOfLeadingZeros(reales) - base;
+        int sobrantes = numComodines - (ultima - primera + 1 - Long.bitCount(reales));
+        int arriba = Math.min(sobrantes, Mano.CARTAS_POR_PALO - 1 - ultima);
+        int desde = primera - (sobrantes - arriba);
+        int hasta = ultima + arriba;
+
+        List<Carta> escalera = new ArrayList<>(hasta - desde + 1);
+        long restoComodines = comodines & Mano.MASCARA_COMODINES;
+        for (int pos = desde; pos <= hasta; pos++) {
+            if ((reales & (1L << (base + pos))) != 0) {
+                escalera.add(Carta.porOrdinal(base + pos));
+            } else {
+                int bit = Long.numberOfTrailingZeros(restoComodines);
+                escalera.add(Carta.porOrdinal(bit));
+                restoComodines &= restoComodines - 1;
+            }
+        }
+        return escalera;
+    }
+}
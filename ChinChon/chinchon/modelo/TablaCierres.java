@@ -0,0 +1,161 @@
+package chinchon.modelo;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Clase TablaCierres - responde en O(1) si una mano de 7 cartas puede cerrar
+ *
+ * Lee la tabla que escribe GeneradorTablaCierres: una entrada de 2 bytes por
+ * cada mano de 7 cartas de la baraja de 40 cartas + 2 comodines, ordenadas por
+ * su rango combinatorio. El archivo se mapea en memoria, así que consultar una
+ * mano es calcular su rango y leer una posición.
+ *
+ * Formato de cada entrada: bits 0-6 puntos sin ligar, bits 7-8 tipo de cierre
+ * (0 si no puede cerrar, si no ordinal + 1), bits 9-10 comodines usados.
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public final class TablaCierres
+{
+    /** Propiedad del sistema con la ruta del archivo (por defecto "cierres.bin") */
+    public static final String PROPIEDAD_RUTA = "chinchon.tablaCierres";
+    public static final String RUTA_POR_DEFECTO = "cierres.bin";
+
+    static final int CARTAS = Mano.BIT_PRIMER_COMODIN + 2;
+    static final int TAMANO_MANO = 7;
+    static final long MASCARA_CUBIERTA = (1L << CARTAS) - 1;
+    static final int TAMANO_CABECERA = 16;
+    static final int MAGICO = 0x43484354; // "CHCT"
+    static final int VERSION = 1;
+
+    private static final int BITS_PUNTOS = 7;
+    private static final int MAX_PUNTOS = (1 << BITS_PUNTOS) - 1;
+    private static final long[][] BINOMIAL = new long[CARTAS + 1][TAMANO_MANO + 1];
+
+    static {
+        for (int n = 0; n <= CARTAS; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, TAMANO_MANO); k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    static final long COMBINACIONES = BINOMIAL[CARTAS][TAMANO_MANO];
+
+    private final MappedByteBuffer datos;
+
+    private TablaCierres(MappedByteBuffer datos) {
+        this.datos = datos;
+    }
+
+    /**
+     * Abre y mapea un archivo de tabla, validando su cabecera
+     */
+    public static TablaCierres abrir(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long esperado = TAMANO_CABECERA + 2 * COMBINACIONES;
+            if (canal.size() != esperado) {
+                throw new IOException("Tamaño de tabla inválido: " + canal.size() + " (se esperaba " + esperado + ")");
+            }
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, esperado);
+            datos.order(ByteOrder.LITTLE_ENDIAN);
+            if (datos.getInt(0) != MAGICO || datos.getInt(4) != VERSION
+                    || datos.getLong(8) != COMBINACIONES) {
+                throw new IOException("Cabecera de tabla inválida: " + ruta);
+            }
+            return new TablaCierres(datos);
+        }
+    }
+
+    /**
+     * Obtiene la tabla compartida, o null si el archivo no existe o no es válido
+     * (en ese caso Mano calcula el cierre con el solucionador)
+     */
+    public static TablaCierres getInstancia() {
+        return Instancia.TABLA;
+    }
+
+    private static class Instancia {
+        static final TablaCierres TABLA = cargarPorDefecto();
+
+        private static TablaCierres cargarPorDefecto() {
+            Path ruta = Paths.get(System.getProperty(PROPIEDAD_RUTA, RUTA_POR_DEFECTO));
+            if (!Files.isRegularFile(ruta)) {
+                return null;
+            }
+            try {
+                return abrir(ruta);
+            } catch (IOException e) {
+                System.err.println("No se pudo cargar la tabla de cierres: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Consulta el código de una mano, o -1 si la mano no está cubierta por la tabla
+     * (no tiene 7 cartas o tiene comodines más allá del segundo)
+     */
+    public int consultar(long mascara) {
+        if ((mascara & ~MASCARA_CUBIERTA) != 0 || Long.bitCount(mascara) != TAMANO_MANO) {
+            return -1;
+        }
+        return datos.getShort(TAMANO_CABECERA + (int) (2 * rango(mascara))) & 0xFFFF;
+    }
+
+    /**
+     * Rango combinatorio (orden colexicográfico) de una mano de 7 cartas
+     */
+    static long rango(long mascara) {
+        long rango = 0;
+        int i = 1;
+        for (long resto = mascara; resto != 0; resto &= resto - 1) {
+            rango += BINOMIAL[Long.numberOfTrailingZeros(resto)][i++];
+        }
+        return rango;
+    }
+
+    /**
+     * Mano de 7 cartas con el rango combinatorio dado (inversa de rango)
+     */
+    static long mascaraDeRango(long rango) {
+        long mascara = 0L;
+        int bit = CARTAS;
+        for (int i = TAMANO_MANO; i >= 1; i--) {
+            do {
+                bit--;
+            } while (BINOMIAL[bit][i] > rango);
+            mascara |= 1L << bit;
+            rango -= BINOMIAL[bit][i];
+        }
+        return mascara;
+    }
+
+    static int empaquetar(Mano.TipoCierre tipo, int comodines, int puntos) {
+        int codigoTipo = tipo == null ? 0 : tipo.ordinal() + 1;
+        return Math.min(puntos, MAX_PUNTOS) | codigoTipo << BITS_PUNTOS
+            | Math.min(comodines, 3) << (BITS_PUNTOS + 2);
+    }
+
+    static Mano.TipoCierre tipoDe(int codigo) {
+        int codigoTipo = (codigo >>> BITS_PUNTOS) & 3;
+        return codigoTipo == 0 ? null : Mano.TipoCierre.values()[codigoTipo - 1];
+    }
+
+    static int comodinesDe(int codigo) {
+        return (codigo >>> (BITS_PUNTOS + 2)) & 3;
+    }
+
+    static int puntosDe(int codigo) {
+        return codigo & MAX_PUNTOS;
+    }
+}
@@ -0,0 +1,50 @@
+package chinchon.observador;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Clase Evento - aviso de cambio con los tipos de cambio que ocurrieron.
+ * Una operación del modelo que produce varios cambios (por ejemplo, un
+ * descarte que cierra la mano) genera un solo evento con todos sus tipos.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public final class Evento {
+    private final Set<TipoEvento> tipos;
+    
+    public Evento(Set<TipoEvento> tipos) {
+        this.tipos = tipos.isEmpty()
+            ? Collections.emptySet()
+            : Collections.unmodifiableSet(EnumSet.copyOf(tipos));
+    }
+    
+    public Evento(TipoEvento tipo) {
+        this(EnumSet.of(tipo));
+    }
+    
+    /**
+     * Tipos de cambio incluidos (vacío si no se sabe qué cambió)
+     */
+    public Set<TipoEvento> getTipos() {
+        return tipos;
+    }
+    
+    public boolean contiene(TipoEvento tipo) {
+        return tipos.contains(tipo);
+    }
+    
+    /**
+     * Indica si el evento trae únicamente el tipo indicado
+     */
+    public boolean esSolo(TipoEvento tipo) {
+        return tipos.size() == 1 && tipos.contains(tipo);
+    }
+    
+    @Override
+    public String toString() {
+        return "Evento" + tipos;
+    }
+}
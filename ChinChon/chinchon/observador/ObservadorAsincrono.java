@@ -0,0 +1,105 @@
+package chinchon.observador;
+
+import java.util.EnumSet;
+import java.util.concurrent.Executor;
+import java.util.function.UnaryOperator;
+
+/**
+ * Clase ObservadorAsincrono - envuelve a un observador lento para que reciba
+ * los avisos en otro hilo (el del Executor) y no frene al hilo del juego.
+ * 
+ * Los avisos se entregan de a uno y en orden. Si llegan varios mientras el
+ * observador todavía procesa el anterior, se juntan en un solo evento con
+ * todos los tipos pendientes.
+ * 
+ * El observador envuelto no recibe el modelo en vivo, que el hilo del juego
+ * sigue cambiando, sino una copia tomada en el hilo del juego al momento del
+ * aviso (la última, si se juntaron varios). Para un Juego, por ejemplo:
+ * 
+ *   new ObservadorAsincrono(vista, ejecutor, sujeto -> ((Juego) sujeto).fork())
+ * 
+ * La copia es solo para leer: no tiene observadores y nadie más la toca.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class ObservadorAsincrono implements Observer {
+    private final Observer destino;
+    private final Executor ejecutor;
+    private final UnaryOperator<Observable> copiar;
+    private final EnumSet<TipoEvento> pendientes = EnumSet.noneOf(TipoEvento.class);
+    private Observable sujetoPendiente;
+    private boolean hayPendiente;
+    private boolean entregando;
+    
+    /**
+     * @param copiar arma, en el hilo que avisa, la copia del sujeto que recibe el destino
+     */
+    public ObservadorAsincrono(Observer destino, Executor ejecutor, UnaryOperator<Observable> copiar) {
+        this.destino = destino;
+        this.ejecutor = ejecutor;
+        this.copiar = copiar;
+    }
+    
+    @Override
+    public void actualizar(Observable sujeto) {
+        actualizar(sujeto, new Evento(EnumSet.noneOf(TipoEvento.class)));
+    }
+    
+    @Override
+    public void actualizar(Observable sujeto, Evento evento) {
+        Observable copia = copiar.apply(sujeto); // antes de que el juego siga
+        boolean programar;
+        synchronized (this) {
+            pendientes.addAll(evento.getTipos());
+            sujetoPendiente = copia;
+            hayPendiente = true;
+            programar = !entregando;
+            entregando = true;
+        }
+        if (programar) {
+            ejecutor.execute(this::entregar);
+        }
+    }
+    
+    /**
+     * Entrega los eventos acumulados hasta que no quede ninguno
+     */
+    private void entregar() {
+        while (true) {
+            Observable sujeto;
+            Evento evento;
+            synchronized (this) {
+                if (!hayPendiente) {
+                    entregando = false;
+                    return;
+                }
+                sujeto = sujetoPendiente;
+                evento = new Evento(pendientes);
+                pendientes.clear();
+                hayPendiente = false;
+            }
+            try {
+                destino.actualizar(sujeto, evento);
+            } catch (RuntimeException e) {
+                // Un error del observador no debe dejar trabados los avisos siguientes
+                boolean reprogramar;
+                synchronized (this) {
+                    reprogramar = hayPendiente;
+                    entregando = reprogramar;
+                }
+                if (reprogramar) {
+                    ejecutor.execute(this::entregar);
+                }
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Observador envuelto
+     */
+    public Observer getDestino() {
+        return destino;
+    }
+}
@@ -8,5 +8,12 @@ package chinchon.observador;
  */
 public interface Observer {
     void actualizar(Observable sujeto);
+    
+    /**
+     * Aviso con el detalle de lo que cambió; por defecto se trata como un
+     * cambio general para los observadores que no distinguen eventos
+     */
+    default void actualizar(Observable sujeto, Evento evento) {
+        actualizar(sujeto);
+    }
 }
-
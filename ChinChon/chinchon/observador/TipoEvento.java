@@ -0,0 +1,17 @@
+package chinchon.observador;
+
+/**
+ * Enum TipoEvento - qué cambió en el modelo
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public enum TipoEvento {
+    CARTA_ROBADA,
+    CARTA_DESCARTADA,
+    MANO_CERRADA,
+    GRUPOS_COLOCADOS,
+    PUNTOS_ACTUALIZADOS,
+    REENGANCHE,
+    MANO_NUEVA
+}
@@ -0,0 +1,88 @@
+package chinchon.registro;
+
+/**
+ * Enumeración ColumnaMano - columnas de la exportación por manos (una fila
+ * por mano jugada, ver ExportadorColumnas y LectorColumnas)
+ * 
+ * Cada columna tiene la codificación con la que se guarda:
+ * - PLANO: 8 bytes por fila (máscaras de cartas y semillas, que no se comprimen)
+ * - DELTA: la diferencia con la fila anterior en zigzag de largo variable
+ *   (contadores y puntos acumulados: casi siempre 1 byte)
+ * - DICCIONARIO: los valores distintos del bloque y un byte por fila con el
+ *   índice (pocos valores posibles); si hay más de 255 se guarda como DELTA
+ * - BITS y BYTES: columnas con una lista por fila (el largo de cada una en
+ *   largo variable y después los elementos, de a un bit o de a un byte)
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public enum ColumnaMano {
+    /** Número de partida dentro del archivo */
+    PARTIDA(Codificacion.DELTA),
+    /** Número de mano dentro de la partida */
+    MANO(Codificacion.DELTA),
+    /** Semilla con la que se barajó la mano */
+    SEMILLA(Codificacion.PLANO),
+    /** Jugadores que recibieron cartas */
+    JUGADORES(Codificacion.DICCIONARIO),
+    /** Máscara (ver Mano) de las 7 cartas repartidas a cada asiento, 0 si no jugó */
+    REPARTO_1(Codificacion.PLANO),
+    REPARTO_2(Codificacion.PLANO),
+    REPARTO_3(Codificacion.PLANO),
+    REPARTO_4(Codificacion.PLANO),
+    /** De dónde robó cada turno, en orden: 0 del mazo, 1 del pozo */
+    ROBOS(Codificacion.BITS),
+    /** Ordinal de la carta descartada en cada turno, en orden */
+    DESCARTES(Codificacion.BYTES),
+    /** Ordinal del TipoCierre con que se cerró la mano, -1 si no se cerró */
+    TIPO_CIERRE(Codificacion.DICCIONARIO),
+    /** Comodines usados en el cierre */
+    COMODINES(Codificacion.DICCIONARIO),
+    /** Asiento (desde 0) del que cerró, -1 si nadie */
+    CERRO(Codificacion.DICCIONARIO),
+    /** Puntos de cada asiento después de calcular los de la mano */
+    PUNTOS_1(Codificacion.DELTA),
+    PUNTOS_2(Codificacion.DELTA),
+    PUNTOS_3(Codificacion.DELTA),
+    PUNTOS_4(Codificacion.DELTA);
+    
+    /** Asientos con columnas propias */
+    public static final int MAX_JUGADORES = 4;
+    
+    private static final ColumnaMano[] COLUMNAS = values();
+    
+    public enum Codificacion {
+        PLANO, DELTA, DICCIONARIO, BITS, BYTES
+    }
+    
+    private final Codificacion codificacion;
+    
+    ColumnaMano(Codificacion codificacion) {
+        this.codificacion = codificacion;
+    }
+    
+    public Codificacion getCodificacion() {
+        return codificacion;
+    }
+    
+    /**
+     * Indica si la columna guarda una lista por fila en vez de un número
+     */
+    public boolean esLista() {
+        return codificacion == Codificacion.BITS || codificacion == Codificacion.BYTES;
+    }
+    
+    /**
+     * Columna del reparto del asiento dado (desde 0)
+     */
+    public static ColumnaMano reparto(int asiento) {
+        return COLUMNAS[REPARTO_1.ordinal() + asiento];
+    }
+    
+    /**
+     * Columna de los puntos del asiento dado (desde 0)
+     */
+    public static ColumnaMano puntos(int asiento) {
+        return COLUMNAS[PUNTOS_1.ordinal() + asiento];
+    }
+}
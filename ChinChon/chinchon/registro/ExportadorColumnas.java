@@ -0,0 +1,382 @@
+package chinchon.registro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+import chinchon.modelo.OyenteAcciones;
+
+/**
+ * Clase ExportadorColumnas - exporta las partidas a un archivo por columnas
+ * (ver FormatoColumnas y ColumnaMano), una fila por mano, para analizar
+ * muchas manos sin pasar por texto
+ * 
+ * Escucha las acciones del Juego como RegistroAcciones y arma la fila de la
+ * mano en curso directamente en el bloque de columnas. Los bloques llenos
+ * los codifica y escribe un hilo propio; hay BLOQUES_EN_VUELO bloques en
+ * total, así que si el disco no da abasto el hilo del juego espera a que se
+ * libere uno en vez de acumular memoria. No es seguro usar un mismo
+ * exportador desde varios hilos: se usa uno por hilo (o por archivo).
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class ExportadorColumnas implements OyenteAcciones, Closeable {
+    private static final int BLOQUES_EN_VUELO = 4;
+    private static final ColumnaMano[] COLUMNAS = ColumnaMano.values();
+    private static final Bloque FIN = new Bloque();
+    
+    private final FileChannel canal;
+    private final BlockingQueue<Bloque> llenos = new ArrayBlockingQueue<>(BLOQUES_EN_VUELO);
+    private final BlockingQueue<Bloque> libres = new ArrayBlockingQueue<>(BLOQUES_EN_VUELO);
+    private final Thread escritor;
+    private volatile IOException error;
+    
+    private Bloque bloque;
+    private Juego juego; // partida que se está exportando
+    private long partida = -1;
+    private int mano;
+    private long semilla;
+    private boolean repartoPendiente; // se repartió pero las cartas se leen en la primera acción
+    private boolean filaAbierta;
+    
+    /**
+     * Crea (o reemplaza) el archivo, escribe la cabecera y arranca el hilo escritor
+     * (daemon: si no se llama a close no traba la salida de la JVM, pero lo que
+     * quedó sin escribir se pierde)
+     */
+    public ExportadorColumnas(Path archivo) throws IOException {
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer cabecera = ByteBuffer.allocate(FormatoColumnas.TAMANIO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        cabecera.putInt(FormatoColumnas.MAGICO);
+        cabecera.put(FormatoColumnas.VERSION);
+        cabecera.flip();
+        while (cabecera.hasRemaining()) {
+            canal.write(cabecera);
+        }
+        bloque = new Bloque();
+        for (int i = 1; i < BLOQUES_EN_VUELO; i++) {
+            libres.add(new Bloque());
+        }
+        escritor = new Thread(this::escribirBloques, "exportador-columnas");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+    
+    /**
+     * Empieza a exportar una partida recién creada (antes de su primera jugada)
+     */
+    public void grabar(Juego juego) {
+        if (this.juego != null) {
+            terminar();
+        }
+        this.juego = juego;
+        partida++;
+        mano = 0;
+        // El primer reparto ocurrió en el constructor
+        semilla = juego.getSemillaMano();
+        abrirFila();
+        juego.agregarOyenteAcciones(this);
+    }
+    
+    /**
+     * Termina la partida en curso: cierra la fila de la mano que estaba jugándose
+     * (sin cierre si la partida se cortó antes)
+     */
+    public void terminar() {
+        if (juego == null) {
+            return;
+        }
+        repartoPendiente = false; // una mano repartida sin jugar no es una fila
+        cerrarFila();
+        juego.quitarOyenteAcciones(this);
+        juego = null;
+    }
+    
+    @Override
+    public void alRepartir(long semilla) {
+        // Se avisa antes de repartir: las cartas se leen en la acción siguiente
+        cerrarFila();
+        this.semilla = semilla;
+        repartoPendiente = true;
+    }
+    
+    @Override
+    public void alReciclarPozo(long semilla) {
+    }
+    
+    @Override
+    public void alTomarDelMazo() {
+        agregarRobo(0);
+    }
+    
+    @Override
+    public void alTomarDelPozo() {
+        agregarRobo(1);
+    }
+    
+    @Override
+    public void alDescartar(int indiceCarta) {
+        asegurarFila();
+        // Se avisa antes de retirar la carta: el índice es sobre la mano ordenada
+        long resto = juego.getJugadorActual().getMano().getMascara();
+        for (int i = 0; i < indiceCarta; i++) {
+            resto &= resto - 1;
+        }
+        bloque.agregar(ColumnaMano.DESCARTES, (byte) Long.numberOfTrailingZeros(resto));
+    }
+    
+    @Override
+    public void alColocarGrupos() {
+        // El primero que coloca termina la mano; los puntos ya están calculados
+        cerrarFila();
+    }
+    
+    @Override
+    public void alReenganchar() {
+        asegurarFila();
+    }
+    
+    private void agregarRobo(int origen) {
+        asegurarFila();
+        bloque.agregar(ColumnaMano.ROBOS, (byte) origen);
+    }
+    
+    private void asegurarFila() {
+        if (repartoPendiente) {
+            repartoPendiente = false;
+            mano++;
+            abrirFila();
+        }
+    }
+    
+    /**
+     * Empieza la fila de la mano recién repartida con las cartas de cada asiento
+     */
+    private void abrirFila() {
+        int fila = bloque.filas;
+        bloque.valores[ColumnaMano.PARTIDA.ordinal()][fila] = partida;
+        bloque.valores[ColumnaMano.MANO.ordinal()][fila] = mano;
+        bloque.valores[ColumnaMano.SEMILLA.ordinal()][fila] = semilla;
+        List<Jugador> jugadores = juego.getJugadores();
+        int repartidos = 0;
+        for (int asiento = 0; asiento < ColumnaMano.MAX_JUGADORES; asiento++) {
+            long cartas = 0L;
+            if (asiento < jugadores.size() && !jugadores.get(asiento).estaEliminado()) {
+                cartas = jugadores.get(asiento).getMano().getMascara();
+                repartidos++;
+            }
+            bloque.valores[ColumnaMano.reparto(asiento).ordinal()][fila] = cartas;
+        }
+        bloque.valores[ColumnaMano.JUGADORES.ordinal()][fila] = repartidos;
+        filaAbierta = true;
+    }
+    
+    /**
+     * Completa la fila abierta con el cierre y los puntos, y la pasa al bloque
+     */
+    private void cerrarFila() {
+        asegurarFila();
+        if (!filaAbierta) {
+            return;
+        }
+        filaAbierta = false;
+        int fila = bloque.filas;
+        Mano.ResultadoCierre cierre = juego.isManoCerrada() ? juego.getUltimoCierre() : null;
+        List<Jugador> jugadores = juego.getJugadores();
+        bloque.valores[ColumnaMano.TIPO_CIERRE.ordinal()][fila] = cierre == null ? -1 : cierre.getTipo().ordinal();
+        bloque.valores[ColumnaMano.COMODINES.ordinal()][fila] = cierre == null ? 0 : cierre.getNumComodines();
+        bloque.valores[ColumnaMano.CERRO.ordinal()][fila] = cierre == null ? -1 : jugadores.indexOf(juego.getJugadorQueCerro());
+        for (int asiento = 0; asiento < ColumnaMano.MAX_JUGADORES; asiento++) {
+            int puntos = asiento < jugadores.size() ? jugadores.get(asiento).getPuntos() : 0;
+            bloque.valores[ColumnaMano.puntos(asiento).ordinal()][fila] = puntos;
+        }
+        bloque.filas++;
+        if (bloque.filas == FormatoColumnas.FILAS_POR_BLOQUE) {
+            enviar();
+        }
+    }
+    
+    /**
+     * Pasa el bloque al hilo escritor y toma uno libre (esperando si no hay)
+     */
+    private void enviar() {
+        verificarError();
+        try {
+            llenos.put(bloque);
+            bloque = libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando al escritor de columnas", e);
+        }
+    }
+    
+    private void verificarError() {
+        if (error != null) {
+            throw new UncheckedIOException("No se pudo escribir la exportación", error);
+        }
+    }
+    
+    /**
+     * Hilo escritor: codifica y escribe cada bloque lleno y lo devuelve a los libres.
+     * Después de un error sigue devolviendo los bloques para no trabar al juego.
+     */
+    private void escribirBloques() {
+        ByteBuffer salida = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+            Bloque lleno;
+            try {
+                lleno = llenos.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (lleno == FIN) {
+                return;
+            }
+            if (error == null) {
+                try {
+                    if (salida.capacity() < lleno.tamanioMaximo()) {
+                        salida = ByteBuffer.allocateDirect(lleno.tamanioMaximo()).order(ByteOrder.LITTLE_ENDIAN);
+                    }
+                    salida.clear();
+                    lleno.codificar(salida);
+                    salida.flip();
+                    while (salida.hasRemaining()) {
+                        canal.write(salida);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+            lleno.vaciar();
+            libres.add(lleno);
+        }
+    }
+    
+    /**
+     * Termina la partida en curso, espera a que se escriba todo y cierra el archivo.
+     * El hilo escritor se detiene aunque la escritura haya fallado.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            terminar();
+            if (bloque.filas > 0 && error == null) {
+                enviar();
+            }
+        } finally {
+            detenerEscritor();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+    
+    /**
+     * Avisa al hilo escritor que no hay más bloques, lo espera y cierra el archivo
+     */
+    private void detenerEscritor() throws IOException {
+        try {
+            llenos.put(FIN);
+            escritor.join();
+        } catch (InterruptedException e) {
+            escritor.interrupt();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando al escritor de columnas", e);
+        } finally {
+            canal.close();
+        }
+    }
+    
+    /**
+     * Hasta FILAS_POR_BLOQUE filas guardadas por columna, en arreglos primitivos
+     */
+    private static class Bloque {
+        final long[][] valores = new long[COLUMNAS.length][];
+        final int[][] largos = new int[COLUMNAS.length][];
+        final byte[][] elementos = new byte[COLUMNAS.length][];
+        final int[] usados = new int[COLUMNAS.length];
+        int filas;
+        
+        Bloque() {
+            for (ColumnaMano columna : COLUMNAS) {
+                if (columna.esLista()) {
+                    largos[columna.ordinal()] = new int[FormatoColumnas.FILAS_POR_BLOQUE];
+                    elementos[columna.ordinal()] = new byte[16 * FormatoColumnas.FILAS_POR_BLOQUE];
+                } else {
+                    valores[columna.ordinal()] = new long[FormatoColumnas.FILAS_POR_BLOQUE];
+                }
+            }
+        }
+        
+        /**
+         * Agrega un elemento a la lista de la fila en curso
+         */
+        void agregar(ColumnaMano columna, byte elemento) {
+            int c = columna.ordinal();
+            if (usados[c] == elementos[c].length) {
+                elementos[c] = Arrays.copyOf(elementos[c], 2 * elementos[c].length);
+            }
+            elementos[c][usados[c]++] = elemento;
+            largos[c][filas]++;
+        }
+        
+        /**
+         * Cota de los bytes que ocupa codificado
+         */
+        int tamanioMaximo() {
+            int tamanio = FormatoColumnas.TAMANIO_CABECERA_BLOQUE;
+            for (ColumnaMano columna : COLUMNAS) {
+                tamanio += FormatoColumnas.TAMANIO_CABECERA_COLUMNA + 1;
+                if (columna.esLista()) {
+                    tamanio += 5 * filas + usados[columna.ordinal()];
+                } else {
+                    tamanio += 10 * (filas + FormatoColumnas.MAX_DICCIONARIO);
+                }
+            }
+            return tamanio;
+        }
+        
+        void codificar(ByteBuffer salida) {
+            salida.putInt(filas);
+            salida.put((byte) COLUMNAS.length);
+            for (ColumnaMano columna : COLUMNAS) {
+                int c = columna.ordinal();
+                int inicio = salida.position();
+                salida.put((byte) c);
+                salida.put((byte) 0);
+                salida.putInt(0);
+                ColumnaMano.Codificacion usada = columna.getCodificacion();
+                if (columna.esLista()) {
+                    FormatoColumnas.codificarLista(usada, largos[c], elementos[c], filas, salida);
+                } else {
+                    usada = FormatoColumnas.codificarNumeros(usada, valores[c], filas, salida);
+                }
+                salida.put(inicio + 1, (byte) usada.ordinal());
+                salida.putInt(inicio + 2, salida.position() - inicio - FormatoColumnas.TAMANIO_CABECERA_COLUMNA);
+            }
+        }
+        
+        void vaciar() {
+            for (ColumnaMano columna : COLUMNAS) {
+                if (columna.esLista()) {
+                    Arrays.fill(largos[columna.ordinal()], 0, filas, 0);
+                    usados[columna.ordinal()] = 0;
+                }
+            }
+            filas = 0;
+        }
+    }
+}
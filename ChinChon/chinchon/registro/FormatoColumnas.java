@@ -0,0 +1,203 @@
+package chinchon.registro;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Clase FormatoColumnas - formato binario de la exportación por columnas y
+ * las codificaciones de cada columna (ver ColumnaMano)
+ * 
+ * El archivo empieza con MAGICO (int) y VERSION (byte); después van los
+ * bloques, de hasta FILAS_POR_BLOQUE filas cada uno. Todo en little-endian.
+ * 
+ *   BLOQUE      filas (int), columnas (byte), y por cada columna:
+ *   COLUMNA     ordinal (byte), codificación usada (byte), largo (int), datos
+ * 
+ * El largo de cada columna permite saltearla sin decodificarla.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class FormatoColumnas {
+    static final int MAGICO = 0x4F434843; // "CHCO"
+    static final byte VERSION = 1;
+    static final int TAMANIO_CABECERA = 5;
+    static final int TAMANIO_CABECERA_BLOQUE = 5;
+    static final int TAMANIO_CABECERA_COLUMNA = 6;
+    static final int FILAS_POR_BLOQUE = 4096;
+    static final int MAX_DICCIONARIO = 255;
+    
+    private static final ColumnaMano.Codificacion[] CODIFICACIONES = ColumnaMano.Codificacion.values();
+    
+    private FormatoColumnas() {
+    }
+    
+    static ColumnaMano.Codificacion codificacion(byte codigo) {
+        return CODIFICACIONES[codigo];
+    }
+    
+    /**
+     * Escribe las primeras filas de una columna de números con su codificación
+     * (o DELTA si un diccionario no alcanza); devuelve la codificación usada
+     */
+    static ColumnaMano.Codificacion codificarNumeros(ColumnaMano.Codificacion codificacion, long[] valores,
+                                                     int filas, ByteBuffer salida) {
+        if (codificacion == ColumnaMano.Codificacion.DICCIONARIO && codificarDiccionario(valores, filas, salida)) {
+            return codificacion;
+        }
+        if (codificacion == ColumnaMano.Codificacion.PLANO) {
+            for (int i = 0; i < filas; i++) {
+                salida.putLong(valores[i]);
+            }
+            return codificacion;
+        }
+        long anterior = 0;
+        for (int i = 0; i < filas; i++) {
+            escribirVariable(salida, zigzag(valores[i] - anterior));
+            anterior = valores[i];
+        }
+        return ColumnaMano.Codificacion.DELTA;
+    }
+    
+    /**
+     * Diccionario: cantidad de valores, los valores (zigzag de largo variable)
+     * y el índice de cada fila; false si hay demasiados valores distintos
+     */
+    private static boolean codificarDiccionario(long[] valores, int filas, ByteBuffer salida) {
+        long[] distintos = new long[MAX_DICCIONARIO];
+        int cantidad = 0;
+        byte[] indices = new byte[filas];
+        for (int i = 0; i < filas; i++) {
+            int j = 0;
+            while (j < cantidad && distintos[j] != valores[i]) {
+                j++;
+            }
+            if (j == cantidad) {
+                if (cantidad == MAX_DICCIONARIO) {
+                    return false;
+                }
+                distintos[cantidad++] = valores[i];
+            }
+            indices[i] = (byte) j;
+        }
+        salida.put((byte) cantidad);
+        for (int j = 0; j < cantidad; j++) {
+            escribirVariable(salida, zigzag(distintos[j]));
+        }
+        salida.put(indices);
+        return true;
+    }
+    
+    /**
+     * Lee las filas de una columna de números y las deja en destino desde la posición dada
+     */
+    static void decodificarNumeros(ByteBuffer datos, ColumnaMano.Codificacion codificacion, int filas,
+                                   long[] destino, int desde) {
+        switch (codificacion) {
+            case PLANO:
+                for (int i = 0; i < filas; i++) {
+                    destino[desde + i] = datos.getLong();
+                }
+                break;
+            case DELTA:
+                long valor = 0;
+                for (int i = 0; i < filas; i++) {
+                    valor += deszigzag(leerVariable(datos));
+                    destino[desde + i] = valor;
+                }
+                break;
+            case DICCIONARIO:
+                long[] distintos = new long[datos.get() & 0xFF];
+                for (int j = 0; j < distintos.length; j++) {
+                    distintos[j] = deszigzag(leerVariable(datos));
+                }
+                for (int i = 0; i < filas; i++) {
+                    destino[desde + i] = distintos[datos.get() & 0xFF];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("No es una codificación de números: " + codificacion);
+        }
+    }
+    
+    /**
+     * Escribe una columna de listas: el largo de cada fila y después los
+     * elementos, de a un bit (BITS) o de a un byte (BYTES)
+     */
+    static void codificarLista(ColumnaMano.Codificacion codificacion, int[] largos, byte[] elementos,
+                               int filas, ByteBuffer salida) {
+        int total = 0;
+        for (int i = 0; i < filas; i++) {
+            escribirVariable(salida, largos[i]);
+            total += largos[i];
+        }
+        if (codificacion == ColumnaMano.Codificacion.BYTES) {
+            salida.put(elementos, 0, total);
+            return;
+        }
+        for (int i = 0; i < total; i += 8) {
+            int octeto = 0;
+            for (int b = 0; b < 8 && i + b < total; b++) {
+                octeto |= (elementos[i + b] & 1) << b;
+            }
+            salida.put((byte) octeto);
+        }
+    }
+    
+    /**
+     * Lee una columna de listas: agrega el largo de cada fila a largos desde
+     * la posición dada y sus elementos (un byte cada uno) al final de elementos
+     *
+     * @return el arreglo de elementos, agrandado si hizo falta
+     */
+    static byte[] decodificarLista(ByteBuffer datos, ColumnaMano.Codificacion codificacion, int filas,
+                                   int[] largos, int desde, byte[] elementos, int usados) {
+        int total = 0;
+        for (int i = 0; i < filas; i++) {
+            largos[desde + i] = (int) leerVariable(datos);
+            total += largos[desde + i];
+        }
+        if (usados + total > elementos.length) {
+            elementos = Arrays.copyOf(elementos, Math.max(usados + total, 2 * elementos.length));
+        }
+        if (codificacion == ColumnaMano.Codificacion.BYTES) {
+            datos.get(elementos, usados, total);
+            return elementos;
+        }
+        for (int i = 0; i < total; i += 8) {
+            int octeto = datos.get();
+            for (int b = 0; b < 8 && i + b < total; b++) {
+                elementos[usados + i + b] = (byte) (octeto >>> b & 1);
+            }
+        }
+        return elementos;
+    }
+    
+    static void escribirVariable(ByteBuffer salida, long valor) {
+        while ((valor & ~0x7FL) != 0) {
+            salida.put((byte) (valor & 0x7F | 0x80));
+            valor >>>= 7;
+        }
+        salida.put((byte) valor);
+    }
+    
+    static long leerVariable(ByteBuffer datos) {
+        long valor = 0;
+        int desplazamiento = 0;
+        byte b;
+        do {
+            b = datos.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while (b < 0);
+        return valor;
+    }
+    
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+    
+    private static long deszigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+}
@@ -0,0 +1,37 @@
+package chinchon.registro;
+
+/**
+ * Clase FormatoRegistro - constantes del formato binario de los registros de acciones
+ * 
+ * El archivo empieza con MAGICO (int) y VERSION (byte); después van las
+ * partidas una detrás de otra. Todo en little-endian.
+ * 
+ *   PARTIDA     jugadores (byte), comodines (byte)
+ *   REPARTO     semilla (long)                         9 bytes
+ *   RECICLAJE   semilla (long), después del MAZO que lo provocó
+ *   MAZO, POZO, COLOCAR, REENGANCHE                    1 byte
+ *   DESCARTE | índice (0-15)                           1 byte
+ *   FIN         puntos de cada jugador (short)
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class FormatoRegistro {
+    static final int MAGICO = 0x474C4843; // "CHLG"
+    static final byte VERSION = 2; // la 2 agrega RECICLAJE
+    static final int TAMANIO_CABECERA = 5;
+    
+    static final byte PARTIDA = 0x01;
+    static final byte REPARTO = 0x02;
+    static final byte MAZO = 0x03;
+    static final byte POZO = 0x04;
+    static final byte COLOCAR = 0x05;
+    static final byte REENGANCHE = 0x06;
+    static final byte FIN = 0x07;
+    static final byte RECICLAJE = 0x08;
+    static final byte DESCARTE = 0x10; // los 4 bits bajos llevan el índice
+    static final int MAX_INDICE_DESCARTE = 0x0F;
+    
+    private FormatoRegistro() {
+    }
+}
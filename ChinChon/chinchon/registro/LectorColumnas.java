@@ -0,0 +1,207 @@
+package chinchon.registro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Clase LectorColumnas - lee los archivos de ExportadorColumnas de a una
+ * columna: al abrirlo solo recorre las cabeceras de los bloques, y para
+ * leer una columna decodifica esa y saltea las demás sin tocarlas
+ * 
+ * Uso: java chinchon.registro.LectorColumnas archivo [columna...]
+ * (sin columnas muestra lo que ocupa cada una)
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class LectorColumnas {
+    private static final ColumnaMano[] COLUMNAS = ColumnaMano.values();
+    
+    private final ByteBuffer datos;
+    private final List<int[]> ubicaciones = new ArrayList<>(); // por bloque: posición de cada columna
+    private final List<Integer> filasPorBloque = new ArrayList<>();
+    private final long[] bytesPorColumna = new long[COLUMNAS.length];
+    private int filas;
+    
+    /**
+     * Abre el archivo (hasta 2 GB) mapeándolo en memoria y ubica sus bloques
+     */
+    public LectorColumnas(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size())
+                         .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (datos.remaining() < FormatoColumnas.TAMANIO_CABECERA
+                || datos.getInt(0) != FormatoColumnas.MAGICO
+                || datos.get(4) > FormatoColumnas.VERSION) {
+            throw new IOException("No es una exportación por columnas válida: " + archivo);
+        }
+        int posicion = FormatoColumnas.TAMANIO_CABECERA;
+        while (posicion < datos.limit()) {
+            int filasBloque = datos.getInt(posicion);
+            int columnas = datos.get(posicion + 4);
+            posicion += FormatoColumnas.TAMANIO_CABECERA_BLOQUE;
+            int[] ubicacion = new int[COLUMNAS.length];
+            for (int i = 0; i < columnas; i++) {
+                int columna = datos.get(posicion);
+                int largo = datos.getInt(posicion + 2);
+                if (columna < COLUMNAS.length) {
+                    ubicacion[columna] = posicion;
+                    bytesPorColumna[columna] += largo;
+                }
+                posicion += FormatoColumnas.TAMANIO_CABECERA_COLUMNA + largo;
+            }
+            if (posicion > datos.limit()) {
+                throw new IOException("Exportación truncada: " + archivo);
+            }
+            ubicaciones.add(ubicacion);
+            filasPorBloque.add(filasBloque);
+            filas += filasBloque;
+        }
+    }
+    
+    /**
+     * Cantidad de filas (manos) del archivo
+     */
+    public int getFilas() {
+        return filas;
+    }
+    
+    /**
+     * Bytes que ocupa la columna en el archivo, sin las cabeceras
+     */
+    public long getBytes(ColumnaMano columna) {
+        return bytesPorColumna[columna.ordinal()];
+    }
+    
+    /**
+     * Valores de una columna de números, uno por fila
+     */
+    public long[] leer(ColumnaMano columna) {
+        if (columna.esLista()) {
+            throw new IllegalArgumentException("La columna " + columna + " es de listas");
+        }
+        long[] valores = new long[filas];
+        int fila = 0;
+        for (int b = 0; b < ubicaciones.size(); b++) {
+            int filasBloque = filasPorBloque.get(b);
+            ByteBuffer columnaBloque = ubicar(b, columna);
+            FormatoColumnas.decodificarNumeros(columnaBloque, codificacion(b, columna), filasBloque, valores, fila);
+            fila += filasBloque;
+        }
+        return valores;
+    }
+    
+    /**
+     * Listas de una columna de listas (ROBOS o DESCARTES)
+     */
+    public Listas leerListas(ColumnaMano columna) {
+        if (!columna.esLista()) {
+            throw new IllegalArgumentException("La columna " + columna + " no es de listas");
+        }
+        int[] largos = new int[filas];
+        byte[] elementos = new byte[filas * 8];
+        int fila = 0;
+        int usados = 0;
+        for (int b = 0; b < ubicaciones.size(); b++) {
+            int filasBloque = filasPorBloque.get(b);
+            elementos = FormatoColumnas.decodificarLista(ubicar(b, columna), codificacion(b, columna), filasBloque,
+                                                         largos, fila, elementos, usados);
+            for (int i = fila; i < fila + filasBloque; i++) {
+                usados += largos[i];
+            }
+            fila += filasBloque;
+        }
+        return new Listas(largos, elementos);
+    }
+    
+    private ColumnaMano.Codificacion codificacion(int bloque, ColumnaMano columna) {
+        return FormatoColumnas.codificacion(datos.get(ubicaciones.get(bloque)[columna.ordinal()] + 1));
+    }
+    
+    /**
+     * Vista de los datos de la columna en el bloque, sin copiarlos
+     */
+    private ByteBuffer ubicar(int bloque, ColumnaMano columna) {
+        int posicion = ubicaciones.get(bloque)[columna.ordinal()];
+        if (posicion == 0) {
+            throw new IllegalStateException("El bloque " + bloque + " no tiene la columna " + columna);
+        }
+        return datos.slice(posicion + FormatoColumnas.TAMANIO_CABECERA_COLUMNA, datos.getInt(posicion + 2))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Una lista por fila, guardadas una detrás de otra
+     */
+    public static class Listas {
+        private final int[] largos;
+        private final int[] inicios;
+        private final byte[] elementos;
+        
+        Listas(int[] largos, byte[] elementos) {
+            this.largos = largos;
+            this.elementos = elementos;
+            inicios = new int[largos.length];
+            for (int i = 1; i < largos.length; i++) {
+                inicios[i] = inicios[i - 1] + largos[i - 1];
+            }
+        }
+        
+        public int getFilas() {
+            return largos.length;
+        }
+        
+        public int getLargo(int fila) {
+            return largos[fila];
+        }
+        
+        public int get(int fila, int i) {
+            return elementos[inicios[fila] + i];
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Uso: java chinchon.registro.LectorColumnas archivo [columna...]");
+            System.exit(1);
+        }
+        LectorColumnas lector = new LectorColumnas(Paths.get(args[0]));
+        System.out.printf("%d manos en %d bloques%n", lector.getFilas(), lector.ubicaciones.size());
+        if (args.length == 1) {
+            for (ColumnaMano columna : COLUMNAS) {
+                long bytes = lector.getBytes(columna);
+                System.out.printf("  %-12s %-12s %10d bytes  %6.2f por mano%n", columna, columna.getCodificacion(),
+                                  bytes, (double) bytes / Math.max(1, lector.getFilas()));
+            }
+            return;
+        }
+        for (int i = 1; i < args.length; i++) {
+            ColumnaMano columna = ColumnaMano.valueOf(args[i].toUpperCase());
+            long inicio = System.nanoTime();
+            TreeMap<Long, Long> conteo = new TreeMap<>();
+            if (columna.esLista()) {
+                Listas listas = lector.leerListas(columna);
+                for (int fila = 0; fila < listas.getFilas(); fila++) {
+                    for (int j = 0; j < listas.getLargo(fila); j++) {
+                        conteo.merge((long) listas.get(fila, j), 1L, Long::sum);
+                    }
+                }
+            } else {
+                for (long valor : lector.leer(columna)) {
+                    conteo.merge(valor, 1L, Long::sum);
+                }
+            }
+            System.out.printf("%s (%.1f ms): %s%n", columna, (System.nanoTime() - inicio) / 1e6,
+                              conteo.size() <= 64 ? conteo : conteo.size() + " valores distintos");
+        }
+    }
+}
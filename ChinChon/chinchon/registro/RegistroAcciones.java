@@ -0,0 +1,159 @@
+package chinchon.registro;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.OyenteAcciones;
+
+/**
+ * Clase RegistroAcciones - graba las acciones de una o más partidas en un
+ * archivo binario compacto (ver FormatoRegistro) para poder reproducirlas
+ * con ReproductorAcciones.
+ * 
+ * Las acciones se juntan en un buffer y se escriben al canal cuando se llena
+ * o al cerrar el registro. No es seguro usar un mismo registro desde varios
+ * hilos: se usa uno por hilo (o por archivo).
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class RegistroAcciones implements OyenteAcciones, Closeable {
+    private static final int TAMANIO_BUFFER = 1 << 16;
+    
+    private final FileChannel canal;
+    private final ByteBuffer buffer;
+    private Juego juego; // partida que se está grabando
+    
+    /**
+     * Crea (o reemplaza) el archivo y escribe la cabecera
+     */
+    public RegistroAcciones(Path archivo) throws IOException {
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = ByteBuffer.allocateDirect(TAMANIO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FormatoRegistro.MAGICO);
+        buffer.put(FormatoRegistro.VERSION);
+    }
+    
+    /**
+     * Empieza a grabar una partida recién creada (antes de su primera jugada)
+     */
+    public void grabar(Juego juego) {
+        if (this.juego != null) {
+            terminar();
+        }
+        this.juego = juego;
+        asegurar(3 + 9);
+        buffer.put(FormatoRegistro.PARTIDA);
+        buffer.put((byte) juego.getJugadores().size());
+        buffer.put((byte) juego.getMazo().getNumComodines());
+        // El primer reparto ocurrió en el constructor
+        buffer.put(FormatoRegistro.REPARTO);
+        buffer.putLong(juego.getSemillaMano());
+        juego.agregarOyenteAcciones(this);
+    }
+    
+    /**
+     * Termina la partida en curso guardando los puntos de cada jugador,
+     * que el reproductor usa para verificar que llegó al mismo estado
+     */
+    public void terminar() {
+        if (juego == null) {
+            return;
+        }
+        List<Jugador> jugadores = juego.getJugadores();
+        asegurar(1 + 2 * jugadores.size());
+        buffer.put(FormatoRegistro.FIN);
+        for (Jugador jugador : jugadores) {
+            buffer.putShort((short) jugador.getPuntos());
+        }
+        juego.quitarOyenteAcciones(this);
+        juego = null;
+    }
+    
+    @Override
+    public void alRepartir(long semilla) {
+        asegurar(9);
+        buffer.put(FormatoRegistro.REPARTO);
+        buffer.putLong(semilla);
+    }
+    
+    @Override
+    public void alReciclarPozo(long semilla) {
+        asegurar(9);
+        buffer.put(FormatoRegistro.RECICLAJE);
+        buffer.putLong(semilla);
+    }
+    
+    @Override
+    public void alTomarDelMazo() {
+        escribir(FormatoRegistro.MAZO);
+    }
+    
+    @Override
+    public void alTomarDelPozo() {
+        escribir(FormatoRegistro.POZO);
+    }
+    
+    @Override
+    public void alDescartar(int indiceCarta) {
+        if (indiceCarta < 0 || indiceCarta > FormatoRegistro.MAX_INDICE_DESCARTE) {
+            throw new IllegalArgumentException("Índice de descarte fuera del formato: " + indiceCarta);
+        }
+        escribir((byte) (FormatoRegistro.DESCARTE | indiceCarta));
+    }
+    
+    @Override
+    public void alColocarGrupos() {
+        escribir(FormatoRegistro.COLOCAR);
+    }
+    
+    @Override
+    public void alReenganchar() {
+        escribir(FormatoRegistro.REENGANCHE);
+    }
+    
+    private void escribir(byte codigo) {
+        asegurar(1);
+        buffer.put(codigo);
+    }
+    
+    /**
+     * Vacía el buffer al canal si no entran los bytes pedidos
+     */
+    private void asegurar(int bytes) {
+        if (buffer.remaining() < bytes) {
+            vaciar();
+        }
+    }
+    
+    private void vaciar() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el registro", e);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Termina la partida en curso, escribe lo pendiente y cierra el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        terminar();
+        vaciar();
+        canal.close();
+    }
+}
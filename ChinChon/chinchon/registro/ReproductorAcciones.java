@@ -0,0 +1,186 @@
+package chinchon.registro;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+
+/**
+ * Clase ReproductorAcciones - vuelve a jugar las partidas de un registro
+ * grabado con RegistroAcciones y reconstruye cada Juego exactamente.
+ * 
+ * Las semillas de reparto grabadas se le dan al Juego a través de su
+ * generador de números aleatorios, así cada mano se baraja igual que en la
+ * partida original. Al final de cada partida se comparan los puntos con los
+ * grabados; si no coinciden se lanza IllegalStateException.
+ * 
+ * Uso para procesar lotes: java chinchon.registro.ReproductorAcciones archivo...
+ * (los archivos se reproducen en paralelo)
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class ReproductorAcciones {
+    private final ByteBuffer datos;
+    private long partidas;
+    private long manos;
+    private long acciones;
+    
+    /**
+     * Abre el registro (hasta 2 GB) mapeándolo en memoria
+     */
+    public ReproductorAcciones(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size())
+                         .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (datos.remaining() < FormatoRegistro.TAMANIO_CABECERA
+                || datos.getInt() != FormatoRegistro.MAGICO
+                || datos.get() > FormatoRegistro.VERSION) {
+            throw new IOException("No es un registro de acciones válido: " + archivo);
+        }
+    }
+    
+    /**
+     * Reproduce todas las partidas del registro
+     * @param alTerminar recibe cada Juego reconstruido al llegar al fin de su partida
+     * @return cantidad de partidas reproducidas
+     */
+    public long reproducir(Consumer<Juego> alTerminar) {
+        SemillasDelRegistro semillas = new SemillasDelRegistro();
+        while (datos.hasRemaining()) {
+            byte codigo = datos.get();
+            if (codigo != FormatoRegistro.PARTIDA) {
+                throw inconsistente("se esperaba el comienzo de una partida");
+            }
+            int numJugadores = datos.get();
+            int comodines = datos.get();
+            // El constructor reparte la primera mano con la semilla que sigue
+            Juego juego = new Juego(numJugadores, comodines > 0, comodines, semillas);
+            reproducirPartida(juego);
+            alTerminar.accept(juego);
+            partidas++;
+        }
+        return partidas;
+    }
+    
+    /**
+     * Aplica las acciones de una partida hasta su marca de fin
+     */
+    private void reproducirPartida(Juego juego) {
+        while (true) {
+            byte codigo = datos.get();
+            boolean aplicada;
+            switch (codigo) {
+                case FormatoRegistro.MAZO:
+                    aplicada = juego.tomarDelMazo();
+                    break;
+                case FormatoRegistro.POZO:
+                    aplicada = juego.tomarDelPozo();
+                    break;
+                case FormatoRegistro.COLOCAR:
+                    // Puede devolver false aunque haya avanzado el turno
+                    juego.colocarGruposEnMesa();
+                    aplicada = true;
+                    break;
+                case FormatoRegistro.REENGANCHE:
+                    aplicada = juego.reenganchar();
+                    break;
+                case FormatoRegistro.FIN:
+                    verificarPuntos(juego);
+                    return;
+                default:
+                    if ((codigo & ~FormatoRegistro.MAX_INDICE_DESCARTE) != FormatoRegistro.DESCARTE) {
+                        throw inconsistente("código desconocido " + codigo);
+                    }
+                    aplicada = juego.descartarCarta(codigo & FormatoRegistro.MAX_INDICE_DESCARTE);
+                    break;
+            }
+            if (!aplicada) {
+                throw inconsistente("la acción " + codigo + " no se pudo aplicar");
+            }
+            acciones++;
+        }
+    }
+    
+    private void verificarPuntos(Juego juego) {
+        List<Jugador> jugadores = juego.getJugadores();
+        for (Jugador jugador : jugadores) {
+            short grabados = datos.getShort();
+            if (jugador.getPuntos() != grabados) {
+                throw inconsistente(jugador.getNombre() + " tiene " + jugador.getPuntos()
+                    + " puntos y el registro dice " + grabados);
+            }
+        }
+    }
+    
+    private IllegalStateException inconsistente(String detalle) {
+        return new IllegalStateException("Registro inconsistente en la partida " + (partidas + 1)
+            + " (byte " + (datos.position() - 1) + "): " + detalle);
+    }
+    
+    public long getPartidas() {
+        return partidas;
+    }
+    
+    /**
+     * Cantidad de manos repartidas (una por cada semilla del registro)
+     */
+    public long getManos() {
+        return manos;
+    }
+    
+    public long getAcciones() {
+        return acciones;
+    }
+    
+    /**
+     * Generador que en lugar de números aleatorios entrega las semillas de
+     * reparto y de reciclaje del registro, en el momento en que el Juego las pide
+     */
+    private class SemillasDelRegistro implements RandomGenerator {
+        @Override
+        public long nextLong() {
+            byte codigo = datos.get();
+            if (codigo == FormatoRegistro.REPARTO) {
+                manos++;
+            } else if (codigo != FormatoRegistro.RECICLAJE) {
+                throw inconsistente("el juego pidió una semilla y el registro no tiene un reparto");
+            }
+            return datos.getLong();
+        }
+    }
+    
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: java chinchon.registro.ReproductorAcciones archivo...");
+            return;
+        }
+        LongAdder partidas = new LongAdder();
+        LongAdder manos = new LongAdder();
+        long inicio = System.nanoTime();
+        List.of(args).parallelStream().forEach(nombre -> {
+            try {
+                ReproductorAcciones reproductor = new ReproductorAcciones(Paths.get(nombre));
+                reproductor.reproducir(juego -> { });
+                partidas.add(reproductor.getPartidas());
+                manos.add(reproductor.getManos());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.printf("%d partidas y %d manos reproducidas en %.2f s (%.0f manos/s)%n",
+            partidas.sum(), manos.sum(), segundos, manos.sum() / segundos);
+    }
+}
@@ -0,0 +1,189 @@
+package chinchon.servidor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase GeneradorCarga - abre muchas conexiones contra el servidor, cada una
+ * con su propia mesa, y juega sin parar midiendo la latencia de cada comando
+ * (desde que se envía hasta que llega la respuesta).
+ * 
+ * Cada conexión juega todos los asientos de su mesa: roba del mazo (o del
+ * pozo si el mazo se acabó), descarta la última carta y coloca grupos cuando
+ * la mano se cierra; al terminar la partida abre otra mesa.
+ * 
+ * Uso: java chinchon.servidor.GeneradorCarga [mesas] [segundos] [puerto]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class GeneradorCarga {
+    
+    private final int puerto;
+    private final Histograma latencias = new Histograma();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder partidas = new LongAdder();
+    private volatile boolean midiendo;
+    private volatile boolean terminado;
+    
+    public GeneradorCarga(int puerto) {
+        this.puerto = puerto;
+    }
+    
+    /**
+     * Corre la carga: calienta un tercio del tiempo y mide el resto
+     */
+    public void correr(int mesas, int segundos) throws InterruptedException {
+        List<Thread> hilos = new ArrayList<>(mesas);
+        for (int i = 0; i < mesas; i++) {
+            long semilla = i;
+            hilos.add(Thread.ofVirtual().start(() -> jugar(semilla)));
+        }
+        Thread.sleep(segundos * 1000L / 3);
+        midiendo = true;
+        long inicio = System.nanoTime();
+        Thread.sleep(segundos * 2000L / 3);
+        midiendo = false;
+        double medidos = (System.nanoTime() - inicio) / 1e9;
+        terminado = true;
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        
+        System.out.printf("%d mesas, %.1f s medidos%n", mesas, medidos);
+        System.out.printf("comandos: %d (%.0f/s), errores de conexión: %d, partidas terminadas: %d%n",
+            latencias.total(), latencias.total() / medidos, errores.sum(), partidas.sum());
+        System.out.printf("latencia  p50 %.3f ms  p90 %.3f ms  p99 %.3f ms  p99.9 %.3f ms  máx %.3f ms%n",
+            latencias.percentil(0.50) / 1e6, latencias.percentil(0.90) / 1e6,
+            latencias.percentil(0.99) / 1e6, latencias.percentil(0.999) / 1e6,
+            latencias.percentil(1.0) / 1e6);
+    }
+    
+    /**
+     * Juega con una conexión hasta que termine la prueba
+     */
+    private void jugar(long semilla) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), puerto);
+             BufferedReader entrada = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter salida = new BufferedWriter(
+                 new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            String respuesta = pedir(entrada, salida, "MESA 4 " + semilla);
+            while (!terminado) {
+                if (respuesta.contains("terminada=1")) {
+                    partidas.increment();
+                    respuesta = pedir(entrada, salida, "MESA 4 " + (semilla += 1_000_003));
+                } else if (respuesta.contains("cerrada=1")) {
+                    respuesta = pedir(entrada, salida, "COLOCAR");
+                } else {
+                    respuesta = pedir(entrada, salida, "MAZO");
+                    if (respuesta.startsWith("ERROR")) {
+                        respuesta = pedir(entrada, salida, "POZO");
+                    }
+                    respuesta = pedir(entrada, salida, "DESCARTAR 7");
+                }
+                if (respuesta.startsWith("OK") && !respuesta.contains("=")) {
+                    // Respuesta a MESA: pedir el estado para seguir
+                    respuesta = pedir(entrada, salida, "ESTADO");
+                }
+            }
+            pedir(entrada, salida, "SALIR");
+        } catch (IOException e) {
+            errores.increment();
+        }
+    }
+    
+    private String pedir(BufferedReader entrada, BufferedWriter salida, String comando) throws IOException {
+        long inicio = System.nanoTime();
+        salida.write(comando);
+        salida.newLine();
+        salida.flush();
+        if (comando.equals("SALIR")) {
+            return "";
+        }
+        String respuesta = entrada.readLine();
+        if (respuesta == null) {
+            throw new IOException("El servidor cerró la conexión");
+        }
+        if (midiendo) {
+            latencias.registrar(System.nanoTime() - inicio);
+        }
+        return respuesta;
+    }
+    
+    /**
+     * Histograma de latencias en nanosegundos con cubetas log-lineales
+     * (16 por potencia de 2, error relativo menor al 7%), compartido entre hilos
+     */
+    static class Histograma {
+        private static final int SUBCUBETAS = 16;
+        private final AtomicLongArray cuentas = new AtomicLongArray(64 * SUBCUBETAS);
+        
+        void registrar(long nanos) {
+            cuentas.incrementAndGet(cubeta(Math.max(nanos, 0)));
+        }
+        
+        private static int cubeta(long valor) {
+            if (valor < SUBCUBETAS) {
+                return (int) valor;
+            }
+            int potencia = 63 - Long.numberOfLeadingZeros(valor);
+            int sub = (int) (valor >>> (potencia - 4)) & (SUBCUBETAS - 1);
+            return (potencia - 3) * SUBCUBETAS + sub;
+        }
+        
+        /**
+         * Límite superior de la cubeta (la latencia máxima que representa)
+         */
+        private static long limiteSuperior(int cubeta) {
+            if (cubeta < SUBCUBETAS) {
+                return cubeta;
+            }
+            int potencia = cubeta / SUBCUBETAS + 3;
+            int sub = cubeta % SUBCUBETAS;
+            return ((long) (SUBCUBETAS + sub + 1) << (potencia - 4)) - 1;
+        }
+        
+        long total() {
+            long total = 0;
+            for (int i = 0; i < cuentas.length(); i++) {
+                total += cuentas.get(i);
+            }
+            return total;
+        }
+        
+        double percentil(double p) {
+            long total = total();
+            if (total == 0) {
+                return 0;
+            }
+            long objetivo = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int i = 0; i < cuentas.length(); i++) {
+                acumulado += cuentas.get(i);
+                if (acumulado >= objetivo && cuentas.get(i) > 0) {
+                    return limiteSuperior(i);
+                }
+            }
+            return limiteSuperior(cuentas.length() - 1);
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        int mesas = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        int puerto = args.length > 2 ? Integer.parseInt(args[2]) : ServidorChinchon.PUERTO_POR_DEFECTO;
+        new GeneradorCarga(puerto).correr(mesas, segundos);
+    }
+}
@@ -0,0 +1,183 @@
+package chinchon.servidor;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import chinchon.modelo.Carta;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+
+/**
+ * Clase Mesa - una partida alojada en el servidor.
+ * 
+ * El Juego no es seguro entre hilos, así que una mesa tiene un único hilo
+ * (virtual) que lo modifica: las conexiones dejan sus comandos en una cola
+ * y esperan la respuesta; el hilo de la mesa los aplica de a uno en orden.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class Mesa {
+    private static final Pedido FIN = new Pedido(null);
+    
+    private final int id;
+    private final Juego juego;
+    private final BlockingQueue<Pedido> pedidos = new LinkedBlockingQueue<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    
+    /**
+     * Crea la mesa con la conexión que la pidió ya unida
+     */
+    public Mesa(int id, int numJugadores, long semilla) {
+        this.id = id;
+        this.conexiones.set(1);
+        this.juego = new Juego(numJugadores, true, 2, new SplittableRandom(semilla));
+        Thread.ofVirtual().name("mesa-" + id).start(this::atender);
+    }
+    
+    /**
+     * Comando pendiente con la respuesta que espera la conexión
+     */
+    private static class Pedido {
+        final String[] partes;
+        final CompletableFuture<String> respuesta = new CompletableFuture<>();
+        
+        Pedido(String[] partes) {
+            this.partes = partes;
+        }
+    }
+    
+    /**
+     * Encola un comando y devuelve la respuesta futura
+     */
+    public CompletableFuture<String> enviar(String[] partes) {
+        Pedido pedido = new Pedido(partes);
+        pedidos.add(pedido);
+        return pedido.respuesta;
+    }
+    
+    /**
+     * Suma una conexión a la mesa; falla si la mesa ya quedó vacía y se está cerrando
+     */
+    public boolean unirse() {
+        while (true) {
+            int actuales = conexiones.get();
+            if (actuales == 0) {
+                return false;
+            }
+            if (conexiones.compareAndSet(actuales, actuales + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Una conexión deja la mesa; con la última se termina el hilo de la mesa
+     * @return true si la mesa quedó vacía
+     */
+    public boolean salir() {
+        if (conexiones.decrementAndGet() == 0) {
+            pedidos.add(FIN);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Bucle del único hilo que modifica el juego
+     */
+    private void atender() {
+        try {
+            while (true) {
+                Pedido pedido = pedidos.take();
+                if (pedido == FIN) {
+                    return;
+                }
+                String respuesta;
+                try {
+                    respuesta = aplicar(pedido.partes);
+                } catch (RuntimeException e) {
+                    respuesta = "ERROR " + e.getMessage();
+                }
+                pedido.respuesta.complete(respuesta);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Aplica un comando al juego y arma la línea de respuesta
+     */
+    private String aplicar(String[] partes) {
+        boolean hecho;
+        switch (partes[0]) {
+            case "MAZO":
+                hecho = juego.tomarDelMazo();
+                break;
+            case "POZO":
+                hecho = juego.tomarDelPozo();
+                break;
+            case "DESCARTAR":
+                if (partes.length < 2) {
+                    return "ERROR falta el índice";
+                }
+                hecho = juego.descartarCarta(Integer.parseInt(partes[1]));
+                break;
+            case "COLOCAR":
+                hecho = juego.isManoCerrada();
+                juego.colocarGruposEnMesa();
+                break;
+            case "REENGANCHAR":
+                hecho = juego.reenganchar();
+                break;
+            case "ESTADO":
+                return "OK " + resumen() + " " + detalle();
+            default:
+                return "ERROR comando desconocido " + partes[0];
+        }
+        return (hecho ? "OK " : "ERROR no permitido ") + resumen();
+    }
+    
+    /**
+     * Estado corto: turno, mano cerrada, partida terminada y cartas del jugador actual
+     */
+    private String resumen() {
+        Jugador actual = juego.getJugadorActual();
+        return "turno=" + juego.getIndiceJugadorActual()
+            + " cerrada=" + (juego.isManoCerrada() ? 1 : 0)
+            + " terminada=" + (juego.isPartidaTerminada() ? 1 : 0)
+            + " cartas=" + (actual == null ? 0 : actual.getMano().getNumeroCartas());
+    }
+    
+    /**
+     * Estado completo: mano del jugador actual, pozo, mazo y puntos
+     */
+    private String detalle() {
+        StringBuilder sb = new StringBuilder();
+        Jugador actual = juego.getJugadorActual();
+        sb.append("mano=");
+        if (actual != null) {
+            List<Carta> cartas = actual.getMano().getCartas();
+            for (int i = 0; i < cartas.size(); i++) {
+                sb.append(i > 0 ? "," : "").append(cartas.get(i).getOrdinal());
+            }
+        }
+        Carta superior = juego.getPozo().verCartaSuperior();
+        sb.append(" pozo=").append(superior == null ? -1 : superior.getOrdinal());
+        sb.append(" mazo=").append(juego.getMazo().getNumeroCartas());
+        sb.append(" puntos=");
+        List<Jugador> jugadores = juego.getJugadores();
+        for (int i = 0; i < jugadores.size(); i++) {
+            sb.append(i > 0 ? "," : "").append(jugadores.get(i).getPuntos());
+        }
+        return sb.toString();
+    }
+    
+    public int getId() {
+        return id;
+    }
+}
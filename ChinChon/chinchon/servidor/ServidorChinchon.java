@@ -0,0 +1,159 @@
+package chinchon.servidor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase ServidorChinchon - aloja muchas mesas a la vez y atiende a los
+ * clientes con un protocolo de texto por TCP (solo en localhost).
+ * 
+ * Cada conexión corre en su propio hilo virtual. Comandos, uno por línea,
+ * separados por un espacio, con una línea de respuesta que empieza con OK o ERROR:
+ * 
+ *   MESA [jugadores] [semilla]   crea una mesa y se une  -> OK id
+ *   UNIR id                      se une a una mesa       -> OK id
+ *   MAZO | POZO | DESCARTAR i | COLOCAR | REENGANCHAR
+ *                                juega por el jugador del turno -> OK turno=.. cerrada=.. terminada=.. cartas=..
+ *   ESTADO                       además: mano, pozo, mazo y puntos
+ *   SALIR
+ * 
+ * Uso: java chinchon.servidor.ServidorChinchon [puerto]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class ServidorChinchon {
+    public static final int PUERTO_POR_DEFECTO = 7070;
+    private static final int COLA_CONEXIONES = 16384;
+    
+    private final ServerSocket socket;
+    private final Map<Integer, Mesa> mesas = new ConcurrentHashMap<>();
+    private final AtomicInteger proximaMesa = new AtomicInteger(1);
+    private final AtomicInteger conexionesAbiertas = new AtomicInteger();
+    
+    public ServidorChinchon(int puerto) throws IOException {
+        socket = new ServerSocket(puerto, COLA_CONEXIONES, InetAddress.getLoopbackAddress());
+    }
+    
+    /**
+     * Acepta conexiones hasta que se cierre el servidor
+     */
+    public void atender() {
+        while (!socket.isClosed()) {
+            try {
+                Socket cliente = socket.accept();
+                cliente.setTcpNoDelay(true);
+                Thread.ofVirtual().start(() -> atenderConexion(cliente));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Error aceptando conexión: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Lee comandos de una conexión hasta que se cierre o mande SALIR
+     */
+    private void atenderConexion(Socket cliente) {
+        conexionesAbiertas.incrementAndGet();
+        Mesa mesa = null;
+        try (Socket s = cliente;
+             BufferedReader entrada = new BufferedReader(
+                 new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter salida = new BufferedWriter(
+                 new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                String[] partes = linea.trim().split(" "); // separador de un carácter: sin expresión regular
+                String respuesta;
+                if (partes[0].equals("SALIR")) {
+                    break;
+                } else if (partes[0].equals("MESA") || partes[0].equals("UNIR")) {
+                    try {
+                        Mesa nueva = partes[0].equals("MESA") ? crearMesa(partes) : buscarMesa(partes);
+                        if (nueva == null) {
+                            respuesta = "ERROR mesa inexistente";
+                        } else {
+                            dejarMesa(mesa);
+                            mesa = nueva;
+                            respuesta = "OK " + mesa.getId();
+                        }
+                    } catch (IllegalArgumentException e) {
+                        respuesta = "ERROR " + e.getMessage();
+                    }
+                } else if (mesa == null) {
+                    respuesta = "ERROR primero MESA o UNIR";
+                } else {
+                    respuesta = mesa.enviar(partes).join();
+                }
+                salida.write(respuesta);
+                salida.newLine();
+                salida.flush();
+            }
+        } catch (IOException e) {
+            // El cliente se desconectó: se cierra la conexión
+        } finally {
+            dejarMesa(mesa);
+            conexionesAbiertas.decrementAndGet();
+        }
+    }
+    
+    private Mesa crearMesa(String[] partes) {
+        int jugadores = partes.length > 1 ? Integer.parseInt(partes[1]) : 4;
+        long semilla = partes.length > 2 ? Long.parseLong(partes[2]) : System.nanoTime();
+        if (jugadores < 2 || jugadores > 6) {
+            throw new IllegalArgumentException("jugadores fuera de rango");
+        }
+        Mesa mesa = new Mesa(proximaMesa.getAndIncrement(), jugadores, semilla);
+        mesas.put(mesa.getId(), mesa);
+        return mesa;
+    }
+    
+    private Mesa buscarMesa(String[] partes) {
+        if (partes.length < 2) {
+            return null;
+        }
+        Mesa mesa = mesas.get(Integer.parseInt(partes[1]));
+        return mesa != null && mesa.unirse() ? mesa : null;
+    }
+    
+    private void dejarMesa(Mesa mesa) {
+        if (mesa != null && mesa.salir()) {
+            mesas.remove(mesa.getId());
+        }
+    }
+    
+    public int getMesasAbiertas() {
+        return mesas.size();
+    }
+    
+    public int getConexionesAbiertas() {
+        return conexionesAbiertas.get();
+    }
+    
+    public int getPuerto() {
+        return socket.getLocalPort();
+    }
+    
+    public void cerrar() throws IOException {
+        socket.close();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : PUERTO_POR_DEFECTO;
+        ServidorChinchon servidor = new ServidorChinchon(puerto);
+        System.out.println("Servidor de Chin-Chon escuchando en localhost:" + servidor.getPuerto());
+        servidor.atender();
+    }
+}
@@ -0,0 +1,432 @@
+package chinchon.simulacion;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import chinchon.modelo.Mano;
+
+/**
+ * Clase AlmacenResultados - guarda en memoria las manos cerradas y las
+ * partidas terminadas de una simulación, en arreglos primitivos por columna,
+ * y responde consultas que las recorren en paralelo
+ *
+ * Las filas llegan en Lotes: cada tarea de la simulación llena el suyo sin
+ * sincronización y al terminar lo agrega de una vez (copiando las columnas
+ * a segmentos de FILAS_POR_SEGMENTO filas). Las consultas toman los
+ * segmentos que hay en ese momento, reparten un segmento por tarea en el
+ * ForkJoinPool y suman los contadores de cada tarea; se pueden hacer
+ * mientras la simulación sigue agregando filas.
+ *
+ * Uso: java chinchon.simulacion.AlmacenResultados [partidas] [jugadores] [hilos]
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class AlmacenResultados {
+    
+    static final int FILAS_POR_SEGMENTO = 1 << 16;
+    private static final Mano.TipoCierre[] TIPOS = Mano.TipoCierre.values();
+    private static final int MAX_JUGADORES = 4;
+    
+    private final ForkJoinPool pool;
+    private final List<SegmentoManos> manos = new ArrayList<>();
+    private final List<SegmentoPartidas> partidas = new ArrayList<>();
+    private long filasManos;
+    private long filasPartidas;
+    
+    /**
+     * @param pool pool donde se reparten los recorridos de las consultas
+     */
+    public AlmacenResultados(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * Lote vacío para llenar desde una tarea de la simulación
+     */
+    public Lote nuevoLote() {
+        return new Lote();
+    }
+    
+    /**
+     * Copia las filas del lote al almacén y lo deja vacío para reutilizarlo
+     */
+    public synchronized void agregar(Lote lote) {
+        for (int i = 0; i < lote.manos; i++) {
+            SegmentoManos segmento = ultimo(manos, filasManos, SegmentoManos::new);
+            int fila = (int) (filasManos++ % FILAS_POR_SEGMENTO);
+            segmento.partida[fila] = lote.manoPartida[i];
+            segmento.tipo[fila] = lote.manoTipo[i];
+            segmento.comodines[fila] = lote.manoComodines[i];
+            segmento.cerro[fila] = lote.manoCerro[i];
+            segmento.turnos[fila] = lote.manoTurnos[i];
+            segmento.puntosNoLigadas[fila] = lote.manoPuntosNoLigadas[i];
+            segmento.puntosRivales[fila] = lote.manoPuntosRivales[i];
+            segmento.rivales[fila] = lote.manoRivales[i];
+        }
+        for (int i = 0; i < lote.partidas; i++) {
+            SegmentoPartidas segmento = ultimo(partidas, filasPartidas, SegmentoPartidas::new);
+            int fila = (int) (filasPartidas++ % FILAS_POR_SEGMENTO);
+            segmento.partida[fila] = lote.partidaSemilla[i];
+            segmento.ganador[fila] = lote.partidaGanador[i];
+            segmento.jugadores[fila] = lote.partidaJugadores[i];
+            segmento.manos[fila] = lote.partidaManos[i];
+            segmento.reenganchados[fila] = lote.partidaReenganchados[i];
+            segmento.bloqueada[fila] = lote.partidaBloqueada[i];
+        }
+        lote.vaciar();
+    }
+    
+    private static <S> S ultimo(List<S> segmentos, long filas, Supplier<S> crear) {
+        if (filas == (long) segmentos.size() * FILAS_POR_SEGMENTO) {
+            segmentos.add(crear.get());
+        }
+        return segmentos.get(segmentos.size() - 1);
+    }
+    
+    public synchronized long getManos() {
+        return filasManos;
+    }
+    
+    public synchronized long getPartidas() {
+        return filasPartidas;
+    }
+    
+    /**
+     * Fracción de las partidas de esa cantidad de jugadores que ganó cada asiento
+     */
+    public double[] tasaVictoriaPorAsiento(int jugadores) {
+        long[] conteo = recorrerPartidas(MAX_JUGADORES + 1, (s, filas, total) -> {
+            for (int i = 0; i < filas; i++) {
+                if (s.jugadores[i] == jugadores) {
+                    total[MAX_JUGADORES]++;
+                    if (s.ganador[i] >= 0) {
+                        total[s.ganador[i]]++;
+                    }
+                }
+            }
+        });
+        double[] tasas = new double[jugadores];
+        for (int asiento = 0; asiento < jugadores; asiento++) {
+            tasas[asiento] = cociente(conteo[asiento], conteo[MAX_JUGADORES]);
+        }
+        return tasas;
+    }
+    
+    /**
+     * Promedio de los puntos sin ligar del que cerró, por tipo de cierre
+     * (índice: ordinal de Mano.TipoCierre)
+     */
+    public double[] promedioPuntosNoLigadas() {
+        long[] conteo = recorrerManos(2 * TIPOS.length, (s, filas, total) -> {
+            for (int i = 0; i < filas; i++) {
+                total[s.tipo[i]] += s.puntosNoLigadas[i];
+                total[TIPOS.length + s.tipo[i]]++;
+            }
+        });
+        double[] promedios = new double[TIPOS.length];
+        for (int t = 0; t < TIPOS.length; t++) {
+            promedios[t] = cociente(conteo[t], conteo[TIPOS.length + t]);
+        }
+        return promedios;
+    }
+    
+    /**
+     * Promedio de los puntos sin ligar que le quedan a cada rival cuando se
+     * cierra con cada tipo (índice: ordinal de Mano.TipoCierre)
+     */
+    public double[] promedioPuntosRivales() {
+        long[] conteo = recorrerManos(2 * TIPOS.length, (s, filas, total) -> {
+            for (int i = 0; i < filas; i++) {
+                total[s.tipo[i]] += s.puntosRivales[i];
+                total[TIPOS.length + s.tipo[i]] += s.rivales[i];
+            }
+        });
+        double[] promedios = new double[TIPOS.length];
+        for (int t = 0; t < TIPOS.length; t++) {
+            promedios[t] = cociente(conteo[t], conteo[TIPOS.length + t]);
+        }
+        return promedios;
+    }
+    
+    /**
+     * Cuántos jugadores se reengancharon y cuántos de ellos terminaron ganando
+     * la partida: {reenganchados, ganaron}
+     */
+    public long[] reenganches() {
+        return recorrerPartidas(2, (s, filas, total) -> {
+            for (int i = 0; i < filas; i++) {
+                int reenganchados = s.reenganchados[i];
+                total[0] += Integer.bitCount(reenganchados);
+                if (s.ganador[i] >= 0 && (reenganchados >>> s.ganador[i] & 1) != 0) {
+                    total[1]++;
+                }
+            }
+        });
+    }
+    
+    /**
+     * Cantidad de manos cerradas según cuántos turnos duraron (índice: turnos;
+     * el último cuenta también las más largas)
+     */
+    public long[] distribucionTurnos() {
+        return recorrerManos(MotorSimulacion.MAX_TURNOS_POR_MANO + 1, (s, filas, total) -> {
+            for (int i = 0; i < filas; i++) {
+                total[Math.min(s.turnos[i], total.length - 1)]++;
+            }
+        });
+    }
+    
+    private static double cociente(long parte, long total) {
+        return total == 0 ? 0.0 : (double) parte / total;
+    }
+    
+    private long[] recorrerManos(int contadores, Acumulador<SegmentoManos> acumulador) {
+        SegmentoManos[] segmentos;
+        long filas;
+        synchronized (this) {
+            segmentos = manos.toArray(new SegmentoManos[0]);
+            filas = filasManos;
+        }
+        return pool.invoke(new Recorrido<>(segmentos, filas, 0, segmentos.length, contadores, acumulador));
+    }
+    
+    private long[] recorrerPartidas(int contadores, Acumulador<SegmentoPartidas> acumulador) {
+        SegmentoPartidas[] segmentos;
+        long filas;
+        synchronized (this) {
+            segmentos = partidas.toArray(new SegmentoPartidas[0]);
+            filas = filasPartidas;
+        }
+        return pool.invoke(new Recorrido<>(segmentos, filas, 0, segmentos.length, contadores, acumulador));
+    }
+    
+    /**
+     * Suma a total los contadores de las primeras filas del segmento
+     */
+    private interface Acumulador<S> {
+        void acumular(S segmento, int filas, long[] total);
+    }
+    
+    /**
+     * Divide los segmentos hasta uno por tarea y suma los contadores de todos
+     */
+    @SuppressWarnings("serial") // las tareas no se serializan
+    private static class Recorrido<S> extends RecursiveTask<long[]> {
+        private final S[] segmentos;
+        private final long filas; // del almacén, al tomar los segmentos
+        private final int desde;
+        private final int hasta;
+        private final int contadores;
+        private final Acumulador<S> acumulador;
+        
+        Recorrido(S[] segmentos, long filas, int desde, int hasta, int contadores, Acumulador<S> acumulador) {
+            this.segmentos = segmentos;
+            this.filas = filas;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.contadores = contadores;
+            this.acumulador = acumulador;
+        }
+        
+        @Override
+        protected long[] compute() {
+            if (hasta - desde <= 1) {
+                long[] total = new long[contadores];
+                if (desde < hasta) {
+                    long resto = filas - (long) desde * FILAS_POR_SEGMENTO;
+                    acumulador.acumular(segmentos[desde], (int) Math.min(resto, FILAS_POR_SEGMENTO), total);
+                }
+                return total;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            Recorrido<S> izquierda = new Recorrido<>(segmentos, filas, desde, mitad, contadores, acumulador);
+            izquierda.fork();
+            long[] total = new Recorrido<>(segmentos, filas, mitad, hasta, contadores, acumulador).compute();
+            long[] otros = izquierda.join();
+            for (int i = 0; i < total.length; i++) {
+                total[i] += otros[i];
+            }
+            return total;
+        }
+    }
+    
+    /**
+     * Una fila por mano cerrada
+     */
+    private static class SegmentoManos {
+        final long[] partida = new long[FILAS_POR_SEGMENTO]; // semilla de la partida
+        final byte[] tipo = new byte[FILAS_POR_SEGMENTO];
+        final byte[] comodines = new byte[FILAS_POR_SEGMENTO];
+        final byte[] cerro = new byte[FILAS_POR_SEGMENTO];
+        final short[] turnos = new short[FILAS_POR_SEGMENTO];
+        final short[] puntosNoLigadas = new short[FILAS_POR_SEGMENTO]; // del que cerró
+        final short[] puntosRivales = new short[FILAS_POR_SEGMENTO];   // sumando todos los rivales
+        final byte[] rivales = new byte[FILAS_POR_SEGMENTO];
+    }
+    
+    /**
+     * Una fila por partida terminada
+     */
+    private static class SegmentoPartidas {
+        final long[] partida = new long[FILAS_POR_SEGMENTO];
+        final byte[] ganador = new byte[FILAS_POR_SEGMENTO]; // asiento, -1 si no hubo
+        final byte[] jugadores = new byte[FILAS_POR_SEGMENTO];
+        final short[] manos = new short[FILAS_POR_SEGMENTO];
+        final byte[] reenganchados = new byte[FILAS_POR_SEGMENTO]; // un bit por asiento
+        final boolean[] bloqueada = new boolean[FILAS_POR_SEGMENTO];
+    }
+    
+    /**
+     * Filas de una tarea de la simulación, todavía sin agregar al almacén.
+     * No es seguro usar un lote desde varios hilos.
+     */
+    public static class Lote {
+        private int manos;
+        private long[] manoPartida = new long[256];
+        private byte[] manoTipo = new byte[256];
+        private byte[] manoComodines = new byte[256];
+        private byte[] manoCerro = new byte[256];
+        private short[] manoTurnos = new short[256];
+        private short[] manoPuntosNoLigadas = new short[256];
+        private short[] manoPuntosRivales = new short[256];
+        private byte[] manoRivales = new byte[256];
+        
+        private int partidas;
+        private long[] partidaSemilla = new long[64];
+        private byte[] partidaGanador = new byte[64];
+        private byte[] partidaJugadores = new byte[64];
+        private short[] partidaManos = new short[64];
+        private byte[] partidaReenganchados = new byte[64];
+        private boolean[] partidaBloqueada = new boolean[64];
+        
+        private Lote() {
+        }
+        
+        /**
+         * Registra una mano cerrada
+         *
+         * @param partida semilla de la partida
+         * @param cerro asiento del que cerró
+         * @param puntosRivales puntos que sumaron entre todos los rivales con el cierre
+         * @param rivales rivales que seguían en juego
+         */
+        public void agregarMano(long partida, int cerro, Mano.TipoCierre tipo, int comodines,
+                                int puntosNoLigadas, int puntosRivales, int rivales, int turnos) {
+            if (manos == manoPartida.length) {
+                int capacidad = 2 * manos;
+                manoPartida = Arrays.copyOf(manoPartida, capacidad);
+                manoTipo = Arrays.copyOf(manoTipo, capacidad);
+                manoComodines = Arrays.copyOf(manoComodines, capacidad);
+                manoCerro = Arrays.copyOf(manoCerro, capacidad);
+                manoTurnos = Arrays.copyOf(manoTurnos, capacidad);
+                manoPuntosNoLigadas = Arrays.copyOf(manoPuntosNoLigadas, capacidad);
+                manoPuntosRivales = Arrays.copyOf(manoPuntosRivales, capacidad);
+                manoRivales = Arrays.copyOf(manoRivales, capacidad);
+            }
+            manoPartida[manos] = partida;
+            manoTipo[manos] = (byte) tipo.ordinal();
+            manoComodines[manos] = (byte) comodines;
+            manoCerro[manos] = (byte) cerro;
+            manoTurnos[manos] = (short) turnos;
+            manoPuntosNoLigadas[manos] = (short) puntosNoLigadas;
+            manoPuntosRivales[manos] = (short) puntosRivales;
+            manoRivales[manos] = (byte) rivales;
+            manos++;
+        }
+        
+        /**
+         * Registra una partida terminada
+         *
+         * @param ganador asiento ganador, -1 si no hubo
+         * @param reenganchados un bit por asiento que se reenganchó
+         */
+        public void agregarPartida(long partida, int ganador, int jugadores, int manos,
+                                   int reenganchados, boolean bloqueada) {
+            if (partidas == partidaSemilla.length) {
+                int capacidad = 2 * partidas;
+                partidaSemilla = Arrays.copyOf(partidaSemilla, capacidad);
+                partidaGanador = Arrays.copyOf(partidaGanador, capacidad);
+                partidaJugadores = Arrays.copyOf(partidaJugadores, capacidad);
+                partidaManos = Arrays.copyOf(partidaManos, capacidad);
+                partidaReenganchados = Arrays.copyOf(partidaReenganchados, capacidad);
+                partidaBloqueada = Arrays.copyOf(partidaBloqueada, capacidad);
+            }
+            partidaSemilla[partidas] = partida;
+            partidaGanador[partidas] = (byte) ganador;
+            partidaJugadores[partidas] = (byte) jugadores;
+            partidaManos[partidas] = (short) manos;
+            partidaReenganchados[partidas] = (byte) reenganchados;
+            partidaBloqueada[partidas] = bloqueada;
+            partidas++;
+        }
+        
+        private void vaciar() {
+            manos = 0;
+            partidas = 0;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Almacén: %d manos, %d partidas%n", getManos(), getPartidas()));
+        double[] propios = promedioPuntosNoLigadas();
+        double[] rivales = promedioPuntosRivales();
+        sb.append("Puntos sin ligar promedio por tipo de cierre (del que cierra, de cada rival):\n");
+        for (Mano.TipoCierre tipo : TIPOS) {
+            sb.append(String.format("  %-28s %6.2f %6.2f%n", tipo, propios[tipo.ordinal()], rivales[tipo.ordinal()]));
+        }
+        long[] reenganches = reenganches();
+        sb.append(String.format("Reenganches: %d, ganaron la partida %d (%.2f%%)%n", reenganches[0], reenganches[1],
+                                100.0 * cociente(reenganches[1], reenganches[0])));
+        long[] turnos = distribucionTurnos();
+        long total = 0;
+        long suma = 0;
+        int maximo = 0;
+        for (int t = 0; t < turnos.length; t++) {
+            total += turnos[t];
+            suma += t * turnos[t];
+            if (turnos[t] > 0) {
+                maximo = t;
+            }
+        }
+        long acumulado = 0;
+        int mediana = 0;
+        while (mediana < turnos.length && (acumulado += turnos[mediana]) * 2 < total) {
+            mediana++;
+        }
+        sb.append(String.format("Turnos por mano: promedio %.1f, mediana %d, máximo %d",
+                                cociente(suma, total), mediana, maximo));
+        return sb.toString();
+    }
+    
+    public static void main(String[] args) {
+        long partidas = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        int jugadores = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        
+        List<LongFunction<Estrategia>> fabricas = new ArrayList<>();
+        for (int i = 0; i < jugadores; i++) {
+            fabricas.add(semilla -> new EstrategiaVoraz());
+        }
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        AlmacenResultados almacen = new AlmacenResultados(pool);
+        MotorSimulacion motor = new MotorSimulacion(jugadores, fabricas, pool);
+        motor.setAlmacen(almacen);
+        System.out.println(motor.simular(System.nanoTime(), partidas));
+        
+        long inicio = System.nanoTime();
+        double[] tasas = almacen.tasaVictoriaPorAsiento(jugadores);
+        System.out.print("Victorias por asiento según el almacén:");
+        for (int i = 0; i < tasas.length; i++) {
+            System.out.printf(" %d: %.2f%%", i + 1, 100 * tasas[i]);
+        }
+        System.out.println();
+        System.out.println(almacen);
+        System.out.printf("Consultas en %.1f ms%n", (System.nanoTime() - inicio) / 1e6);
+        pool.shutdown();
+    }
+}
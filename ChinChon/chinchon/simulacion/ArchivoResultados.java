@@ -0,0 +1,294 @@
+package chinchon.simulacion;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+
+/**
+ * Clase ArchivoResultados - resultados de un rango de partidas simuladas,
+ * un registro de ancho fijo por partida en un archivo mapeado en memoria
+ * 
+ * La partida i del rango [desde, hasta) tiene la semilla
+ * MotorSimulacion.semillaPartida(semillaBase, i) y ocupa siempre el mismo
+ * lugar, así que se puede escribir en cualquier orden y un proceso que se
+ * cae se retoma jugando solo las partidas que no quedaron completas. El
+ * byte de estado de cada registro se escribe al final.
+ * 
+ * Cabecera (32 bytes, little-endian): MAGICO (int), VERSION (byte),
+ * jugadores (byte), tamaño del registro (short), semillaBase, desde y
+ * hasta (long). Cada registro:
+ * 
+ *   semilla (long), turnos (int), manos (short), asiento ganador (byte, -1
+ *   si no hubo), tipo del último cierre (byte, -1 si no hubo), cierres por
+ *   tipo (3 short), chinchones (short), puntos finales de cada asiento
+ *   (4 short), bloqueada (byte), estado (byte)                  40 bytes
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public final class ArchivoResultados {
+    
+    static final int MAGICO = 0x53524843; // "CHRS"
+    static final byte VERSION = 1;
+    static final int TAMANIO_CABECERA = 32;
+    static final int TAMANIO_REGISTRO = 40;
+    static final int MAX_JUGADORES = 4;
+    
+    private static final Mano.TipoCierre[] TIPOS = Mano.TipoCierre.values();
+    private static final byte COMPLETO = 1;
+    
+    // Desplazamientos dentro del registro
+    private static final int SEMILLA = 0;
+    private static final int TURNOS = 8;
+    private static final int MANOS = 12;
+    private static final int GANADOR = 14;
+    private static final int TIPO_FINAL = 15;
+    private static final int CIERRES = 16;
+    private static final int CHINCHONES = 22;
+    private static final int PUNTOS = 24;
+    private static final int BLOQUEADA = 32;
+    private static final int ESTADO = 33;
+    
+    private final MappedByteBuffer datos;
+    private final int jugadores;
+    private final long semillaBase;
+    private final long desde;
+    private final long hasta;
+    
+    private ArchivoResultados(MappedByteBuffer datos) {
+        this.datos = datos;
+        jugadores = datos.get(5);
+        semillaBase = datos.getLong(8);
+        desde = datos.getLong(16);
+        hasta = datos.getLong(24);
+    }
+    
+    /**
+     * Abre para escribir el archivo de un rango de partidas: si no existe lo
+     * crea vacío, y si existe verifica que sea del mismo rango para retomarlo
+     */
+    public static ArchivoResultados abrir(Path ruta, int jugadores, long semillaBase, long desde, long hasta)
+            throws IOException {
+        if (jugadores < 2 || jugadores > MAX_JUGADORES) {
+            throw new IllegalArgumentException("Jugadores por partida fuera de rango: " + jugadores);
+        }
+        long tamanio = tamanio(hasta - desde);
+        boolean nuevo = !Files.exists(ruta);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                  StandardOpenOption.WRITE)) {
+            if (!nuevo && canal.size() != tamanio) {
+                throw new IOException("El archivo " + ruta + " es de otro rango de partidas");
+            }
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanio);
+            datos.order(ByteOrder.LITTLE_ENDIAN);
+            if (nuevo) {
+                datos.putInt(0, MAGICO);
+                datos.put(4, VERSION);
+                datos.put(5, (byte) jugadores);
+                datos.putShort(6, (short) TAMANIO_REGISTRO);
+                datos.putLong(8, semillaBase);
+                datos.putLong(16, desde);
+                datos.putLong(24, hasta);
+            } else {
+                validar(datos, ruta);
+            }
+            ArchivoResultados archivo = new ArchivoResultados(datos);
+            if (archivo.jugadores != jugadores || archivo.semillaBase != semillaBase
+                    || archivo.desde != desde || archivo.hasta != hasta) {
+                throw new IOException("El archivo " + ruta + " es de otro rango de partidas");
+            }
+            return archivo;
+        }
+    }
+    
+    /**
+     * Mapea un archivo existente solo para leerlo (los registros se leen
+     * directo del mapeo, sin copiarlos)
+     */
+    public static ArchivoResultados leer(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            if (canal.size() < TAMANIO_CABECERA) {
+                throw new IOException("Archivo de resultados inválido: " + ruta);
+            }
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            datos.order(ByteOrder.LITTLE_ENDIAN);
+            validar(datos, ruta);
+            ArchivoResultados archivo = new ArchivoResultados(datos);
+            if (canal.size() != tamanio(archivo.getCantidad())) {
+                throw new IOException("Archivo de resultados truncado: " + ruta);
+            }
+            return archivo;
+        }
+    }
+    
+    private static void validar(MappedByteBuffer datos, Path ruta) throws IOException {
+        if (datos.getInt(0) != MAGICO || datos.get(4) != VERSION
+                || datos.getShort(6) != TAMANIO_REGISTRO) {
+            throw new IOException("Cabecera de resultados inválida: " + ruta);
+        }
+    }
+    
+    private static long tamanio(long cantidad) {
+        long tamanio = TAMANIO_CABECERA + cantidad * TAMANIO_REGISTRO;
+        if (cantidad < 0 || tamanio > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Demasiadas partidas para un archivo: " + cantidad);
+        }
+        return tamanio;
+    }
+    
+    /**
+     * Guarda el resultado de la partida i, ya jugada hasta el final
+     *
+     * @param partida estadísticas de esa sola partida
+     */
+    void escribir(long i, Juego juego, EstadisticasSimulacion partida) {
+        int base = posicion(i);
+        datos.putLong(base + SEMILLA, MotorSimulacion.semillaPartida(semillaBase, i));
+        datos.putInt(base + TURNOS, (int) partida.getTurnos());
+        datos.putShort(base + MANOS, (short) partida.getManos());
+        
+        Jugador ganador = juego.getGanador();
+        Mano.ResultadoCierre ultimo = juego.getUltimoCierre();
+        datos.put(base + GANADOR, (byte) (ganador == null ? -1 : juego.getJugadores().indexOf(ganador)));
+        datos.put(base + TIPO_FINAL, (byte) (ganador == null || ultimo == null ? -1 : ultimo.getTipo().ordinal()));
+        for (Mano.TipoCierre tipo : TIPOS) {
+            datos.putShort(base + CIERRES + 2 * tipo.ordinal(), (short) partida.getCierres(tipo));
+        }
+        datos.putShort(base + CHINCHONES, (short) partida.getChinchones());
+        List<Jugador> lista = juego.getJugadores();
+        for (int asiento = 0; asiento < MAX_JUGADORES; asiento++) {
+            int puntos = asiento < lista.size() ? lista.get(asiento).getPuntos() : 0;
+            datos.putShort(base + PUNTOS + 2 * asiento, (short) puntos);
+        }
+        datos.put(base + BLOQUEADA, (byte) (partida.getPartidasBloqueadas() > 0 ? 1 : 0));
+        datos.put(base + ESTADO, COMPLETO);
+    }
+    
+    /**
+     * Manda al disco lo escrito (para sobrevivir a algo más que la caída del proceso)
+     */
+    void forzar() {
+        datos.force();
+    }
+    
+    /**
+     * Suma todas las partidas completas a las estadísticas y los puntos
+     * finales de cada asiento a puntos; devuelve cuántas sumó
+     */
+    public long sumarA(EstadisticasSimulacion estadisticas, long[] puntos) {
+        int[] cierres = new int[TIPOS.length];
+        long sumadas = 0;
+        for (long i = desde; i < hasta; i++) {
+            if (!estaCompleta(i)) {
+                continue;
+            }
+            int base = posicion(i);
+            for (int t = 0; t < cierres.length; t++) {
+                cierres[t] = datos.getShort(base + CIERRES + 2 * t);
+            }
+            estadisticas.sumarPartida(datos.get(base + GANADOR), datos.get(base + TIPO_FINAL),
+                                      datos.get(base + BLOQUEADA) != 0, datos.getShort(base + MANOS),
+                                      datos.getInt(base + TURNOS), datos.getShort(base + CHINCHONES), cierres);
+            for (int asiento = 0; asiento < jugadores; asiento++) {
+                puntos[asiento] += datos.getShort(base + PUNTOS + 2 * asiento);
+            }
+            sumadas++;
+        }
+        return sumadas;
+    }
+    
+    private int posicion(long i) {
+        if (i < desde || i >= hasta) {
+            throw new IndexOutOfBoundsException("Partida " + i + " fuera de [" + desde + ", " + hasta + ")");
+        }
+        return (int) (TAMANIO_CABECERA + (i - desde) * TAMANIO_REGISTRO);
+    }
+    
+    public boolean estaCompleta(long i) {
+        return datos.get(posicion(i) + ESTADO) == COMPLETO;
+    }
+    
+    /**
+     * Cantidad de partidas del rango que ya están completas
+     */
+    public long contarCompletas() {
+        long completas = 0;
+        for (long i = desde; i < hasta; i++) {
+            if (estaCompleta(i)) {
+                completas++;
+            }
+        }
+        return completas;
+    }
+    
+    public int getJugadores() {
+        return jugadores;
+    }
+    
+    public long getSemillaBase() {
+        return semillaBase;
+    }
+    
+    public long getDesde() {
+        return desde;
+    }
+    
+    public long getHasta() {
+        return hasta;
+    }
+    
+    public long getCantidad() {
+        return hasta - desde;
+    }
+    
+    public long getSemilla(long i) {
+        return datos.getLong(posicion(i) + SEMILLA);
+    }
+    
+    /**
+     * Asiento ganador de la partida i, o -1 si no hubo ganador
+     */
+    public int getGanador(long i) {
+        return datos.get(posicion(i) + GANADOR);
+    }
+    
+    /**
+     * Tipo del cierre que terminó la partida i, o null si no hubo ganador
+     */
+    public Mano.TipoCierre getTipoFinal(long i) {
+        int tipo = datos.get(posicion(i) + TIPO_FINAL);
+        return tipo < 0 ? null : TIPOS[tipo];
+    }
+    
+    public int getManos(long i) {
+        return datos.getShort(posicion(i) + MANOS);
+    }
+    
+    public int getTurnos(long i) {
+        return datos.getInt(posicion(i) + TURNOS);
+    }
+    
+    public int getCierres(long i, Mano.TipoCierre tipo) {
+        return datos.getShort(posicion(i) + CIERRES + 2 * tipo.ordinal());
+    }
+    
+    public int getChinchones(long i) {
+        return datos.getShort(posicion(i) + CHINCHONES);
+    }
+    
+    public int getPuntos(long i, int asiento) {
+        return datos.getShort(posicion(i) + PUNTOS + 2 * asiento);
+    }
+    
+    public boolean estaBloqueada(long i) {
+        return datos.get(posicion(i) + BLOQUEADA) != 0;
+    }
+}
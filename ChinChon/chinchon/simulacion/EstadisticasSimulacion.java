@@ -0,0 +1,188 @@
+package chinchon.simulacion;
+
+import chinchon.modelo.Mano;
+
+/**
+ * Clase EstadisticasSimulacion - acumula los resultados de un lote de partidas
+ * 
+ * Cada tarea de la simulación llena sus propias estadísticas y al final se
+ * combinan, así que no necesita sincronización.
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class EstadisticasSimulacion {
+    
+    private static final Mano.TipoCierre[] TIPOS = Mano.TipoCierre.values();
+    
+    private long partidas;
+    private long partidasBloqueadas;
+    private long partidasConGanador;
+    private long manos;
+    private long turnos;
+    private long chinchones;
+    private long[] cierresPorTipo;
+    private long[] victoriasPorTipo; // tipo del cierre con el que terminó la partida
+    private long[] victoriasPorAsiento;
+    private long nanosegundos;
+    
+    public EstadisticasSimulacion(int numJugadores) {
+        cierresPorTipo = new long[TIPOS.length];
+        victoriasPorTipo = new long[TIPOS.length];
+        victoriasPorAsiento = new long[numJugadores];
+    }
+    
+    /**
+     * Registra una mano cerrada
+     */
+    void registrarCierre(Mano.ResultadoCierre cierre, int turnosDeLaMano) {
+        manos++;
+        turnos += turnosDeLaMano;
+        cierresPorTipo[cierre.getTipo().ordinal()]++;
+        if (cierre.getTipo() == Mano.TipoCierre.ESCALERA_7 && cierre.getNumComodines() == 0) {
+            chinchones++;
+        }
+    }
+    
+    /**
+     * Registra el final de una partida (asiento ganador -1 si no hubo ganador)
+     */
+    void registrarPartida(int asientoGanador, Mano.ResultadoCierre ultimoCierre, boolean bloqueada) {
+        partidas++;
+        if (bloqueada) {
+            partidasBloqueadas++;
+        }
+        if (asientoGanador >= 0) {
+            partidasConGanador++;
+            victoriasPorAsiento[asientoGanador]++;
+            if (ultimoCierre != null) {
+                victoriasPorTipo[ultimoCierre.getTipo().ordinal()]++;
+            }
+        }
+    }
+    
+    /**
+     * Suma una partida ya resumida (ver ArchivoResultados); tipoFinal es el
+     * ordinal del último cierre, o -1
+     */
+    void sumarPartida(int asientoGanador, int tipoFinal, boolean bloqueada, int manos, int turnos,
+                      int chinchones, int[] cierres) {
+        partidas++;
+        if (bloqueada) {
+            partidasBloqueadas++;
+        }
+        this.manos += manos;
+        this.turnos += turnos;
+        this.chinchones += chinchones;
+        for (int i = 0; i < cierres.length; i++) {
+            cierresPorTipo[i] += cierres[i];
+        }
+        if (asientoGanador >= 0) {
+            partidasConGanador++;
+            victoriasPorAsiento[asientoGanador]++;
+            if (tipoFinal >= 0) {
+                victoriasPorTipo[tipoFinal]++;
+            }
+        }
+    }
+    
+    /**
+     * Suma las estadísticas de otro lote a este
+     */
+    public void combinar(EstadisticasSimulacion otra) {
+        partidas += otra.partidas;
+        partidasBloqueadas += otra.partidasBloqueadas;
+        partidasConGanador += otra.partidasConGanador;
+        manos += otra.manos;
+        turnos += otra.turnos;
+        chinchones += otra.chinchones;
+        for (int i = 0; i < TIPOS.length; i++) {
+            cierresPorTipo[i] += otra.cierresPorTipo[i];
+            victoriasPorTipo[i] += otra.victoriasPorTipo[i];
+        }
+        for (int i = 0; i < victoriasPorAsiento.length; i++) {
+            victoriasPorAsiento[i] += otra.victoriasPorAsiento[i];
+        }
+    }
+    
+    void setNanosegundos(long nanosegundos) {
+        this.nanosegundos = nanosegundos;
+    }
+    
+    public long getPartidas() {
+        return partidas;
+    }
+    
+    public long getPartidasBloqueadas() {
+        return partidasBloqueadas;
+    }
+    
+    /**
+     * Partidas que terminaron con un ganador (las demás se cortaron sin ganador,
+     * bloqueadas o no)
+     */
+    public long getPartidasConGanador() {
+        return partidasConGanador;
+    }
+    
+    public long getManos() {
+        return manos;
+    }
+    
+    public long getTurnos() {
+        return turnos;
+    }
+    
+    public long getChinchones() {
+        return chinchones;
+    }
+    
+    public long getCierres(Mano.TipoCierre tipo) {
+        return cierresPorTipo[tipo.ordinal()];
+    }
+    
+    public long getVictorias(Mano.TipoCierre tipo) {
+        return victoriasPorTipo[tipo.ordinal()];
+    }
+    
+    public long getVictoriasAsiento(int asiento) {
+        return victoriasPorAsiento[asiento];
+    }
+    
+    public double getSegundos() {
+        return nanosegundos / 1e9;
+    }
+    
+    public double partidasPorSegundo() {
+        return partidas / getSegundos();
+    }
+    
+    public double manosPorSegundo() {
+        return manos / getSegundos();
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Partidas: %d (%d con ganador) en %.2f s%n", partidas, partidasConGanador, getSegundos()));
+        sb.append(String.format("  Sin ganador: %d (%.2f%%), %d de ellas bloqueadas%n", partidas - partidasConGanador,
+            porcentaje(partidas - partidasConGanador, partidas), partidasBloqueadas));
+        sb.append(String.format("  %.0f partidas/s, %.0f manos/s, %.1f turnos por mano%n",
+            partidasPorSegundo(), manosPorSegundo(), manos == 0 ? 0.0 : (double) turnos / manos));
+        sb.append(String.format("Manos cerradas: %d (%d chinchones)%n", manos, chinchones));
+        for (Mano.TipoCierre tipo : TIPOS) {
+            sb.append(String.format("  %-28s %6.2f%% de los cierres, %6.2f%% de las partidas ganadas%n", tipo,
+                porcentaje(cierresPorTipo[tipo.ordinal()], manos),
+                porcentaje(victoriasPorTipo[tipo.ordinal()], partidasConGanador)));
+        }
+        sb.append("Victorias por asiento (de las partidas con ganador):");
+        for (int i = 0; i < victoriasPorAsiento.length; i++) {
+            sb.append(String.format(" %d: %.2f%%", i + 1, porcentaje(victoriasPorAsiento[i], partidasConGanador)));
+        }
+        return sb.toString();
+    }
+    
+    private static double porcentaje(long parte, long total) {
+        return total == 0 ? 0.0 : 100.0 * parte / total;
+    }
+}
@@ -0,0 +1,29 @@
+package chinchon.simulacion;
+
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+
+/**
+ * Interfaz Estrategia - decide las jugadas de un jugador automático
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public interface Estrategia {
+    /**
+     * Decide si tomar la carta del pozo (true) o del mazo (false)
+     */
+    boolean tomarDelPozo(Juego juego, Jugador jugador);
+    
+    /**
+     * Elige el índice de la carta a descartar (la mano tiene 8 cartas)
+     */
+    int elegirDescarte(Juego juego, Jugador jugador);
+    
+    /**
+     * Decide si reengancharse al pasar los 100 puntos
+     */
+    default boolean reenganchar(Juego juego, Jugador jugador) {
+        return true;
+    }
+}
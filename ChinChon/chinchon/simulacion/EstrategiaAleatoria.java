@@ -0,0 +1,30 @@
+package chinchon.simulacion;
+
+import java.util.random.RandomGenerator;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+
+/**
+ * Clase EstrategiaAleatoria - juega al azar (sirve como referencia mínima)
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class EstrategiaAleatoria implements Estrategia {
+    
+    private RandomGenerator aleatorio;
+    
+    public EstrategiaAleatoria(RandomGenerator aleatorio) {
+        this.aleatorio = aleatorio;
+    }
+    
+    @Override
+    public boolean tomarDelPozo(Juego juego, Jugador jugador) {
+        return aleatorio.nextBoolean();
+    }
+    
+    @Override
+    public int elegirDescarte(Juego juego, Jugador jugador) {
+        return aleatorio.nextInt(jugador.getMano().getNumeroCartas());
+    }
+}
@@ -0,0 +1,473 @@
+package chinchon.simulacion;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+import chinchon.modelo.Carta;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+import chinchon.modelo.Pozo;
+
+/**
+ * Clase EstrategiaMCTS - jugador automático con búsqueda Monte Carlo en árbol
+ * sobre conjuntos de información (ISMCTS)
+ *
+ * En cada iteración se sortean las cartas que el jugador no ve (manos de los
+ * rivales y orden del mazo) de forma consistente con su mano y el pozo, se
+ * baja por el árbol de decisiones propias (de dónde robar, qué descartar)
+ * y se juega el resto de la mano con una política rápida. Cada hilo arma su
+ * propio árbol durante el tiempo disponible y al final se suman las visitas
+ * de la raíz.
+ *
+ * Uso para medir rendimiento: java chinchon.simulacion.EstrategiaMCTS [ms por decisión] [hilos] [decisiones]
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class EstrategiaMCTS implements Estrategia {
+
+    private static final int ACCION_MAZO = 0;
+    private static final int ACCION_POZO = 1;
+    private static final double EXPLORACION = 0.7;
+    private static final int MAX_TURNOS_SIMULADOS = 200;
+    private static final double PUNTOS_REFERENCIA = 50.0;
+
+    private final long nanosPorDecision;
+    private final int hilos;
+    private final ForkJoinPool pool;
+    private final SplittableRandom aleatorio;
+
+    // Estadísticas para dimensionar hardware
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicLong nanosBuscando = new AtomicLong();
+    private final AtomicLong decisiones = new AtomicLong();
+
+    /**
+     * @param milisegundosPorDecision tiempo de reloj para cada decisión
+     * @param pool pool donde corren las búsquedas en paralelo
+     * @param hilos cantidad de árboles que se buscan en paralelo
+     * @param semilla semilla para los sorteos
+     */
+    public EstrategiaMCTS(long milisegundosPorDecision, ForkJoinPool pool, int hilos, long semilla) {
+        this.nanosPorDecision = milisegundosPorDecision * 1_000_000L;
+        this.pool = pool;
+        this.hilos = hilos;
+        this.aleatorio = new SplittableRandom(semilla);
+    }
+
+    /**
+     * Usa el pool común con un árbol por núcleo
+     */
+    public EstrategiaMCTS(long milisegundosPorDecision, long semilla) {
+        this(milisegundosPorDecision, ForkJoinPool.commonPool(),
+             Runtime.getRuntime().availableProcessors(), semilla);
+    }
+
+    @Override
+    public boolean tomarDelPozo(Juego juego, Jugador jugador) {
+        if (juego.getPozo().estaVacio()) {
+            return false;
+        }
+        if (juego.getMazo().estaVacio()) {
+            return true;
+        }
+        long[] visitas = buscar(new Situacion(juego, true));
+        return visitas[ACCION_POZO] > visitas[ACCION_MAZO];
+    }
+
+    @Override
+    public int elegirDescarte(Juego juego, Jugador jugador) {
+        long mano = jugador.getMano().getMascara();
+        long[] visitas = buscar(new Situacion(juego, false));
+        long mejorBit = Long.lowestOneBit(mano);
+        for (long resto = mano; resto != 0; resto &= resto - 1) {
+            int ordinal = Long.numberOfTrailingZeros(resto);
+            if (visitas[ordinal] > visitas[Long.numberOfTrailingZeros(mejorBit)]) {
+                mejorBit = 1L << ordinal;
+            }
+        }
+        return Long.bitCount(mano & (mejorBit - 1));
+    }
+
+    /**
+     * Corre un árbol por hilo hasta agotar el tiempo y suma las visitas de la raíz
+     */
+    private long[] buscar(Situacion situacion) {
+        long inicio = System.nanoTime();
+        long limite = inicio + nanosPorDecision;
+        List<Callable<long[]>> tareas = new ArrayList<>(hilos);
+        for (int i = 0; i < hilos; i++) {
+            SplittableRandom propio = aleatorio.split();
+            tareas.add(() -> new Busqueda(situacion, propio).correr(limite));
+        }
+
+        long[] visitas = new long[64];
+        try {
+            for (Future<long[]> resultado : pool.invokeAll(tareas)) {
+                long[] parciales = resultado.get();
+                for (int i = 0; i < visitas.length; i++) {
+                    visitas[i] += parciales[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló la búsqueda", e.getCause());
+        }
+        nanosBuscando.addAndGet(System.nanoTime() - inicio);
+        decisiones.incrementAndGet();
+        return visitas;
+    }
+
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    public long getDecisiones() {
+        return decisiones.get();
+    }
+
+    /**
+     * Partidas simuladas por segundo de reloj (sumando todos los hilos)
+     */
+    public double getPlayoutsPorSegundo() {
+        long nanos = nanosBuscando.get();
+        return nanos == 0 ? 0.0 : playouts.get() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MCTS: %d decisiones, %d playouts, %.0f playouts/s con %d hilos",
+            getDecisiones(), getPlayouts(), getPlayoutsPorSegundo(), hilos);
+    }
+
+    /**
+     * Lo que el jugador sabe al decidir: su mano, el pozo, cuántas cartas tiene
+     * cada rival, cuántas quedan en el mazo y qué cartas levantaron los rivales
+     * del pozo (esas no pueden estar en el mazo)
+     */
+    private static final class Situacion {
+        final boolean decideRobo;
+        final int yo;
+        final int numJugadores;
+        final long miMano;
+        final long noVistas;
+        final int[] cartasPorJugador;
+        final long[] conocidas;
+        final byte[] tomadasSinDueno;
+        final int enMazo;
+        final byte[] pozo;
+        final boolean primeraVuelta;
+
+        Situacion(Juego juego, boolean decideRobo) {
+            this.decideRobo = decideRobo;
+            List<Jugador> jugadores = juego.getJugadores();
+            numJugadores = jugadores.size();
+            yo = juego.getIndiceJugadorActual();
+            miMano = jugadores.get(yo).getMano().getMascara();
+            cartasPorJugador = new int[numJugadores];
+            for (int i = 0; i < numJugadores; i++) {
+                cartasPorJugador[i] = jugadores.get(i).getMano().getNumeroCartas();
+            }
+            Pozo cartasPozo = juego.getPozo();
+            pozo = new byte[cartasPozo.getNumeroCartas()];
+            for (int i = 0; i < pozo.length; i++) {
+                pozo[i] = (byte) cartasPozo.getOrdinal(i);
+            }
+            // Lo que se descartó y ya no está en el pozo lo tiene algún rival;
+            // con un solo rival se sabe cuál, con más se reparte entre ellos
+            long tomadas = cartasPozo.getMascaraDescartadas() & ~cartasPozo.getMascara() & ~miMano;
+            conocidas = new long[numJugadores];
+            if (numJugadores == 2) {
+                conocidas[1 - yo] = tomadas;
+                tomadasSinDueno = new byte[0];
+            } else {
+                tomadasSinDueno = new byte[Long.bitCount(tomadas)];
+                int i = 0;
+                for (long resto = tomadas; resto != 0; resto &= resto - 1) {
+                    tomadasSinDueno[i++] = (byte) Long.numberOfTrailingZeros(resto);
+                }
+            }
+            enMazo = juego.getMazo().getNumeroCartas();
+            noVistas = juego.getMazo().getMascaraCompleta() & ~miMano & ~cartasPozo.getMascara() & ~tomadas;
+            primeraVuelta = juego.esPrimeraVuelta();
+        }
+    }
+
+    /**
+     * Estadísticas de un nodo del árbol, indexadas por acción
+     * (0/1 para el robo, ordinal de la carta para el descarte)
+     */
+    private static final class Nodo {
+        final int[] visitas = new int[64];
+        final double[] suma = new double[64];
+        final int[] disponibles = new int[64];
+        final Nodo[] hijos = new Nodo[2];
+
+        /**
+         * Elige entre las acciones disponibles con UCB sobre su disponibilidad
+         */
+        int seleccionar(long acciones, RandomGenerator r) {
+            int elegida = -1;
+            double mejor = Double.NEGATIVE_INFINITY;
+            int sinVisitar = 0;
+            for (long resto = acciones; resto != 0; resto &= resto - 1) {
+                int a = Long.numberOfTrailingZeros(resto);
+                disponibles[a]++;
+                double valor;
+                if (visitas[a] == 0) {
+                    // Entre las no visitadas, una al azar
+                    sinVisitar++;
+                    valor = Double.MAX_VALUE;
+                    if (r.nextInt(sinVisitar) != 0) {
+                        continue;
+                    }
+                } else {
+                    valor = suma[a] / visitas[a]
+                        + EXPLORACION * Math.sqrt(Math.log(disponibles[a]) / visitas[a]);
+                }
+                if (valor >= mejor) {
+                    mejor = valor;
+                    elegida = a;
+                }
+            }
+            return elegida;
+        }
+
+        void actualizar(int accion, double recompensa) {
+            visitas[accion]++;
+            suma[accion] += recompensa;
+        }
+    }
+
+    /**
+     * Una búsqueda (un árbol) que corre en un solo hilo
+     */
+    private final class Busqueda {
+        private final Situacion situacion;
+        private final RandomGenerator r;
+        private final Nodo raiz = new Nodo();
+
+        // Estado sorteado y simulado, reutilizado en cada iteración
+        private final long[] manos;
+        private final byte[] mazo;
+        private final byte[] pozo;
+        private final byte[] noVistas;
+        private final byte[] lugares;
+        private final int[] libres;
+        private int enMazo;
+        private int enPozo;
+
+        Busqueda(Situacion situacion, RandomGenerator r) {
+            this.situacion = situacion;
+            this.r = r;
+            manos = new long[situacion.numJugadores];
+            mazo = new byte[64];
+            pozo = new byte[64];
+            noVistas = new byte[Long.bitCount(situacion.noVistas)];
+            int i = 0;
+            for (long resto = situacion.noVistas; resto != 0; resto &= resto - 1) {
+                noVistas[i++] = (byte) Long.numberOfTrailingZeros(resto);
+            }
+            // Un lugar por cada carta de los rivales, con el asiento del dueño
+            int totalLugares = 0;
+            for (int p = 0; p < situacion.numJugadores; p++) {
+                if (p != situacion.yo) {
+                    totalLugares += situacion.cartasPorJugador[p];
+                }
+            }
+            lugares = new byte[totalLugares];
+            i = 0;
+            for (int p = 0; p < situacion.numJugadores; p++) {
+                for (int k = 0; p != situacion.yo && k < situacion.cartasPorJugador[p]; k++) {
+                    lugares[i++] = (byte) p;
+                }
+            }
+            libres = new int[situacion.numJugadores];
+        }
+
+        long[] correr(long limite) {
+            long iteraciones = 0;
+            do {
+                iterar();
+                iteraciones++;
+            } while (System.nanoTime() < limite);
+            playouts.addAndGet(iteraciones);
+
+            long[] visitas = new long[64];
+            for (int a = 0; a < 64; a++) {
+                visitas[a] = raiz.visitas[a];
+            }
+            return visitas;
+        }
+
+        private void iterar() {
+            determinizar();
+            int yo = situacion.yo;
+            long mano = manos[yo];
+
+            Nodo nodoDescarte = raiz;
+            int robo = -1;
+            if (situacion.decideRobo) {
+                long robos = (enPozo > 0 ? 1L << ACCION_POZO : 0) | (enMazo > 0 ? 1L << ACCION_MAZO : 0);
+                robo = raiz.seleccionar(robos, r);
+                mano |= 1L << (robo == ACCION_POZO ? pozo[--enPozo] : mazo[--enMazo]);
+                if (raiz.hijos[robo] == null) {
+                    raiz.hijos[robo] = new Nodo();
+                }
+                nodoDescarte = raiz.hijos[robo];
+            }
+
+            int descarte = nodoDescarte.seleccionar(mano, r);
+            mano &= ~(1L << descarte);
+            manos[yo] = mano;
+            pozo[enPozo++] = (byte) descarte;
+
+            double recompensa;
+            if (!situacion.primeraVuelta && Mano.evaluar(mano).puedeCerrar()) {
+                recompensa = 1.0;
+            } else {
+                recompensa = simular();
+            }
+
+            nodoDescarte.actualizar(descarte, recompensa);
+            if (robo >= 0) {
+                raiz.actualizar(robo, recompensa);
+            }
+        }
+
+        /**
+         * Sortea las cartas no vistas entre las manos de los rivales y el mazo.
+         * Las que algún rival levantó del pozo (sin saber cuál) van solo a las
+         * manos de los rivales, en lugares al azar.
+         */
+        private void determinizar() {
+            for (int i = noVistas.length - 1; i > 0; i--) {
+                int j = r.nextInt(i + 1);
+                byte temporal = noVistas[i];
+                noVistas[i] = noVistas[j];
+                noVistas[j] = temporal;
+            }
+            for (int p = 0; p < situacion.numJugadores; p++) {
+                manos[p] = p == situacion.yo ? situacion.miMano : situacion.conocidas[p];
+                libres[p] = situacion.cartasPorJugador[p] - Long.bitCount(manos[p]);
+            }
+            byte[] tomadas = situacion.tomadasSinDueno;
+            for (int i = 0; i < tomadas.length; i++) {
+                int j = i + r.nextInt(lugares.length - i);
+                byte temporal = lugares[i];
+                lugares[i] = lugares[j];
+                lugares[j] = temporal;
+                manos[lugares[i]] |= 1L << tomadas[i];
+                libres[lugares[i]]--;
+            }
+            int siguiente = 0;
+            for (int p = 0; p < situacion.numJugadores; p++) {
+                if (p == situacion.yo) {
+                    continue;
+                }
+                for (int k = 0; k < libres[p]; k++) {
+                    manos[p] |= 1L << noVistas[siguiente++];
+                }
+            }
+            enMazo = 0;
+            while (siguiente < noVistas.length && enMazo < situacion.enMazo) {
+                mazo[enMazo++] = noVistas[siguiente++];
+            }
+            System.arraycopy(situacion.pozo, 0, pozo, 0, situacion.pozo.length);
+            enPozo = situacion.pozo.length;
+        }
+
+        /**
+         * Juega el resto de la mano con la política rápida y devuelve la recompensa del jugador
+         */
+        private double simular() {
+            int yo = situacion.yo;
+            int numJugadores = situacion.numJugadores;
+            int turno = yo;
+            int vueltaRestante = situacion.primeraVuelta ? numJugadores : 0;
+            for (int t = 0; t < MAX_TURNOS_SIMULADOS; t++) {
+                turno = (turno + 1) % numJugadores;
+                if (manos[turno] == 0L) {
+                    continue; // jugador eliminado
+                }
+                vueltaRestante--;
+                long mano = manos[turno];
+
+                // Robar: el pozo si la carta queda ligada, si no el mazo
+                if (enPozo > 0 && (enMazo == 0 || quedaLigada(mano, pozo[enPozo - 1]))) {
+                    mano |= 1L << pozo[--enPozo];
+                } else if (enMazo > 0) {
+                    mano |= 1L << mazo[--enMazo];
+                } else {
+                    break;
+                }
+
+                // Descartar la carta suelta de más puntos
+                long descarte = peorSuelta(mano);
+                mano &= ~descarte;
+                manos[turno] = mano;
+                pozo[enPozo++] = (byte) Long.numberOfTrailingZeros(descarte);
+
+                if (vueltaRestante <= 0 && Mano.evaluar(mano).puedeCerrar()) {
+                    return turno == yo ? 1.0 : valorSinCerrar();
+                }
+            }
+            return valorSinCerrar();
+        }
+
+        private double valorSinCerrar() {
+            int puntos = Mano.evaluar(manos[situacion.yo]).getPuntosNoLigadas();
+            return 0.5 * Math.max(0.0, 1.0 - puntos / PUNTOS_REFERENCIA);
+        }
+    }
+
+    private static boolean quedaLigada(long mano, int ordinal) {
+        long bit = 1L << ordinal;
+        return (Mano.cartasLigadas(mano | bit) & bit) != 0;
+    }
+
+    /**
+     * Bit de la carta suelta de más puntos (o de la más alta si están todas ligadas)
+     */
+    private static long peorSuelta(long mano) {
+        long sueltas = mano & ~Mano.cartasLigadas(mano);
+        long candidatas = sueltas != 0 ? sueltas : mano;
+        long peor = 0L;
+        int peorValor = -1;
+        for (long resto = candidatas; resto != 0; resto &= resto - 1) {
+            int ordinal = Long.numberOfTrailingZeros(resto);
+            int valor = Carta.porOrdinal(ordinal).getValorPuntos();
+            if (valor >= peorValor) {
+                peorValor = valor;
+                peor = 1L << ordinal;
+            }
+        }
+        return peor;
+    }
+
+    public static void main(String[] args) {
+        long milisegundos = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        int hilos = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int decisiones = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        EstrategiaMCTS bot = new EstrategiaMCTS(milisegundos, pool, hilos, 1);
+        Juego juego = new Juego(4, true, 2, new SplittableRandom(1));
+        for (int i = 0; i < decisiones && !juego.isPartidaTerminada() && !juego.isManoCerrada(); i++) {
+            Jugador jugador = juego.getJugadorActual();
+            boolean delPozo = bot.tomarDelPozo(juego, jugador);
+            if (!(delPozo ? juego.tomarDelPozo() : juego.tomarDelMazo())) {
+                break;
+            }
+            juego.descartarCarta(bot.elegirDescarte(juego, jugador));
+        }
+        System.out.println(bot);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,90 @@
+package chinchon.simulacion;
+
+import chinchon.modelo.Carta;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+
+/**
+ * Clase EstrategiaVoraz - en cada turno busca el descarte que deja menos
+ * puntos sin ligar, y cierra en cuanto puede
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class EstrategiaVoraz implements Estrategia {
+    
+    private static final int PREMIO_CIERRE = 100;
+    
+    @Override
+    public boolean tomarDelPozo(Juego juego, Jugador jugador) {
+        Carta arriba = juego.getPozo().verCartaSuperior();
+        if (arriba == null) {
+            return false;
+        }
+        long mano = jugador.getMano().getMascara();
+        long bitPozo = 1L << arriba.getOrdinal();
+        boolean puedeCerrar = !juego.esPrimeraVuelta();
+        
+        // Tomarla solo si con el mejor descarte (que no sea ella misma) la mano mejora
+        int actual = valorar(Mano.evaluar(mano), puedeCerrar);
+        long conPozo = mano | bitPozo;
+        int mejor = Integer.MAX_VALUE;
+        for (long resto = mano; resto != 0; resto &= resto - 1) {
+            long descarte = Long.lowestOneBit(resto);
+            mejor = Math.min(mejor, valorar(Mano.evaluar(conPozo & ~descarte), puedeCerrar));
+        }
+        return mejor < actual;
+    }
+    
+    @Override
+    public int elegirDescarte(Juego juego, Jugador jugador) {
+        long mano = jugador.getMano().getMascara();
+        return indiceDe(mano, mejorDescarte(mano, !juego.esPrimeraVuelta()));
+    }
+    
+    /**
+     * Bit de la carta cuyo descarte deja la mejor mano
+     * (a igual valor, la de más puntos, para no quedarse con cartas altas)
+     */
+    static long mejorDescarte(long mano, boolean puedeCerrar) {
+        long mejorBit = Long.lowestOneBit(mano);
+        int mejor = Integer.MAX_VALUE;
+        for (long resto = mano; resto != 0; resto &= resto - 1) {
+            long descarte = Long.lowestOneBit(resto);
+            int valor = valorar(Mano.evaluar(mano & ~descarte), puedeCerrar);
+            if (valor < mejor || valor == mejor && valorCarta(descarte) > valorCarta(mejorBit)) {
+                mejor = valor;
+                mejorBit = descarte;
+            }
+        }
+        return mejorBit;
+    }
+    
+    /**
+     * Valor de una mano para la estrategia: puntos sin ligar, con un premio si puede cerrar
+     */
+    static int valorar(Mano.ResultadoCierre resultado, boolean puedeCerrar) {
+        int valor = resultado.getPuntosNoLigadas();
+        if (puedeCerrar && resultado.puedeCerrar()) {
+            valor -= PREMIO_CIERRE;
+            if (resultado.getTipo() == Mano.TipoCierre.ESCALERA_7) {
+                valor -= PREMIO_CIERRE - 25 * resultado.getNumComodines();
+            } else if (resultado.getTipo() == Mano.TipoCierre.DOS_GRUPOS_3_4) {
+                valor -= 10;
+            }
+        }
+        return valor;
+    }
+    
+    private static int valorCarta(long bit) {
+        return Carta.porOrdinal(Long.numberOfTrailingZeros(bit)).getValorPuntos();
+    }
+    
+    /**
+     * Índice en la mano (orden de Mano.obtenerCarta) de la carta con el bit dado
+     */
+    static int indiceDe(long mano, long bit) {
+        return Long.bitCount(mano & (bit - 1));
+    }
+}
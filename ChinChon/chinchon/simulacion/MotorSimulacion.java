@@ -0,0 +1,241 @@
+package chinchon.simulacion;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import chinchon.modelo.CacheEvaluaciones;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+
+/**
+ * Clase MotorSimulacion - juega partidas completas de Chin-Chon sin consola,
+ * repartiendo las partidas entre todos los núcleos con un ForkJoinPool
+ * 
+ * Cada partida se identifica por su semilla, así que cualquier partida del
+ * lote se puede volver a jugar igual con jugarPartida.
+ * 
+ * Uso: java chinchon.simulacion.MotorSimulacion [partidas] [jugadores] [hilos]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class MotorSimulacion {
+    
+    private static final long PARTIDAS_POR_TAREA = 64;
+    static final int MAX_TURNOS_POR_MANO = 500;
+    static final int MAX_MANOS_POR_PARTIDA = 2000;
+    
+    private final int numJugadores;
+    private final List<LongFunction<Estrategia>> fabricas; // una por asiento
+    private final ForkJoinPool pool;
+    private AlmacenResultados almacen; // opcional
+    
+    /**
+     * @param numJugadores jugadores por partida
+     * @param fabricas crea la estrategia de cada asiento a partir de una semilla
+     * @param pool pool donde se reparten las partidas
+     */
+    public MotorSimulacion(int numJugadores, List<LongFunction<Estrategia>> fabricas, ForkJoinPool pool) {
+        if (fabricas.size() != numJugadores) {
+            throw new IllegalArgumentException("Se necesita una estrategia por jugador");
+        }
+        this.numJugadores = numJugadores;
+        this.fabricas = new ArrayList<>(fabricas);
+        this.pool = pool;
+    }
+    
+    /**
+     * Guarda también cada mano y cada partida en el almacén (null para no guardarlas)
+     */
+    public void setAlmacen(AlmacenResultados almacen) {
+        this.almacen = almacen;
+    }
+    
+    /**
+     * Juega las partidas con semillas derivadas de semillaBase y devuelve las estadísticas
+     */
+    public EstadisticasSimulacion simular(long semillaBase, long partidas) {
+        long inicio = System.nanoTime();
+        EstadisticasSimulacion estadisticas = pool.invoke(new Tarea(semillaBase, 0, partidas));
+        estadisticas.setNanosegundos(System.nanoTime() - inicio);
+        return estadisticas;
+    }
+    
+    /**
+     * Semilla de la partida número i de un lote (partidas independientes y reproducibles)
+     */
+    public static long semillaPartida(long semillaBase, long i) {
+        long z = semillaBase + (i + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Juega una partida completa y acumula su resultado
+     */
+    public void jugarPartida(long semilla, EstadisticasSimulacion estadisticas) {
+        jugarPartida(semilla, estadisticas, null);
+    }
+    
+    private void jugarPartida(long semilla, EstadisticasSimulacion estadisticas, AlmacenResultados.Lote lote) {
+        Estrategia[] estrategias = new Estrategia[numJugadores];
+        for (int i = 0; i < numJugadores; i++) {
+            estrategias[i] = fabricas.get(i).apply(semilla ^ (i + 1));
+        }
+        jugar(crearJuego(numJugadores, semilla), estrategias, estadisticas, semilla, lote);
+    }
+    
+    /**
+     * Partida con las reglas de la simulación (2 comodines) y la semilla dada
+     */
+    static Juego crearJuego(int numJugadores, long semilla) {
+        return new Juego(numJugadores, true, 2, new SplittableRandom(semilla));
+    }
+    
+    /**
+     * Juega hasta el final una partida con una estrategia por asiento y acumula su resultado
+     */
+    static void jugar(Juego juego, Estrategia[] estrategias, EstadisticasSimulacion estadisticas) {
+        jugar(juego, estrategias, estadisticas, 0L, null);
+    }
+    
+    /**
+     * Como jugar, guardando además cada mano cerrada y el final de la partida en el lote
+     * (si no es null) con la semilla de la partida
+     */
+    static void jugar(Juego juego, Estrategia[] estrategias, EstadisticasSimulacion estadisticas,
+                      long semilla, AlmacenResultados.Lote lote) {
+        int manos = 0;
+        int turnosDeLaMano = 0;
+        int reenganchados = 0; // un bit por asiento
+        boolean bloqueada = false;
+        while (!juego.isPartidaTerminada()) {
+            if (juego.isManoCerrada()) {
+                // Cada jugador coloca sus grupos; el último reparte la mano siguiente
+                juego.colocarGruposEnMesa();
+                continue;
+            }
+            if (turnosDeLaMano >= MAX_TURNOS_POR_MANO || manos >= MAX_MANOS_POR_PARTIDA) {
+                bloqueada = true;
+                break;
+            }
+            
+            int asiento = juego.getIndiceJugadorActual();
+            Jugador jugador = juego.getJugadorActual();
+            Estrategia estrategia = estrategias[asiento];
+            if (jugador.getPuntos() > 100 && !jugador.estaReenganchado()
+                    && estrategia.reenganchar(juego, jugador) && juego.reenganchar()) {
+                reenganchados |= 1 << asiento;
+            }
+            
+            if (!tomarCarta(juego, estrategia.tomarDelPozo(juego, jugador))) {
+                bloqueada = true; // ni mazo ni pozo tienen cartas
+                break;
+            }
+            // Para el lote: lo que suman los rivales si este descarte cierra la mano
+            int puntosRivales = lote == null ? 0 : -puntosDeLosDemas(juego, jugador);
+            int rivales = lote == null ? 0 : juego.jugadoresActivos().size() - 1;
+            if (!juego.descartarCarta(estrategia.elegirDescarte(juego, jugador))) {
+                juego.descartarCarta(0);
+            }
+            turnosDeLaMano++;
+            
+            if (juego.isManoCerrada()) {
+                Mano.ResultadoCierre cierre = juego.getUltimoCierre();
+                estadisticas.registrarCierre(cierre, turnosDeLaMano);
+                if (lote != null) {
+                    puntosRivales += puntosDeLosDemas(juego, jugador);
+                    if (cierre.getTipo() == Mano.TipoCierre.ESCALERA_7 && cierre.getNumComodines() == 0) {
+                        rivales = 0; // el chinchón termina la partida sin contar puntos
+                    }
+                    lote.agregarMano(semilla, asiento, cierre.getTipo(), cierre.getNumComodines(),
+                                     cierre.getPuntosNoLigadas(), puntosRivales, rivales, turnosDeLaMano);
+                }
+                manos++;
+                turnosDeLaMano = 0;
+            }
+        }
+        
+        Jugador ganador = juego.getGanador();
+        int asientoGanador = ganador == null ? -1 : juego.getJugadores().indexOf(ganador);
+        estadisticas.registrarPartida(asientoGanador, juego.getUltimoCierre(), bloqueada);
+        if (lote != null) {
+            lote.agregarPartida(semilla, asientoGanador, estrategias.length, manos, reenganchados, bloqueada);
+        }
+    }
+    
+    private static int puntosDeLosDemas(Juego juego, Jugador jugador) {
+        int puntos = 0;
+        for (Jugador otro : juego.getJugadores()) {
+            if (otro != jugador) {
+                puntos += otro.getPuntos();
+            }
+        }
+        return puntos;
+    }
+    
+    private static boolean tomarCarta(Juego juego, boolean delPozo) {
+        if (delPozo) {
+            return juego.tomarDelPozo() || juego.tomarDelMazo();
+        }
+        return juego.tomarDelMazo() || juego.tomarDelPozo();
+    }
+    
+    /**
+     * Divide el rango de partidas hasta lotes chicos que se juegan en un solo hilo
+     */
+    @SuppressWarnings("serial") // las tareas no se serializan
+    private class Tarea extends RecursiveTask<EstadisticasSimulacion> {
+        private final long semillaBase;
+        private final long desde;
+        private final long hasta;
+        
+        Tarea(long semillaBase, long desde, long hasta) {
+            this.semillaBase = semillaBase;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        protected EstadisticasSimulacion compute() {
+            if (hasta - desde <= PARTIDAS_POR_TAREA) {
+                EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(numJugadores);
+                AlmacenResultados.Lote lote = almacen == null ? null : almacen.nuevoLote();
+                for (long i = desde; i < hasta; i++) {
+                    jugarPartida(semillaPartida(semillaBase, i), estadisticas, lote);
+                }
+                if (lote != null) {
+                    almacen.agregar(lote);
+                }
+                return estadisticas;
+            }
+            long mitad = (desde + hasta) >>> 1;
+            Tarea izquierda = new Tarea(semillaBase, desde, mitad);
+            izquierda.fork();
+            EstadisticasSimulacion estadisticas = new Tarea(semillaBase, mitad, hasta).compute();
+            estadisticas.combinar(izquierda.join());
+            return estadisticas;
+        }
+    }
+    
+    public static void main(String[] args) {
+        long partidas = args.length > 0 ? Long.parseLong(args[0]) : 10000;
+        int jugadores = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        
+        List<LongFunction<Estrategia>> fabricas = new ArrayList<>();
+        for (int i = 0; i < jugadores; i++) {
+            fabricas.add(semilla -> new EstrategiaVoraz());
+        }
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        MotorSimulacion motor = new MotorSimulacion(jugadores, fabricas, pool);
+        System.out.println(motor.simular(System.nanoTime(), partidas));
+        if (CacheEvaluaciones.getCompartida() != null) {
+            System.out.println(CacheEvaluaciones.getCompartida());
+        }
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,220 @@
+package chinchon.simulacion;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import chinchon.modelo.Juego;
+
+/**
+ * Clase SimulacionMultiproceso - reparte un rango de partidas entre varios
+ * procesos java en la misma máquina, cada uno con su propio heap (y su
+ * propio recolector), y junta los resultados al final
+ * 
+ * Cada proceso hijo juega su parte del rango sin consola y guarda una
+ * partida por registro en su ArchivoResultados. El padre espera a los
+ * hijos, vuelve a lanzar los que terminaron con error (siguen desde las
+ * partidas que les faltaban) y suma los archivos leyéndolos mapeados.
+ * Si se corta todo, correr lo mismo sobre la misma carpeta retoma cada
+ * parte donde quedó; la semilla base se toma de los archivos que ya están.
+ * 
+ * Uso: java chinchon.simulacion.SimulacionMultiproceso [partidas] [procesos] [jugadores] [carpeta] [semilla]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class SimulacionMultiproceso {
+    
+    private static final String HIJO = "hijo";
+    private static final int REINTENTOS = 2;
+    
+    // Opciones de la JVM que no se pasan a los hijos: agentes y depuradores
+    // (abrirían el mismo puerto o archivo), grabaciones de JFR y logs
+    // (todos los hijos escribirían sobre el archivo del padre)
+    private static final String[] OPCIONES_SOLO_PADRE = {
+        "-agentlib", "-agentpath", "-javaagent", "-Xrun", "-Xdebug",
+        "-XX:StartFlightRecording", "-XX:FlightRecorderOptions", "-Xlog"
+    };
+    
+    private final long partidas;
+    private final int procesos;
+    private final int jugadores;
+    private final Path carpeta;
+    private final long semillaBase;
+    
+    /**
+     * @param carpeta donde quedan los archivos de cada proceso (parte-0.bin, parte-1.bin, ...)
+     */
+    public SimulacionMultiproceso(long partidas, int procesos, int jugadores, Path carpeta, long semillaBase) {
+        if (procesos < 1 || partidas < procesos) {
+            throw new IllegalArgumentException("Se necesita al menos un proceso y una partida por proceso");
+        }
+        this.partidas = partidas;
+        this.procesos = procesos;
+        this.jugadores = jugadores;
+        this.carpeta = carpeta;
+        this.semillaBase = semillaBase;
+    }
+    
+    /**
+     * Archivo de la parte k
+     */
+    public Path archivo(int k) {
+        return carpeta.resolve("parte-" + k + ".bin");
+    }
+    
+    private long desde(int k) {
+        return partidas * k / procesos;
+    }
+    
+    /**
+     * Lanza un proceso por cada parte que no está completa, espera a todos
+     * y devuelve las estadísticas de todas las partidas jugadas
+     *
+     * @param puntos se llena con la suma de los puntos finales de cada asiento
+     */
+    public EstadisticasSimulacion simular(long[] puntos) throws IOException, InterruptedException {
+        Files.createDirectories(carpeta);
+        long inicio = System.nanoTime();
+        List<Integer> pendientes = new ArrayList<>();
+        for (int k = 0; k < procesos; k++) {
+            if (!estaCompleta(k)) {
+                pendientes.add(k);
+            }
+        }
+        for (int intento = 0; intento <= REINTENTOS && !pendientes.isEmpty(); intento++) {
+            Map<Integer, Process> hijos = new LinkedHashMap<>();
+            for (int k : pendientes) {
+                hijos.put(k, lanzar(k));
+            }
+            pendientes = new ArrayList<>();
+            for (Map.Entry<Integer, Process> hijo : hijos.entrySet()) {
+                int salida = hijo.getValue().waitFor();
+                if (salida != 0) {
+                    System.err.println("La parte " + hijo.getKey() + " terminó con código " + salida);
+                    pendientes.add(hijo.getKey());
+                }
+            }
+        }
+        
+        EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(jugadores);
+        for (int k = 0; k < procesos; k++) {
+            if (Files.exists(archivo(k))) {
+                ArchivoResultados.leer(archivo(k)).sumarA(estadisticas, puntos);
+            }
+        }
+        estadisticas.setNanosegundos(System.nanoTime() - inicio);
+        return estadisticas;
+    }
+    
+    private boolean estaCompleta(int k) throws IOException {
+        if (!Files.exists(archivo(k))) {
+            return false;
+        }
+        ArchivoResultados archivo = ArchivoResultados.leer(archivo(k));
+        if (archivo.getSemillaBase() != semillaBase || archivo.getJugadores() != jugadores
+                || archivo.getDesde() != desde(k) || archivo.getHasta() != desde(k + 1)) {
+            throw new IOException("El archivo " + archivo(k) + " es de otra corrida (otras partidas, procesos o semilla)");
+        }
+        return archivo.contarCompletas() == archivo.getCantidad();
+    }
+    
+    /**
+     * Arranca el proceso de la parte k con el mismo java, classpath y opciones
+     * de la JVM (salvo las de OPCIONES_SOLO_PADRE)
+     */
+    private Process lanzar(int k) throws IOException {
+        List<String> comando = new ArrayList<>();
+        comando.add(ProcessHandle.current().info().command()
+                    .orElse(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        for (String opcion : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!esSoloDelPadre(opcion)) {
+                comando.add(opcion);
+            }
+        }
+        comando.add("-cp");
+        comando.add(System.getProperty("java.class.path"));
+        comando.add(SimulacionMultiproceso.class.getName());
+        comando.add(HIJO);
+        comando.add(archivo(k).toString());
+        comando.add(Integer.toString(jugadores));
+        comando.add(Long.toString(semillaBase));
+        comando.add(Long.toString(desde(k)));
+        comando.add(Long.toString(desde(k + 1)));
+        return new ProcessBuilder(comando).inheritIO().start();
+    }
+    
+    private static boolean esSoloDelPadre(String opcion) {
+        for (String prefijo : OPCIONES_SOLO_PADRE) {
+            if (opcion.startsWith(prefijo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Lo que hace cada proceso hijo: juega las partidas de [desde, hasta) que
+     * no estén completas en el archivo, con la estrategia voraz en todos los asientos
+     */
+    static void jugarParte(Path ruta, int jugadores, long semillaBase, long desde, long hasta) throws IOException {
+        ArchivoResultados archivo = ArchivoResultados.abrir(ruta, jugadores, semillaBase, desde, hasta);
+        Estrategia[] estrategias = new Estrategia[jugadores];
+        for (long i = desde; i < hasta; i++) {
+            if (archivo.estaCompleta(i)) {
+                continue;
+            }
+            for (int asiento = 0; asiento < jugadores; asiento++) {
+                estrategias[asiento] = new EstrategiaVoraz();
+            }
+            Juego juego = MotorSimulacion.crearJuego(jugadores, MotorSimulacion.semillaPartida(semillaBase, i));
+            EstadisticasSimulacion partida = new EstadisticasSimulacion(jugadores);
+            MotorSimulacion.jugar(juego, estrategias, partida);
+            archivo.escribir(i, juego, partida);
+        }
+        archivo.forzar();
+    }
+    
+    /**
+     * Semilla base de una corrida anterior en la carpeta, si la hay
+     */
+    private static OptionalLong semillaExistente(Path carpeta) throws IOException {
+        Path primera = carpeta.resolve("parte-0.bin");
+        if (!Files.exists(primera)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(ArchivoResultados.leer(primera).getSemillaBase());
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(HIJO)) {
+            jugarParte(Paths.get(args[1]), Integer.parseInt(args[2]), Long.parseLong(args[3]),
+                       Long.parseLong(args[4]), Long.parseLong(args[5]));
+            return;
+        }
+        
+        long partidas = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        int procesos = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int jugadores = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        Path carpeta = Paths.get(args.length > 3 ? args[3] : "simulacion");
+        long semilla = args.length > 4 ? Long.parseLong(args[4])
+            : semillaExistente(carpeta).orElse(System.nanoTime());
+        
+        SimulacionMultiproceso simulacion = new SimulacionMultiproceso(partidas, procesos, jugadores, carpeta, semilla);
+        long[] puntos = new long[jugadores];
+        EstadisticasSimulacion estadisticas = simulacion.simular(puntos);
+        System.out.printf("%d procesos, semilla %d, resultados en %s%n", procesos, semilla, carpeta);
+        System.out.println(estadisticas);
+        System.out.print("Puntos finales promedio por asiento:");
+        for (int i = 0; i < jugadores; i++) {
+            System.out.printf(" %d: %.1f", i + 1, (double) puntos[i] / Math.max(1, estadisticas.getPartidas()));
+        }
+        System.out.println();
+        if (estadisticas.getPartidas() < partidas) {
+            System.out.println("Faltan " + (partidas - estadisticas.getPartidas())
+                               + " partidas: volver a correr lo mismo para retomarlas");
+        }
+    }
+}
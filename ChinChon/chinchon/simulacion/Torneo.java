@@ -0,0 +1,463 @@
+package chinchon.simulacion;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+
+/**
+ * Clase Torneo - enfrenta estrategias en mesas de 2 a 4 jugadores, repartiendo
+ * las partidas en un ForkJoinPool, y las ordena por rating Elo
+ *
+ * Hay dos formatos: todos contra todos (cada combinación de estrategias juega
+ * la misma cantidad de partidas, rotando los asientos) y suizo (en cada ronda
+ * se sientan juntas las estrategias con puntaje parecido). La semilla de cada
+ * partida sale de la semilla base y de su número, así que el calendario y las
+ * partidas son reproducibles. El Elo se actualiza a medida que terminan las
+ * partidas, en el orden en que terminen, y puede variar apenas entre corridas;
+ * el puntaje y el intervalo de confianza no dependen del orden.
+ *
+ * Una partida de n jugadores cuenta como un enfrentamiento contra cada rival:
+ * gana el ganador de la partida; entre los demás, el de menos puntos
+ * (los eliminados pierden contra todos los que siguen en juego).
+ *
+ * Uso: java chinchon.simulacion.Torneo [todos|suizo] [partidas por mesa] [jugadores por mesa] [hilos] [ms del bot MCTS]
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class Torneo {
+    
+    private static final double RATING_INICIAL = 1500.0;
+    private static final double K = 16.0;
+    private static final double Z_95 = 1.96;
+    private static final int PARTIDAS_POR_TAREA = 4;
+    private static final int MAX_JUGADORES_POR_MESA = 4;
+    // Claves fijas al comparar asientos (los puntos pueden ser negativos)
+    static final int CLAVE_GANADOR = Integer.MIN_VALUE;
+    static final int CLAVE_ELIMINADO = Integer.MAX_VALUE;
+    
+    private final List<String> nombres;
+    private final List<LongFunction<Estrategia>> fabricas;
+    private final ForkJoinPool pool;
+    
+    // Estado de cada estrategia, que actualizan a la vez todas las partidas en curso
+    private final AtomicLongArray ratings; // bits del double, se actualizan con CAS
+    private final LongAdder[] partidas;
+    private final LongAdder[] victorias;
+    private final LongAdder[] mediosPuntos;   // medio punto por empate contra un rival, uno por victoria
+    private final LongAdder[] enfrentamientos; // rivales enfrentados, sumando todas las partidas
+    private final DoubleAdder[] sumaPuntaje;   // puntaje de cada partida (0 a 1) y su cuadrado,
+    private final DoubleAdder[] sumaCuadrados; // para el intervalo de confianza
+    
+    private final EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(MAX_JUGADORES_POR_MESA);
+    private long partidasProgramadas;
+    
+    /**
+     * @param nombres nombre de cada estrategia, para la clasificación
+     * @param fabricas crea cada estrategia a partir de una semilla
+     * @param pool pool donde se reparten las partidas
+     */
+    public Torneo(List<String> nombres, List<LongFunction<Estrategia>> fabricas, ForkJoinPool pool) {
+        if (nombres.size() != fabricas.size() || fabricas.size() < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 estrategias, cada una con su nombre");
+        }
+        this.nombres = new ArrayList<>(nombres);
+        this.fabricas = new ArrayList<>(fabricas);
+        this.pool = pool;
+        
+        int n = fabricas.size();
+        ratings = new AtomicLongArray(n);
+        partidas = new LongAdder[n];
+        victorias = new LongAdder[n];
+        mediosPuntos = new LongAdder[n];
+        enfrentamientos = new LongAdder[n];
+        sumaPuntaje = new DoubleAdder[n];
+        sumaCuadrados = new DoubleAdder[n];
+        for (int i = 0; i < n; i++) {
+            ratings.set(i, Double.doubleToRawLongBits(RATING_INICIAL));
+            partidas[i] = new LongAdder();
+            victorias[i] = new LongAdder();
+            mediosPuntos[i] = new LongAdder();
+            enfrentamientos[i] = new LongAdder();
+            sumaPuntaje[i] = new DoubleAdder();
+            sumaCuadrados[i] = new DoubleAdder();
+        }
+    }
+    
+    /**
+     * Cada combinación de jugadoresPorMesa estrategias juega partidasPorMesa partidas
+     */
+    public void jugarTodosContraTodos(int jugadoresPorMesa, int partidasPorMesa, long semillaBase) {
+        validarMesa(jugadoresPorMesa);
+        List<Encuentro> encuentros = new ArrayList<>();
+        int[] combinacion = new int[jugadoresPorMesa];
+        for (int i = 0; i < jugadoresPorMesa; i++) {
+            combinacion[i] = i;
+        }
+        do {
+            for (int p = 0; p < partidasPorMesa; p++) {
+                // Rotar los asientos para que nadie empiece siempre
+                int[] asientos = new int[jugadoresPorMesa];
+                for (int i = 0; i < jugadoresPorMesa; i++) {
+                    asientos[i] = combinacion[(i + p) % jugadoresPorMesa];
+                }
+                encuentros.add(new Encuentro(asientos, MotorSimulacion.semillaPartida(semillaBase, partidasProgramadas++)));
+            }
+        } while (siguienteCombinacion(combinacion, fabricas.size()));
+        jugar(encuentros);
+    }
+    
+    /**
+     * Rondas de sistema suizo: en cada ronda se ordenan las estrategias por
+     * puntaje y se sientan de a jugadoresPorMesa, en orden. Si sobra una sola
+     * estrategia, descansa esa ronda la peor ubicada de las que descansaron menos.
+     */
+    public void jugarSuizo(int jugadoresPorMesa, int rondas, int partidasPorMesa, long semillaBase) {
+        validarMesa(jugadoresPorMesa);
+        int[] descansos = new int[fabricas.size()];
+        for (int ronda = 0; ronda < rondas; ronda++) {
+            Integer[] orden = ordenarPorPuntaje();
+            if (orden.length % jugadoresPorMesa == 1) {
+                int descansa = orden.length - 1;
+                for (int i = orden.length - 2; i >= 0; i--) {
+                    if (descansos[orden[i]] < descansos[orden[descansa]]) {
+                        descansa = i;
+                    }
+                }
+                descansos[orden[descansa]]++;
+                List<Integer> juegan = new ArrayList<>(Arrays.asList(orden));
+                juegan.remove(descansa);
+                orden = juegan.toArray(new Integer[0]);
+            }
+            List<Encuentro> encuentros = new ArrayList<>();
+            for (int desde = 0; orden.length - desde >= 2; desde += jugadoresPorMesa) {
+                int enMesa = Math.min(jugadoresPorMesa, orden.length - desde);
+                for (int p = 0; p < partidasPorMesa; p++) {
+                    int[] asientos = new int[enMesa];
+                    for (int i = 0; i < enMesa; i++) {
+                        asientos[i] = orden[desde + (i + p) % enMesa];
+                    }
+                    encuentros.add(new Encuentro(asientos, MotorSimulacion.semillaPartida(semillaBase, partidasProgramadas++)));
+                }
+            }
+            jugar(encuentros);
+        }
+    }
+    
+    private void validarMesa(int jugadoresPorMesa) {
+        if (jugadoresPorMesa < 2 || jugadoresPorMesa > MAX_JUGADORES_POR_MESA
+                || jugadoresPorMesa > fabricas.size()) {
+            throw new IllegalArgumentException("Jugadores por mesa inválido: " + jugadoresPorMesa);
+        }
+    }
+    
+    /**
+     * Avanza a la siguiente combinación en orden lexicográfico; false si era la última
+     */
+    private static boolean siguienteCombinacion(int[] combinacion, int n) {
+        int k = combinacion.length;
+        int i = k - 1;
+        while (i >= 0 && combinacion[i] == n - k + i) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        combinacion[i]++;
+        for (int j = i + 1; j < k; j++) {
+            combinacion[j] = combinacion[j - 1] + 1;
+        }
+        return true;
+    }
+    
+    /**
+     * Índices de las estrategias de mayor a menor puntaje (empates por índice).
+     * Usa los medios puntos, que son enteros, para que el orden no dependa
+     * de qué partida terminó primero.
+     */
+    private Integer[] ordenarPorPuntaje() {
+        Integer[] orden = new Integer[fabricas.size()];
+        double[] puntaje = new double[orden.length];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+            long rivales = enfrentamientos[i].sum();
+            puntaje[i] = rivales == 0 ? 0.5 : mediosPuntos[i].sum() / (2.0 * rivales);
+        }
+        Arrays.sort(orden, (a, b) -> Double.compare(puntaje[b], puntaje[a]));
+        return orden;
+    }
+    
+    private void jugar(List<Encuentro> encuentros) {
+        Encuentro[] todos = encuentros.toArray(new Encuentro[0]);
+        estadisticas.combinar(pool.invoke(new Tarea(todos, 0, todos.length)));
+    }
+    
+    /**
+     * Juega una partida y registra su resultado
+     */
+    private void jugarEncuentro(Encuentro encuentro, EstadisticasSimulacion parciales) {
+        int[] asientos = encuentro.asientos;
+        Estrategia[] estrategias = new Estrategia[asientos.length];
+        for (int i = 0; i < asientos.length; i++) {
+            estrategias[i] = fabricas.get(asientos[i]).apply(encuentro.semilla ^ (i + 1));
+        }
+        Juego juego = MotorSimulacion.crearJuego(asientos.length, encuentro.semilla);
+        MotorSimulacion.jugar(juego, estrategias, parciales);
+        registrarResultado(asientos, juego);
+    }
+    
+    private void registrarResultado(int[] asientos, Juego juego) {
+        List<Jugador> jugadores = juego.getJugadores();
+        Jugador ganador = juego.getGanador();
+        int[] clave = new int[asientos.length];
+        for (int i = 0; i < asientos.length; i++) {
+            Jugador jugador = jugadores.get(i);
+            clave[i] = jugador == ganador ? CLAVE_GANADOR
+                : jugador.estaEliminado() ? CLAVE_ELIMINADO : jugador.getPuntos();
+        }
+        registrarResultado(asientos, clave);
+    }
+    
+    /**
+     * Compara cada par de asientos de la partida y actualiza el Elo de todos
+     * con los ratings que tenían al empezar la actualización
+     * @param clave de cada asiento, menor es mejor: CLAVE_GANADOR, los puntos
+     *              o CLAVE_ELIMINADO
+     */
+    void registrarResultado(int[] asientos, int[] clave) {
+        int n = asientos.length;
+        double[] rating = new double[n];
+        for (int i = 0; i < n; i++) {
+            rating[i] = Double.longBitsToDouble(ratings.get(asientos[i]));
+        }
+        
+        for (int i = 0; i < n; i++) {
+            int medios = 0;
+            double esperado = 0.0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                medios += clave[i] < clave[j] ? 2 : clave[i] == clave[j] ? 1 : 0;
+                esperado += puntajeEsperado(rating[i], rating[j]);
+            }
+            int estrategia = asientos[i];
+            sumarRating(estrategia, K / (n - 1) * (medios / 2.0 - esperado));
+            
+            double puntaje = medios / (2.0 * (n - 1));
+            partidas[estrategia].increment();
+            if (clave[i] == CLAVE_GANADOR) {
+                victorias[estrategia].increment();
+            }
+            mediosPuntos[estrategia].add(medios);
+            enfrentamientos[estrategia].add(n - 1);
+            sumaPuntaje[estrategia].add(puntaje);
+            sumaCuadrados[estrategia].add(puntaje * puntaje);
+        }
+    }
+    
+    /**
+     * Suma al rating sin bloquear: reintenta si otra partida lo cambió en el medio
+     */
+    private void sumarRating(int estrategia, double delta) {
+        long actual;
+        long nuevo;
+        do {
+            actual = ratings.get(estrategia);
+            nuevo = Double.doubleToRawLongBits(Double.longBitsToDouble(actual) + delta);
+        } while (!ratings.compareAndSet(estrategia, actual, nuevo));
+    }
+    
+    /**
+     * Clasificación actual, de mayor a menor rating
+     */
+    public List<Posicion> getClasificacion() {
+        List<Posicion> clasificacion = new ArrayList<>();
+        for (int i = 0; i < fabricas.size(); i++) {
+            long jugadas = partidas[i].sum();
+            double media = jugadas == 0 ? 0.5 : sumaPuntaje[i].sum() / jugadas;
+            double margen = 0.0;
+            if (jugadas > 1) {
+                double varianza = Math.max(0.0, sumaCuadrados[i].sum() / jugadas - media * media);
+                double error = Math.sqrt(varianza / jugadas);
+                margen = (eloDePuntaje(media + Z_95 * error) - eloDePuntaje(media - Z_95 * error)) / 2.0;
+            }
+            clasificacion.add(new Posicion(nombres.get(i), Double.longBitsToDouble(ratings.get(i)),
+                                           margen, jugadas, victorias[i].sum(), media));
+        }
+        clasificacion.sort((a, b) -> Double.compare(b.rating, a.rating));
+        return clasificacion;
+    }
+    
+    /**
+     * Puntaje esperado (0 a 1) de un rating contra otro
+     */
+    static double puntajeEsperado(double rating, double rival) {
+        return 1.0 / (1.0 + Math.pow(10.0, (rival - rating) / 400.0));
+    }
+    
+    /**
+     * Diferencia de Elo con el rival medio que corresponde a un puntaje esperado
+     */
+    static double eloDePuntaje(double puntaje) {
+        double p = Math.min(0.999, Math.max(0.001, puntaje));
+        return -400.0 * Math.log10(1.0 / p - 1.0);
+    }
+    
+    /**
+     * Estadísticas de juego de todas las partidas del torneo
+     */
+    public EstadisticasSimulacion getEstadisticas() {
+        return estadisticas;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-3s %-14s %8s %8s %9s %9s %8s%n",
+                                "#", "Estrategia", "Elo", "IC 95%", "Partidas", "Victorias", "Puntaje"));
+        int puesto = 1;
+        for (Posicion posicion : getClasificacion()) {
+            sb.append(String.format("%-3d %-14s %8.0f %8s %9d %9d %7.1f%%%n",
+                                    puesto++, posicion.nombre, posicion.rating,
+                                    String.format("±%.0f", posicion.margen),
+                                    posicion.partidas, posicion.victorias, posicion.puntaje * 100));
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Una partida programada: la estrategia de cada asiento y la semilla
+     */
+    private static final class Encuentro {
+        final int[] asientos;
+        final long semilla;
+        
+        Encuentro(int[] asientos, long semilla) {
+            this.asientos = asientos;
+            this.semilla = semilla;
+        }
+    }
+    
+    /**
+     * Divide las partidas hasta lotes chicos que se juegan en un solo hilo
+     */
+    @SuppressWarnings("serial") // las tareas no se serializan
+    private class Tarea extends RecursiveTask<EstadisticasSimulacion> {
+        private final Encuentro[] encuentros;
+        private final int desde;
+        private final int hasta;
+        
+        Tarea(Encuentro[] encuentros, int desde, int hasta) {
+            this.encuentros = encuentros;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+        
+        @Override
+        protected EstadisticasSimulacion compute() {
+            if (hasta - desde <= PARTIDAS_POR_TAREA) {
+                EstadisticasSimulacion parciales = new EstadisticasSimulacion(MAX_JUGADORES_POR_MESA);
+                for (int i = desde; i < hasta; i++) {
+                    jugarEncuentro(encuentros[i], parciales);
+                }
+                return parciales;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            Tarea izquierda = new Tarea(encuentros, desde, mitad);
+            izquierda.fork();
+            EstadisticasSimulacion parciales = new Tarea(encuentros, mitad, hasta).compute();
+            parciales.combinar(izquierda.join());
+            return parciales;
+        }
+    }
+    
+    /**
+     * Puesto de una estrategia en la clasificación
+     */
+    public static class Posicion {
+        private final String nombre;
+        private final double rating;
+        private final double margen;
+        private final long partidas;
+        private final long victorias;
+        private final double puntaje;
+        
+        Posicion(String nombre, double rating, double margen, long partidas, long victorias, double puntaje) {
+            this.nombre = nombre;
+            this.rating = rating;
+            this.margen = margen;
+            this.partidas = partidas;
+            this.victorias = victorias;
+            this.puntaje = puntaje;
+        }
+        
+        public String getNombre() {
+            return nombre;
+        }
+        
+        public double getRating() {
+            return rating;
+        }
+        
+        /**
+         * Mitad del intervalo de confianza del 95% del rating, en puntos de Elo
+         */
+        public double getMargen() {
+            return margen;
+        }
+        
+        public long getPartidas() {
+            return partidas;
+        }
+        
+        public long getVictorias() {
+            return victorias;
+        }
+        
+        /**
+         * Fracción media de rivales superados por partida
+         */
+        public double getPuntaje() {
+            return puntaje;
+        }
+    }
+    
+    public static void main(String[] args) {
+        boolean suizo = args.length > 0 && args[0].equals("suizo");
+        int partidasPorMesa = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int jugadoresPorMesa = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long msMcts = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        
+        ForkJoinPool pool = new ForkJoinPool(hilos);
+        List<String> nombres = new ArrayList<>(List.of("Voraz", "Aleatoria"));
+        List<LongFunction<Estrategia>> fabricas = new ArrayList<>();
+        fabricas.add(semilla -> new EstrategiaVoraz());
+        fabricas.add(semilla -> new EstrategiaAleatoria(new SplittableRandom(semilla)));
+        if (msMcts > 0) {
+            nombres.add("MCTS " + msMcts + "ms");
+            fabricas.add(semilla -> new EstrategiaMCTS(msMcts, pool, 1, semilla));
+        }
+        
+        Torneo torneo = new Torneo(nombres, fabricas, pool);
+        long semilla = System.nanoTime();
+        long inicio = System.nanoTime();
+        if (suizo) {
+            torneo.jugarSuizo(jugadoresPorMesa, 5, partidasPorMesa, semilla);
+        } else {
+            torneo.jugarTodosContraTodos(jugadoresPorMesa, partidasPorMesa, semilla);
+        }
+        System.out.printf("Torneo %s en %.2f s con %d hilos (semilla %d)%n",
+                          suizo ? "suizo" : "todos contra todos",
+                          (System.nanoTime() - inicio) / 1e9, hilos, semilla);
+        System.out.print(torneo);
+        pool.shutdown();
+    }
+}
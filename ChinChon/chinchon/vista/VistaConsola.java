@@ -5,9 +5,12 @@ import chinchon.modelo.Juego;
 import chinchon.modelo.Jugador;
 import chinchon.modelo.Mano;
 import chinchon.modelo.Carta;
+import chinchon.modelo.CreenciasRivales;
 import chinchon.controlador.ControladorChinchon;
+import chinchon.observador.Evento;
 import chinchon.observador.Observable;
 import chinchon.observador.Observer;
+import chinchon.observador.TipoEvento;
 
 /**
  * Clase VistaConsola - implementa la vista del juego en consola
@@ -19,12 +22,31 @@ public class VistaConsola implements Observer {
     
     private Juego modelo;
     private ControladorChinchon controlador;
+    private CreenciasRivales creencias;
     private boolean mostrarMensajes;
     
+    /* Secciones del cuadro, en el orden en que se muestran */
+    private enum Seccion {
+        JUGADORES, TURNO, POZO, MANO, SIGUIENTE, MESA, FINAL
+    }
+    
+    private static final String LINEA = "=".repeat(60);
+    private static final String SEPARADOR = "-".repeat(60);
+    private static final String ESTRELLAS = "*".repeat(60);
+    private static final String ENCABEZADO = "\n" + LINEA + "\nESTADO DEL JUEGO\n" + LINEA + "\n";
+    private static final int PROBABLES = 3;          // cartas probables que se muestran del siguiente
+    private static final float UMBRAL_PROBABLE = 0.35f;
+    
+    private final StringBuilder cuadro = new StringBuilder(2048);
+    private String cuadroAnterior;
+    private final float[] probabilidades = new float[64];
+    
     public VistaConsola(Juego modelo, ControladorChinchon controlador) {
         this.modelo = modelo;
         this.controlador = controlador;
         modelo.agregarObservador(this);
+        this.creencias = new CreenciasRivales(modelo);
+        modelo.agregarOyenteAcciones(creencias);
         this.mostrarMensajes = true;
     }
     
@@ -38,77 +60,205 @@ public class VistaConsola implements Observer {
         }
     }
     
+    /**
+     * Aviso con detalle: después de robar, el turno ya muestra el estado
+     * antes de pedir el descarte, así que no se vuelve a dibujar
+     */
+    @Override
+    public void actualizar(Observable sujeto, Evento evento) {
+        if (evento.esSolo(TipoEvento.CARTA_ROBADA)) {
+            return;
+        }
+        actualizar(sujeto);
+    }
+    
     /**
      * Muestra el estado actual del juego
+     * 
+     * El cuadro completo se arma en un buffer reutilizado y se escribe de una
+     * sola vez. La consola va hacia abajo sin mover el cursor, así que cada
+     * cuadro se muestra entero; solo se omite si es igual al anterior.
      */
     public void mostrarEstadoDeJuego() {
-        System.out.println("\n" + "=".repeat(60));
-        System.out.println("ESTADO DEL JUEGO");
-        System.out.println("=".repeat(60));
-        
-        // Mostrar jugadores y puntos
-        System.out.println("\nJUGADORES:");
-        for (Jugador jugador : modelo.getJugadores()) {
-            System.out.println("  " + jugador);
+        cuadro.setLength(0);
+        cuadro.append(ENCABEZADO);
+        for (Seccion seccion : Seccion.values()) {
+            armarSeccion(cuadro, seccion);
         }
-        
-        // Mostrar jugador actual
+        cuadro.append(LINEA).append('\n');
+        if (cuadroAnterior != null && cuadroAnterior.contentEquals(cuadro)) {
+            return;
+        }
+        cuadroAnterior = cuadro.toString();
+        System.out.print(cuadroAnterior);
+        System.out.flush();
+    }
+    
+    /**
+     * Muestra el estado completo, aunque no haya cambiado
+     */
+    public void mostrarEstadoCompleto() {
+        cuadroAnterior = null;
+        mostrarEstadoDeJuego();
+    }
+    
+    /**
+     * Agrega al cuadro el texto de una sección
+     */
+    private void armarSeccion(StringBuilder sb, Seccion seccion) {
         Jugador jugadorActual = modelo.getJugadorActual();
-        if (jugadorActual != null) {
-            System.out.println("\n>>> TURNO DE: " + jugadorActual.getNombre() + " <<<");
+        switch (seccion) {
+            case JUGADORES:
+                // Mostrar jugadores y puntos
+                sb.append("\nJUGADORES:\n");
+                for (Jugador jugador : modelo.getJugadores()) {
+                    sb.append("  ").append(jugador).append('\n');
+                }
+                break;
+            case TURNO:
+                // Mostrar jugador actual
+                if (jugadorActual != null) {
+                    sb.append("\n>>> TURNO DE: ").append(jugadorActual.getNombre()).append(" <<<\n");
+                }
+                break;
+            case POZO:
+                // Mostrar carta del pozo
+                if (modelo.getPozo() != null && !modelo.getPozo().estaVacio()) {
+                    sb.append("\nCarta en el pozo: ").append(modelo.getPozo().verCartaSuperior()).append('\n');
+                }
+                break;
+            case MANO:
+                // Mostrar mano del jugador actual
+                if (jugadorActual != null) {
+                    armarMano(sb, jugadorActual.getMano());
+                }
+                break;
+            case SIGUIENTE:
+                // Mostrar lo que se sabe del jugador que puede levantar el descarte
+                if (jugadorActual != null && !modelo.isManoCerrada()) {
+                    armarSiguiente(sb);
+                }
+                break;
+            case MESA:
+                // Mostrar grupos en la mesa si la mano está cerrada
+                if (modelo.isManoCerrada()) {
+                    sb.append('\n').append(SEPARADOR).append('\n');
+                    sb.append("MANO CERRADA por: ").append(modelo.getJugadorQueCerro().getNombre()).append('\n');
+                    sb.append("Grupos en la mesa:\n");
+                    armarGrupos(sb, modelo.getGruposEnMesa());
+                }
+                break;
+            case FINAL:
+                // Mostrar si la partida terminó
+                if (modelo.isPartidaTerminada()) {
+                    sb.append('\n').append(ESTRELLAS).append('\n');
+                    if (modelo.getGanador() != null) {
+                        sb.append("¡¡¡ GANADOR: ").append(modelo.getGanador().getNombre()).append(" !!!\n");
+                    }
+                    sb.append(ESTRELLAS).append('\n');
+                }
+                break;
         }
+    }
+    
+    /**
+     * Mano, grupos ligados posibles y aviso de cierre
+     * (la mano guarda su análisis, así que no se recalcula si no cambió)
+     */
+    private void armarMano(StringBuilder sb, Mano mano) {
+        sb.append("\nTu mano:\n");
+        sb.append("  ").append(mano).append('\n');
         
-        // Mostrar carta del pozo
-        if (modelo.getPozo() != null && !modelo.getPozo().estaVacio()) {
-            System.out.println("\nCarta en el pozo: " + modelo.getPozo().verCartaSuperior());
+        // Mostrar grupos ligados posibles
+        List<List<Carta>> gruposLigados = mano.verificarCierre().getGrupos();
+        if (!gruposLigados.isEmpty()) {
+            sb.append("\nGrupos ligados posibles:\n");
+            armarGrupos(sb, gruposLigados);
         }
         
-        // Mostrar mano del jugador actual
-        if (jugadorActual != null) {
-            System.out.println("\nTu mano:");
-            Mano mano = jugadorActual.getMano();
-            System.out.println("  " + mano);
-            
-            // Mostrar grupos ligados posibles
-            List<List<Carta>> gruposLigados = mano.encontrarGruposLigados();
-            if (!gruposLigados.isEmpty()) {
-                System.out.println("\nGrupos ligados posibles:");
-                for (int i = 0; i < gruposLigados.size(); i++) {
-                    System.out.println("  Grupo " + (i + 1) + ": " + gruposLigados.get(i));
-                }
+        // Mostrar si puede cerrar
+        if (!modelo.esPrimeraVuelta()) {
+            Mano.ResultadoCierre resultado = mano.verificarCierre();
+            if (resultado.puedeCerrar()) {
+                sb.append("\n*** ¡PUEDES CERRAR LA MANO! ***\n");
+                sb.append("  Tipo: ").append(resultado.getTipo()).append('\n');
+            } else if (mano.getNumeroCartas() == 7) {
+                armarOuts(sb, mano);
             }
-            
-            // Mostrar si puede cerrar
-            if (!modelo.esPrimeraVuelta()) {
-                Mano.ResultadoCierre resultado = mano.verificarCierre();
-                if (resultado.puedeCerrar()) {
-                    System.out.println("\n*** ¡PUEDES CERRAR LA MANO! ***");
-                    System.out.println("  Tipo: " + resultado.getTipo());
-                }
+        }
+    }
+    
+    /**
+     * Cartas que, robadas, dejarían cerrar la mano (las descartadas ya se vieron)
+     */
+    private void armarOuts(StringBuilder sb, Mano mano) {
+        long vistas = modelo.getPozo().getMascaraDescartadas();
+        Mano.Outs outs = Mano.calcularOuts(mano.getMascara(), vistas, modelo.getMazo().getMascaraCompleta());
+        if (outs.getCantidad() > 0) {
+            sb.append("\nCartas que te dejan cerrar: ").append(outs.getCartas());
+            sb.append(String.format(" (%.0f%% de robar una)%n", outs.getProbabilidad() * 100));
+        }
+    }
+    
+    /**
+     * Lo que se sabe de la mano del jugador siguiente: las cartas que levantó
+     * del pozo y las que más probablemente tiene (ver CreenciasRivales)
+     */
+    private void armarSiguiente(StringBuilder sb) {
+        int actual = modelo.getIndiceJugadorActual();
+        List<Jugador> jugadores = modelo.getJugadores();
+        int siguiente = actual;
+        for (int i = 1; i < jugadores.size() && siguiente == actual; i++) {
+            int asiento = (actual + i) % jugadores.size();
+            if (!jugadores.get(asiento).estaEliminado()) {
+                siguiente = asiento;
             }
         }
+        if (siguiente == actual) {
+            return;
+        }
         
-        // Mostrar grupos en la mesa si la mano está cerrada
-        if (modelo.isManoCerrada()) {
-            System.out.println("\n" + "-".repeat(60));
-            System.out.println("MANO CERRADA por: " + modelo.getJugadorQueCerro().getNombre());
-            System.out.println("Grupos en la mesa:");
-            List<List<Carta>> gruposEnMesa = modelo.getGruposEnMesa();
-            for (int i = 0; i < gruposEnMesa.size(); i++) {
-                System.out.println("  Grupo " + (i + 1) + ": " + gruposEnMesa.get(i));
+        long conocidas = creencias.getConocidas(siguiente);
+        creencias.probabilidades(actual, siguiente, probabilidades);
+        StringBuilder probables = new StringBuilder();
+        for (int n = 0; n < PROBABLES; n++) {
+            int mejor = -1;
+            for (int ordinal = 0; ordinal < probabilidades.length; ordinal++) {
+                if ((conocidas & (1L << ordinal)) == 0 && probabilidades[ordinal] >= UMBRAL_PROBABLE
+                        && (mejor < 0 || probabilidades[ordinal] > probabilidades[mejor])) {
+                    mejor = ordinal;
+                }
             }
+            if (mejor < 0) {
+                break;
+            }
+            probables.append(n == 0 ? "" : ", ").append(Carta.porOrdinal(mejor))
+                     .append(String.format(" (%.0f%%)", probabilidades[mejor] * 100));
+            probabilidades[mejor] = 0f;
+        }
+        if (conocidas == 0 && probables.length() == 0) {
+            return;
         }
         
-        // Mostrar si la partida terminó
-        if (modelo.isPartidaTerminada()) {
-            System.out.println("\n" + "*".repeat(60));
-            if (modelo.getGanador() != null) {
-                System.out.println("¡¡¡ GANADOR: " + modelo.getGanador().getNombre() + " !!!");
+        sb.append("\nJuega después: ").append(jugadores.get(siguiente).getNombre()).append('\n');
+        if (conocidas != 0) {
+            sb.append("  Levantó del pozo: ");
+            String separador = "";
+            for (long resto = conocidas; resto != 0; resto &= resto - 1) {
+                sb.append(separador).append(Carta.porOrdinal(Long.numberOfTrailingZeros(resto)));
+                separador = ", ";
             }
-            System.out.println("*".repeat(60));
+            sb.append('\n');
+        }
+        if (probables.length() > 0) {
+            sb.append("  Probablemente tiene: ").append(probables).append('\n');
+        }
+    }
+    
+    private static void armarGrupos(StringBuilder sb, List<List<Carta>> grupos) {
+        for (int i = 0; i < grupos.size(); i++) {
+            sb.append("  Grupo ").append(i + 1).append(": ").append(grupos.get(i)).append('\n');
         }
-        
-        System.out.println("=".repeat(60));
     }
     
     /**
@@ -135,7 +285,7 @@ public class VistaConsola implements Observer {
             }
         }
         
-        mostrarEstadoDeJuego();
+        mostrarEstadoCompleto();
         System.out.println("\n¡Gracias por jugar!");
     }
     
@@ -143,6 +293,16 @@ public class VistaConsola implements Observer {
      * Procesa un turno normal
      */
     private void procesarTurnoNormal() {
+        if (controlador.esTurnoAutomatico()) {
+            String nombre = modelo.getJugadorActual().getNombre();
+            if (!controlador.jugarTurnoAutomatico()) {
+                System.out.println(nombre + " no pudo jugar su turno.");
+            } else {
+                System.out.println("\n" + nombre + " jugó automáticamente.");
+            }
+            return;
+        }
+        
         System.out.println("\nOPCIONES:");
         System.out.println("  1. Tomar carta del mazo");
         System.out.println("  2. Tomar carta del pozo");
@@ -175,7 +335,7 @@ public class VistaConsola implements Observer {
         if (!controlador.descartarCarta(indice)) {
             System.out.println("No se pudo descartar la carta. Intenta de nuevo.");
             // Forzar nueva actualización
-            mostrarEstadoDeJuego();
+            mostrarEstadoCompleto();
         }
     }
     
@@ -191,6 +351,10 @@ public class VistaConsola implements Observer {
         System.out.println("\nLa mano está cerrada. Colocando tus grupos ligados...");
         modelo.colocarGruposEnMesa();
         
+        if (controlador.esTurnoAutomatico()) {
+            return;
+        }
+        
         // Esperar un momento para que el usuario vea los resultados
         System.out.println("\nPresiona Enter para continuar...");
         controlador.obtenerEntrada();
@@ -0,0 +1,133 @@
+package chinchon.modelo;
+
+import java.util.SplittableRandom;
+
+/**
+ * Clase PruebaEvaluadorLotes - compara EvaluadorLotes.evaluar con
+ * Mano.evaluar en lotes de manos al azar (de varios tamaños, para que haya
+ * manos que no llenan los carriles de la Vector API). Si el módulo
+ * jdk.incubator.vector está en el arranque y PrefiltroVectorial se compiló,
+ * además compara su primera pasada, mano por mano, con la del ciclo común.
+ * 
+ * Hay que correrla con y sin el módulo para probar los dos caminos; con
+ * "vectorial" falla si la Vector API no quedó cargada.
+ * 
+ * Uso: java [--add-modules jdk.incubator.vector] -cp <clases> chinchon.modelo.PruebaEvaluadorLotes [manos] [vectorial]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaEvaluadorLotes
+{
+    private static final int[] TAMANOS_LOTE = {1, 3, 7, 9, 64, 1000};
+    
+    private static int fallos = 0;
+    
+    public static void main(String[] args) {
+        int manos = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        boolean exigirVectorial = args.length > 1 && args[1].equals("vectorial");
+        System.out.println("Primera pasada: " + (EvaluadorLotes.esVectorial() ? "Vector API" : "ciclo común"));
+        if (exigirVectorial && !EvaluadorLotes.esVectorial()) {
+            System.out.println("FALLO: no se cargó la Vector API (falta --add-modules jdk.incubator.vector"
+                + " o compilar PrefiltroVectorial)");
+            System.exit(1);
+        }
+        
+        SplittableRandom azar = new SplittableRandom(9);
+        EvaluadorLotes.PrimeraPasada vectorial = cargarVectorial();
+        EvaluadorLotes.Resultados resultados = new EvaluadorLotes.Resultados(1);
+        int evaluadas = 0;
+        int cierres = 0;
+        for (int lote = 0; evaluadas < manos && fallos < 20; lote++) {
+            long[] mascaras = new long[TAMANOS_LOTE[lote % TAMANOS_LOTE.length]];
+            for (int i = 0; i < mascaras.length; i++) {
+                mascaras[i] = repartir(azar);
+            }
+            // Los resultados se reutilizan entre lotes, como en la simulación
+            EvaluadorLotes.evaluar(mascaras, mascaras.length, resultados);
+            for (int i = 0; i < mascaras.length; i++) {
+                Mano.ResultadoCierre esperado = Mano.evaluar(mascaras[i]);
+                comparar(mascaras[i], resultados, i, esperado);
+                if (esperado.puedeCerrar()) {
+                    cierres++;
+                }
+            }
+            if (vectorial != null) {
+                compararPrimeraPasada(vectorial, mascaras);
+            }
+            evaluadas += mascaras.length;
+        }
+        
+        System.out.println(evaluadas + " manos, " + cierres + " cierres, " + fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * PrefiltroVectorial cargado por nombre como lo hace EvaluadorLotes, o
+     * null si falta el módulo o la clase
+     */
+    private static EvaluadorLotes.PrimeraPasada cargarVectorial() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (EvaluadorLotes.PrimeraPasada) Class.forName("chinchon.modelo.PrefiltroVectorial")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("No se pudo cargar PrefiltroVectorial: " + e);
+            return null;
+        }
+    }
+    
+    /**
+     * 1 a 8 cartas (casi siempre 7 u 8) con hasta dos comodines; la mitad de
+     * las veces de dos palos solos, para que haya muchos grupos y cierres
+     */
+    private static long repartir(SplittableRandom azar) {
+        long posibles = -1L >>> (64 - Mano.BIT_PRIMER_COMODIN - 2);
+        if (azar.nextBoolean()) {
+            long palos = EvaluadorLotes.MASCARA_PALO << (10 * azar.nextInt(4))
+                       | EvaluadorLotes.MASCARA_PALO << (10 * azar.nextInt(4));
+            posibles &= palos | Mano.MASCARA_COMODINES;
+        }
+        int cantidad = azar.nextInt(10) == 0 ? 1 + azar.nextInt(8) : 7 + azar.nextInt(2);
+        long mascara = 0L;
+        while (Long.bitCount(mascara) < cantidad) {
+            mascara |= 1L << azar.nextInt(64) & posibles;
+        }
+        return mascara;
+    }
+    
+    private static void comparar(long mascara, EvaluadorLotes.Resultados resultados, int i,
+                                 Mano.ResultadoCierre esperado) {
+        if (resultados.puedeCerrar(i) != esperado.puedeCerrar() || resultados.getTipo(i) != esperado.getTipo()
+                || resultados.getNumComodines(i) != esperado.getNumComodines()
+                || resultados.getPuntosNoLigadas(i) != esperado.getPuntosNoLigadas()) {
+            fallos++;
+            System.out.println("FALLO " + Mano.cartasDe(mascara) + ": lote " + resultados.getTipo(i) + "/"
+                + resultados.getNumComodines(i) + "/" + resultados.getPuntosNoLigadas(i) + ", Mano.evaluar "
+                + esperado.getTipo() + "/" + esperado.getNumComodines() + "/" + esperado.getPuntosNoLigadas());
+        }
+    }
+    
+    /**
+     * Cartas aisladas y claves de la Vector API contra las del ciclo común
+     */
+    private static void compararPrimeraPasada(EvaluadorLotes.PrimeraPasada vectorial, long[] mascaras) {
+        long[] aisladas = new long[mascaras.length];
+        long[] claves = new long[mascaras.length];
+        vectorial.preparar(mascaras, aisladas, claves, mascaras.length);
+        for (int i = 0; i < mascaras.length; i++) {
+            long esperadas = EvaluadorLotes.aisladas(mascaras[i]);
+            long clave = EvaluadorLotes.clave(mascaras[i], esperadas);
+            if (aisladas[i] != esperadas || claves[i] != clave) {
+                fallos++;
+                System.out.println("FALLO (primera pasada) " + Mano.cartasDe(mascaras[i]) + ": aisladas "
+                    + Long.toHexString(aisladas[i]) + ", esperadas " + Long.toHexString(esperadas)
+                    + "; clave " + Long.toHexString(claves[i]) + ", esperada " + Long.toHexString(clave));
+            }
+        }
+    }
+}
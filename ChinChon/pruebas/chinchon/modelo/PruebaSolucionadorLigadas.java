@@ -0,0 +1,241 @@
+package chinchon.modelo;
+
+import java.util.*;
+
+/**
+ * Clase PruebaSolucionadorLigadas - compara el cierre de Mano (solucionador
+ * exacto, poda incremental, cache y tabla si está) con una búsqueda por
+ * fuerza bruta escrita directamente sobre las reglas, en manos al azar.
+ * 
+ * Uso: java -cp <clases>:<pruebas> chinchon.modelo.PruebaSolucionadorLigadas [manos] [semilla]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaSolucionadorLigadas
+{
+    private static int fallos = 0;
+    
+    public static void main(String[] args) {
+        int manos = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        long semilla = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        SplittableRandom azar = new SplittableRandom(semilla);
+        
+        List<Carta> baraja = new ArrayList<>();
+        for (Palo palo : Palo.values()) {
+            for (int numero : Mano.NUMERO_DE_POSICION) {
+                baraja.add(Carta.of(palo, numero));
+            }
+        }
+        baraja.add(Carta.comodin(1));
+        baraja.add(Carta.comodin(2));
+        
+        int cierres = 0;
+        for (int i = 0; i < manos && fallos < 20; i++) {
+            List<Carta> cartas = repartir(baraja, azar);
+            Mano mano = new Mano();
+            for (Carta carta : cartas) {
+                mano.agregarCarta(carta);
+            }
+            Mano.ResultadoCierre obtenido = mano.verificarCierre();
+            Mano.ResultadoCierre esperado = Oraculo.resolver(cartas);
+            comparar(cartas, obtenido, esperado, "verificarCierre");
+            comparar(cartas, Mano.evaluar(mano.getMascara()), esperado, "evaluar");
+            if (esperado.puedeCerrar()) {
+                cierres++;
+            }
+        }
+        
+        System.out.println(manos + " manos, " + cierres + " cierres, " + fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * 7 u 8 cartas; la mitad de las veces de dos palos solos (y los comodines),
+     * para que haya muchos grupos y cierres
+     */
+    private static List<Carta> repartir(List<Carta> baraja, SplittableRandom azar) {
+        List<Carta> posibles = new ArrayList<>();
+        if (azar.nextBoolean()) {
+            posibles.addAll(baraja);
+        } else {
+            Palo uno = Palo.values()[azar.nextInt(Palo.values().length)];
+            Palo otro = Palo.values()[azar.nextInt(Palo.values().length)];
+            for (Carta carta : baraja) {
+                if (carta.esComodin() || carta.getPalo() == uno || carta.getPalo() == otro) {
+                    posibles.add(carta);
+                }
+            }
+        }
+        int cantidad = 7 + azar.nextInt(2);
+        List<Carta> cartas = new ArrayList<>();
+        while (cartas.size() < cantidad) {
+            cartas.add(posibles.remove(azar.nextInt(posibles.size())));
+        }
+        return cartas;
+    }
+    
+    private static void comparar(List<Carta> cartas, Mano.ResultadoCierre obtenido,
+                                 Mano.ResultadoCierre esperado, String camino) {
+        String problema = null;
+        if (obtenido.puedeCerrar() != esperado.puedeCerrar() || obtenido.getTipo() != esperado.getTipo()) {
+            problema = "cierre " + obtenido.getTipo() + ", esperado " + esperado.getTipo();
+        } else if (obtenido.getPuntosNoLigadas() != esperado.getPuntosNoLigadas()) {
+            problema = "puntos " + obtenido.getPuntosNoLigadas() + ", esperado " + esperado.getPuntosNoLigadas();
+        } else {
+            problema = revisarGrupos(cartas, obtenido);
+        }
+        if (problema != null) {
+            fallos++;
+            System.out.println("FALLO (" + camino + ") " + cartas + ": " + problema);
+        }
+    }
+    
+    /**
+     * Los grupos devueltos tienen que ser válidos, disjuntos, de la mano y
+     * dejar sueltos justo los puntos informados
+     */
+    private static String revisarGrupos(List<Carta> cartas, Mano.ResultadoCierre resultado) {
+        List<Carta> sueltas = new ArrayList<>(cartas);
+        int comodines = 0;
+        for (List<Carta> grupo : resultado.getGrupos()) {
+            if (!Oraculo.esGrupo(grupo)) {
+                return "grupo inválido " + grupo;
+            }
+            for (Carta carta : grupo) {
+                if (!sueltas.remove(carta)) {
+                    return "carta repetida o ajena " + carta;
+                }
+                if (carta.esComodin()) {
+                    comodines++;
+                }
+            }
+        }
+        if (comodines != resultado.getNumComodines()) {
+            return "comodines " + resultado.getNumComodines() + ", en los grupos hay " + comodines;
+        }
+        int puntos = 0;
+        for (Carta carta : sueltas) {
+            puntos += carta.getValorPuntos();
+        }
+        if (puntos != resultado.getPuntosNoLigadas()) {
+            return "los grupos dejan " + puntos + " puntos sueltos, informa " + resultado.getPuntosNoLigadas();
+        }
+        return null;
+    }
+    
+    /**
+     * Búsqueda por fuerza bruta: prueba cada subconjunto de las cartas que
+     * quedan como grupo de la primera, sin memoria ni candidatos
+     */
+    private static final class Oraculo
+    {
+        static Mano.ResultadoCierre resolver(List<Carta> cartas) {
+            if (cartas.size() == 7) {
+                if (esEscalera(cartas)) {
+                    int comodines = 0;
+                    for (Carta carta : cartas) {
+                        comodines += carta.esComodin() ? 1 : 0;
+                    }
+                    return new Mano.ResultadoCierre(true, Mano.TipoCierre.ESCALERA_7, comodines,
+                        Collections.singletonList(cartas), 0);
+                }
+                if (menorSuelto(cartas) == 0) {
+                    return new Mano.ResultadoCierre(true, Mano.TipoCierre.DOS_GRUPOS_3_4, 0, Collections.emptyList(), 0);
+                }
+                int mejorBaja = Integer.MAX_VALUE;
+                for (Carta carta : cartas) {
+                    if (!carta.esComodin() && carta.getNumero() <= 4 && carta.getValorPuntos() < mejorBaja) {
+                        List<Carta> resto = new ArrayList<>(cartas);
+                        resto.remove(carta);
+                        if (menorSuelto(resto) == 0) {
+                            mejorBaja = carta.getValorPuntos();
+                        }
+                    }
+                }
+                if (mejorBaja != Integer.MAX_VALUE) {
+                    return new Mano.ResultadoCierre(true, Mano.TipoCierre.DOS_GRUPOS_3_MAS_CARTA_BAJA, 0,
+                        Collections.emptyList(), mejorBaja);
+                }
+            }
+            return new Mano.ResultadoCierre(false, null, 0, Collections.emptyList(), menorSuelto(cartas));
+        }
+        
+        /**
+         * Menor suma de puntos de las cartas que quedan fuera de los grupos
+         */
+        static int menorSuelto(List<Carta> cartas) {
+            if (cartas.isEmpty()) {
+                return 0;
+            }
+            Carta primera = cartas.get(0);
+            List<Carta> resto = cartas.subList(1, cartas.size());
+            int mejor = primera.getValorPuntos() + menorSuelto(resto);
+            for (int sub = 1; sub < 1 << resto.size(); sub++) {
+                List<Carta> grupo = new ArrayList<>();
+                List<Carta> fuera = new ArrayList<>();
+                grupo.add(primera);
+                for (int i = 0; i < resto.size(); i++) {
+                    ((sub & (1 << i)) != 0 ? grupo : fuera).add(resto.get(i));
+                }
+                if (esGrupo(grupo)) {
+                    mejor = Math.min(mejor, menorSuelto(fuera));
+                }
+            }
+            return mejor;
+        }
+        
+        /**
+         * Tres o más cartas con al menos dos reales: del mismo número (hasta
+         * cuatro) o escalera del mismo palo
+         */
+        static boolean esGrupo(List<Carta> grupo) {
+            if (grupo.size() < 3) {
+                return false;
+            }
+            List<Carta> reales = new ArrayList<>();
+            for (Carta carta : grupo) {
+                if (!carta.esComodin()) {
+                    reales.add(carta);
+                }
+            }
+            if (reales.size() < 2) {
+                return false;
+            }
+            boolean mismoNumero = true;
+            for (Carta carta : reales) {
+                mismoNumero &= carta.getNumero() == reales.get(0).getNumero();
+            }
+            return (mismoNumero && grupo.size() <= 4) || esEscalera(grupo);
+        }
+        
+        /**
+         * Reales del mismo palo y los comodines alcanzan para los huecos,
+         * sin pasarse de las diez cartas del palo
+         */
+        static boolean esEscalera(List<Carta> grupo) {
+            int menor = Integer.MAX_VALUE;
+            int mayor = Integer.MIN_VALUE;
+            Palo palo = null;
+            int reales = 0;
+            for (Carta carta : grupo) {
+                if (carta.esComodin()) {
+                    continue;
+                }
+                if (palo != null && carta.getPalo() != palo) {
+                    return false;
+                }
+                palo = carta.getPalo();
+                // 1 a 7 y después 10, 11 y 12: las posiciones 0 a 9 del palo
+                int posicion = carta.getNumero() <= 7 ? carta.getNumero() - 1 : carta.getNumero() - 3;
+                menor = Math.min(menor, posicion);
+                mayor = Math.max(mayor, posicion);
+                reales++;
+            }
+            return reales >= 2 && grupo.size() >= 3 && mayor - menor + 1 <= grupo.size()
+                && grupo.size() <= Mano.CARTAS_POR_PALO;
+        }
+    }
+}
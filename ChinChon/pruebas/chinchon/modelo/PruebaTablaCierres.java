@@ -0,0 +1,164 @@
+package chinchon.modelo;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Clase PruebaTablaCierres - prueba el rango colexicográfico de TablaCierres
+ * (ida y vuelta sobre todas las manos de 7 cartas), el empaquetado de los
+ * códigos, la validación del archivo y que las consultas a una tabla
+ * generada den lo mismo que el solucionador.
+ * 
+ * Sin argumentos genera una tabla en un archivo temporal (unos 54 MB, que
+ * se borra al final); si se indica una tabla ya generada, usa esa.
+ * 
+ * Uso: java -cp <clases> chinchon.modelo.PruebaTablaCierres [tabla] [manos]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaTablaCierres
+{
+    private static int fallos = 0;
+    
+    public static void main(String[] args) throws IOException {
+        probarRangos();
+        probarCodigos();
+        probarArchivosInvalidos();
+        
+        int manos = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+        if (args.length > 0) {
+            probarConsultas(TablaCierres.abrir(Paths.get(args[0])), manos);
+        } else {
+            Path temporal = Files.createTempFile("cierres", ".bin");
+            try {
+                GeneradorTablaCierres.generar(temporal);
+                probarConsultas(TablaCierres.abrir(temporal), manos);
+            } finally {
+                borrar(temporal);
+            }
+        }
+        
+        System.out.println(fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * En Windows un archivo mapeado no se puede borrar hasta que se libere el mapeo
+     */
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.out.println("No se pudo borrar " + archivo + ": " + e.getMessage());
+        }
+    }
+    
+    private static void comprobar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            fallos++;
+            if (fallos <= 20) {
+                System.out.println("FALLO: " + mensaje);
+            }
+        }
+    }
+    
+    /**
+     * Recorre todas las manos de 7 cartas en orden colexicográfico (la
+     * siguiente combinación es la menor máscara mayor con los mismos bits)
+     * y comprueba que su rango sea su posición, y al revés
+     */
+    private static void probarRangos() {
+        long mascara = (1L << TablaCierres.TAMANO_MANO) - 1;
+        long rango = 0;
+        while ((mascara & ~TablaCierres.MASCARA_CUBIERTA) == 0) {
+            comprobar(TablaCierres.rango(mascara) == rango, "rango de " + Long.toBinaryString(mascara));
+            comprobar(TablaCierres.mascaraDeRango(rango) == mascara, "mano del rango " + rango);
+            rango++;
+            int bit = 0;
+            while ((mascara & (1L << bit)) == 0 || (mascara & (1L << (bit + 1))) != 0) {
+                bit++;
+            }
+            // Sube el bit y baja al fondo los que estaban debajo
+            int debajo = Long.bitCount(mascara & ((1L << bit) - 1));
+            mascara = (mascara & ~((1L << (bit + 1)) - 1)) | (1L << (bit + 1)) | ((1L << debajo) - 1);
+        }
+        comprobar(rango == TablaCierres.COMBINACIONES,
+            "manos recorridas " + rango + ", combinaciones " + TablaCierres.COMBINACIONES);
+        System.out.println("Rangos: " + rango + " manos");
+    }
+    
+    private static void probarCodigos() {
+        Mano.TipoCierre[] tipos = new Mano.TipoCierre[Mano.TipoCierre.values().length + 1];
+        System.arraycopy(Mano.TipoCierre.values(), 0, tipos, 1, tipos.length - 1);
+        for (Mano.TipoCierre tipo : tipos) {
+            for (int comodines = 0; comodines <= 2; comodines++) {
+                for (int puntos = 0; puntos < 128; puntos++) {
+                    int codigo = TablaCierres.empaquetar(tipo, comodines, puntos);
+                    comprobar(codigo >= 0 && codigo <= 0xFFFF, "código fuera de 16 bits " + codigo);
+                    comprobar(TablaCierres.tipoDe(codigo) == tipo && TablaCierres.comodinesDe(codigo) == comodines
+                        && TablaCierres.puntosDe(codigo) == puntos,
+                        "ida y vuelta de " + tipo + ", " + comodines + ", " + puntos);
+                }
+            }
+        }
+        System.out.println("Códigos: " + tipos.length * 3 * 128 + " combinaciones");
+    }
+    
+    /**
+     * Un archivo de otro tamaño o con la cabecera vacía no se acepta
+     */
+    private static void probarArchivosInvalidos() throws IOException {
+        long tamano = TablaCierres.TAMANO_CABECERA + 2 * TablaCierres.COMBINACIONES;
+        for (long largo : new long[] {0, tamano - 2, tamano}) {
+            Path archivo = Files.createTempFile("cierres-invalida", ".bin");
+            try {
+                try (RandomAccessFile escritura = new RandomAccessFile(archivo.toFile(), "rw")) {
+                    escritura.setLength(largo);
+                }
+                TablaCierres.abrir(archivo);
+                comprobar(false, "se abrió una tabla inválida de " + largo + " bytes");
+            } catch (IOException e) {
+                // esperado
+            } finally {
+                borrar(archivo);
+            }
+        }
+    }
+    
+    /**
+     * Manos al azar de la baraja con dos comodines: la tabla y el solucionador
+     * tienen que coincidir; las manos que la tabla no cubre dan -1
+     */
+    private static void probarConsultas(TablaCierres tabla, int manos) {
+        SplittableRandom azar = new SplittableRandom(7);
+        int cierres = 0;
+        for (int i = 0; i < manos; i++) {
+            long mascara = 0L;
+            while (Long.bitCount(mascara) < TablaCierres.TAMANO_MANO) {
+                mascara |= 1L << azar.nextInt(TablaCierres.CARTAS);
+            }
+            int codigo = tabla.consultar(mascara);
+            Mano.ResultadoCierre esperado = SolucionadorLigadas.resolver(mascara);
+            comprobar(TablaCierres.tipoDe(codigo) == esperado.getTipo()
+                && TablaCierres.comodinesDe(codigo) == esperado.getNumComodines()
+                && TablaCierres.puntosDe(codigo) == esperado.getPuntosNoLigadas(),
+                "consulta de " + Mano.cartasDe(mascara));
+            if (esperado.puedeCerrar()) {
+                cierres++;
+            }
+            
+            long seis = mascara & (mascara - 1);
+            comprobar(tabla.consultar(seis) == -1, "mano de 6 cartas cubierta");
+            long tercerComodin = seis | 1L << TablaCierres.CARTAS;
+            comprobar(tabla.consultar(tercerComodin) == -1, "mano con tercer comodín cubierta");
+        }
+        System.out.println("Consultas: " + manos + " manos, " + cierres + " cierres");
+    }
+}
@@ -0,0 +1,380 @@
+package chinchon.registro;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.Mano;
+import chinchon.modelo.OyenteAcciones;
+import chinchon.simulacion.Estrategia;
+import chinchon.simulacion.EstrategiaAleatoria;
+import chinchon.simulacion.EstrategiaVoraz;
+
+/**
+ * Clase PruebaColumnas - prueba la exportación por columnas en dos niveles:
+ * cada codificación de FormatoColumnas ida y vuelta con valores extremos, y
+ * partidas exportadas con ExportadorColumnas y leídas con LectorColumnas
+ * contra las filas que arma otro oyente del mismo Juego (varios bloques).
+ * 
+ * Uso: java -cp <clases> chinchon.registro.PruebaColumnas [partidas]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaColumnas
+{
+    private static final int MAX_TURNOS = 5000;
+    
+    private static int fallos = 0;
+    
+    public static void main(String[] args) throws IOException {
+        int partidas = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        probarNumeros();
+        probarListas();
+        
+        Path archivo = Files.createTempFile("manos", ".col");
+        try {
+            probarExportacion(archivo, partidas);
+        } finally {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException e) {
+                // en Windows un archivo mapeado no se puede borrar hasta que se libere el mapeo
+                System.out.println("No se pudo borrar " + archivo + ": " + e.getMessage());
+            }
+        }
+        
+        System.out.println(fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static void comprobar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            fallos++;
+            if (fallos <= 20) {
+                System.out.println("FALLO: " + mensaje);
+            }
+        }
+    }
+    
+    /**
+     * Columnas de números: valores chicos, negativos, extremos (las diferencias
+     * de DELTA desbordan) y diccionarios que caben justo o no caben
+     */
+    private static void probarNumeros() {
+        SplittableRandom azar = new SplittableRandom(3);
+        long[][] casos = {
+            {},
+            {0, 1, 2, 3, 2, 1, 0, -1, -128, 127, 128},
+            {Long.MIN_VALUE, Long.MAX_VALUE, 0, Long.MIN_VALUE, -1, Long.MAX_VALUE},
+            distintos(FormatoColumnas.MAX_DICCIONARIO, azar),
+            distintos(FormatoColumnas.MAX_DICCIONARIO + 1, azar),
+            azar.longs(FormatoColumnas.FILAS_POR_BLOQUE).toArray(),
+            azar.longs(FormatoColumnas.FILAS_POR_BLOQUE, -3, 4).toArray()
+        };
+        for (ColumnaMano.Codificacion codificacion : new ColumnaMano.Codificacion[] {
+                ColumnaMano.Codificacion.PLANO, ColumnaMano.Codificacion.DELTA,
+                ColumnaMano.Codificacion.DICCIONARIO}) {
+            for (long[] valores : casos) {
+                ByteBuffer salida = ByteBuffer.allocate(10 * (valores.length + FormatoColumnas.MAX_DICCIONARIO) + 1)
+                                              .order(ByteOrder.LITTLE_ENDIAN);
+                ColumnaMano.Codificacion usada = FormatoColumnas.codificarNumeros(codificacion, valores,
+                                                                                 valores.length, salida);
+                boolean cabeDiccionario = Arrays.stream(valores).distinct().count() <= FormatoColumnas.MAX_DICCIONARIO;
+                ColumnaMano.Codificacion esperada = codificacion == ColumnaMano.Codificacion.DICCIONARIO
+                    && !cabeDiccionario ? ColumnaMano.Codificacion.DELTA : codificacion;
+                comprobar(usada == esperada, codificacion + " con " + valores.length + " valores usó " + usada);
+                
+                salida.flip();
+                long[] leidos = new long[valores.length + 3];
+                FormatoColumnas.decodificarNumeros(salida, usada, valores.length, leidos, 3);
+                comprobar(Arrays.equals(Arrays.copyOfRange(leidos, 3, leidos.length), valores),
+                    "ida y vuelta " + codificacion + " con " + valores.length + " valores");
+                comprobar(!salida.hasRemaining(), "sobran bytes en " + codificacion);
+            }
+        }
+        System.out.println("Números: " + casos.length * 3 + " casos");
+    }
+    
+    private static long[] distintos(int cantidad, SplittableRandom azar) {
+        long[] valores = new long[3 * cantidad];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = (i % cantidad) * 1000L - 50000L;
+        }
+        for (int i = valores.length - 1; i > 0; i--) {
+            int j = azar.nextInt(i + 1);
+            long cambio = valores[i];
+            valores[i] = valores[j];
+            valores[j] = cambio;
+        }
+        return valores;
+    }
+    
+    /**
+     * Columnas de listas: filas vacías, largos que no son múltiplo de 8 (BITS)
+     * y un arreglo de destino chico que se tiene que agrandar
+     */
+    private static void probarListas() {
+        SplittableRandom azar = new SplittableRandom(5);
+        for (ColumnaMano.Codificacion codificacion : new ColumnaMano.Codificacion[] {
+                ColumnaMano.Codificacion.BITS, ColumnaMano.Codificacion.BYTES}) {
+            for (int filas : new int[] {0, 1, 7, 1000}) {
+                int[] largos = new int[filas];
+                int total = 0;
+                for (int i = 0; i < filas; i++) {
+                    largos[i] = azar.nextInt(4) == 0 ? 0 : azar.nextInt(200);
+                    total += largos[i];
+                }
+                byte[] elementos = new byte[total];
+                for (int i = 0; i < total; i++) {
+                    elementos[i] = (byte) (codificacion == ColumnaMano.Codificacion.BITS ? azar.nextInt(2)
+                                                                                         : azar.nextInt(256));
+                }
+                ByteBuffer salida = ByteBuffer.allocate(5 * filas + total + 1).order(ByteOrder.LITTLE_ENDIAN);
+                FormatoColumnas.codificarLista(codificacion, largos, elementos, filas, salida);
+                salida.flip();
+                
+                int[] largosLeidos = new int[filas + 2];
+                byte[] leidos = FormatoColumnas.decodificarLista(salida, codificacion, filas, largosLeidos, 2,
+                                                                 new byte[5], 5);
+                comprobar(Arrays.equals(Arrays.copyOfRange(largosLeidos, 2, largosLeidos.length), largos),
+                    "largos de " + codificacion + " con " + filas + " filas");
+                comprobar(leidos.length >= 5 + total
+                    && Arrays.equals(Arrays.copyOfRange(leidos, 5, 5 + total), elementos),
+                    "elementos de " + codificacion + " con " + filas + " filas");
+                comprobar(!salida.hasRemaining(), "sobran bytes en " + codificacion);
+            }
+        }
+        System.out.println("Listas: 8 casos");
+    }
+    
+    /**
+     * Fila esperada de una mano, armada con lo que se ve desde el Juego
+     */
+    private static class Fila {
+        long partida;
+        long mano;
+        long semilla;
+        long jugadores;
+        long[] reparto = new long[ColumnaMano.MAX_JUGADORES];
+        List<Integer> robos = new ArrayList<>();
+        List<Integer> descartes = new ArrayList<>();
+        long tipoCierre = -1;
+        long comodines;
+        long cerro = -1;
+        long[] puntos = new long[ColumnaMano.MAX_JUGADORES];
+    }
+    
+    /**
+     * Arma las filas esperadas: una por mano repartida, con las cartas que
+     * tenía cada asiento al empezar y los puntos al terminar
+     */
+    private static class Filas implements OyenteAcciones {
+        final List<Fila> filas = new ArrayList<>();
+        private Juego juego;
+        private long partida = -1;
+        private int mano;
+        private long semillaPendiente;
+        private boolean pendiente;
+        private Fila abierta;
+        
+        void empezar(Juego juego) {
+            this.juego = juego;
+            partida++;
+            mano = -1; // la primera mano es la 0
+            alRepartir(juego.getSemillaMano());
+        }
+        
+        void terminar() {
+            pendiente = false; // una mano repartida sin jugar no es una fila
+            cerrar();
+        }
+        
+        @Override
+        public void alRepartir(long semilla) {
+            cerrar();
+            semillaPendiente = semilla;
+            pendiente = true;
+        }
+        
+        /**
+         * La primera acción después del reparto abre la fila (las cartas ya están en las manos)
+         */
+        private void accion() {
+            if (!pendiente) {
+                return;
+            }
+            pendiente = false;
+            abierta = new Fila();
+            abierta.partida = partida;
+            abierta.mano = ++mano;
+            abierta.semilla = semillaPendiente;
+            List<Jugador> jugadores = juego.getJugadores();
+            for (int asiento = 0; asiento < jugadores.size(); asiento++) {
+                if (!jugadores.get(asiento).estaEliminado()) {
+                    abierta.reparto[asiento] = jugadores.get(asiento).getMano().getMascara();
+                    abierta.jugadores++;
+                }
+            }
+        }
+        
+        private void cerrar() {
+            accion();
+            if (abierta == null) {
+                return;
+            }
+            if (juego.isManoCerrada()) {
+                Mano.ResultadoCierre cierre = juego.getUltimoCierre();
+                abierta.tipoCierre = cierre.getTipo().ordinal();
+                abierta.comodines = cierre.getNumComodines();
+                abierta.cerro = juego.getJugadores().indexOf(juego.getJugadorQueCerro());
+            }
+            List<Jugador> jugadores = juego.getJugadores();
+            for (int asiento = 0; asiento < jugadores.size(); asiento++) {
+                abierta.puntos[asiento] = jugadores.get(asiento).getPuntos();
+            }
+            filas.add(abierta);
+            abierta = null;
+        }
+        
+        @Override
+        public void alTomarDelMazo() {
+            accion();
+            abierta.robos.add(0);
+        }
+        
+        @Override
+        public void alReciclarPozo(long semilla) {
+        }
+        
+        @Override
+        public void alTomarDelPozo() {
+            accion();
+            abierta.robos.add(1);
+        }
+        
+        @Override
+        public void alDescartar(int indiceCarta) {
+            accion();
+            // Se avisa antes de retirar la carta
+            abierta.descartes.add(juego.getJugadorActual().getMano().obtenerCarta(indiceCarta).getOrdinal());
+        }
+        
+        @Override
+        public void alColocarGrupos() {
+            cerrar();
+        }
+        
+        @Override
+        public void alReenganchar() {
+            accion();
+        }
+    }
+    
+    private static void probarExportacion(Path archivo, int partidas) throws IOException {
+        Filas esperadas = new Filas();
+        try (ExportadorColumnas exportador = new ExportadorColumnas(archivo)) {
+            for (int i = 0; i < partidas; i++) {
+                int comodines = i % 3;
+                Juego juego = new Juego(2 + i % 3, comodines > 0, comodines, new SplittableRandom(i));
+                exportador.grabar(juego);
+                esperadas.empezar(juego);
+                juego.agregarOyenteAcciones(esperadas);
+                jugar(juego, i % 2 == 0 ? new EstrategiaVoraz() : new EstrategiaAleatoria(new SplittableRandom(i)));
+                exportador.terminar();
+                esperadas.terminar();
+                juego.quitarOyenteAcciones(esperadas);
+            }
+        }
+        
+        LectorColumnas lector = new LectorColumnas(archivo);
+        List<Fila> filas = esperadas.filas;
+        comprobar(lector.getFilas() == filas.size(), "filas leídas " + lector.getFilas() + " de " + filas.size());
+        comprobar(filas.size() > FormatoColumnas.FILAS_POR_BLOQUE, "la prueba no llenó ni un bloque");
+        if (lector.getFilas() != filas.size()) {
+            return;
+        }
+        
+        comparar(lector, ColumnaMano.PARTIDA, filas, fila -> fila.partida);
+        comparar(lector, ColumnaMano.MANO, filas, fila -> fila.mano);
+        comparar(lector, ColumnaMano.SEMILLA, filas, fila -> fila.semilla);
+        comparar(lector, ColumnaMano.JUGADORES, filas, fila -> fila.jugadores);
+        comparar(lector, ColumnaMano.TIPO_CIERRE, filas, fila -> fila.tipoCierre);
+        comparar(lector, ColumnaMano.COMODINES, filas, fila -> fila.comodines);
+        comparar(lector, ColumnaMano.CERRO, filas, fila -> fila.cerro);
+        for (int asiento = 0; asiento < ColumnaMano.MAX_JUGADORES; asiento++) {
+            final int a = asiento;
+            comparar(lector, ColumnaMano.reparto(asiento), filas, fila -> fila.reparto[a]);
+            comparar(lector, ColumnaMano.puntos(asiento), filas, fila -> fila.puntos[a]);
+        }
+        compararListas(lector.leerListas(ColumnaMano.ROBOS), ColumnaMano.ROBOS, filas, fila -> fila.robos);
+        compararListas(lector.leerListas(ColumnaMano.DESCARTES), ColumnaMano.DESCARTES, filas,
+                       fila -> fila.descartes);
+        System.out.println("Exportación: " + partidas + " partidas, " + filas.size() + " manos, "
+            + Files.size(archivo) + " bytes");
+    }
+    
+    private interface Valor {
+        long de(Fila fila);
+    }
+    
+    private interface Lista {
+        List<Integer> de(Fila fila);
+    }
+    
+    private static void comparar(LectorColumnas lector, ColumnaMano columna, List<Fila> filas, Valor valor) {
+        long[] leidos = lector.leer(columna);
+        for (int i = 0; i < filas.size(); i++) {
+            if (leidos[i] != valor.de(filas.get(i))) {
+                comprobar(false, columna + " en la fila " + i + ": " + leidos[i] + ", esperado " + valor.de(filas.get(i)));
+                return;
+            }
+        }
+    }
+    
+    private static void compararListas(LectorColumnas.Listas listas, ColumnaMano columna, List<Fila> filas,
+                                       Lista lista) {
+        for (int i = 0; i < filas.size(); i++) {
+            List<Integer> esperada = lista.de(filas.get(i));
+            boolean iguales = listas.getLargo(i) == esperada.size();
+            for (int j = 0; iguales && j < esperada.size(); j++) {
+                iguales = listas.get(i, j) == esperada.get(j);
+            }
+            if (!iguales) {
+                comprobar(false, columna + " en la fila " + i);
+                return;
+            }
+        }
+    }
+    
+    private static void jugar(Juego juego, Estrategia estrategia) {
+        for (int turnos = 0; !juego.isPartidaTerminada() && turnos < MAX_TURNOS; turnos++) {
+            if (juego.isManoCerrada()) {
+                juego.colocarGruposEnMesa();
+                continue;
+            }
+            Jugador jugador = juego.getJugadorActual();
+            if (jugador.getPuntos() > 100 && !jugador.estaReenganchado()) {
+                juego.reenganchar();
+            }
+            boolean delPozo = estrategia.tomarDelPozo(juego, jugador);
+            boolean tomo = delPozo ? juego.tomarDelPozo() || juego.tomarDelMazo()
+                                   : juego.tomarDelMazo() || juego.tomarDelPozo();
+            if (!tomo) {
+                break;
+            }
+            if (!juego.descartarCarta(estrategia.elegirDescarte(juego, jugador))) {
+                juego.descartarCarta(0);
+            }
+        }
+    }
+}
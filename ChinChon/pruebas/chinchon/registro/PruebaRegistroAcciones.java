@@ -0,0 +1,206 @@
+package chinchon.registro;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import chinchon.modelo.Juego;
+import chinchon.modelo.Jugador;
+import chinchon.modelo.OyenteAcciones;
+import chinchon.simulacion.Estrategia;
+import chinchon.simulacion.EstrategiaAleatoria;
+import chinchon.simulacion.EstrategiaVoraz;
+
+/**
+ * Clase PruebaRegistroAcciones - graba partidas con RegistroAcciones, las
+ * vuelve a jugar con ReproductorAcciones y compara el estado final de cada
+ * una (puntos, manos, pozo, mazo y turno). También comprueba que un
+ * registro alterado no se reproduzca en silencio.
+ * 
+ * Uso: java -cp <clases> chinchon.registro.PruebaRegistroAcciones [partidas]
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaRegistroAcciones
+{
+    private static final int MAX_TURNOS = 5000;
+    
+    private static int fallos = 0;
+    
+    public static void main(String[] args) throws IOException {
+        int partidas = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        // Un archivo por paso: en Windows un archivo mapeado no se puede reescribir ni borrar
+        Path archivo = Files.createTempFile("registro", ".bin");
+        Path alterado = Files.createTempFile("registro-alterado", ".bin");
+        Path invalido = Files.createTempFile("registro-invalido", ".bin");
+        try {
+            probarIdaYVuelta(archivo, partidas);
+            probarPuntosAlterados(archivo, alterado);
+            probarCabeceraInvalida(invalido);
+        } finally {
+            borrar(archivo);
+            borrar(alterado);
+            borrar(invalido);
+        }
+        
+        System.out.println(fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static void borrar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            System.out.println("No se pudo borrar " + archivo + ": " + e.getMessage());
+        }
+    }
+    
+    private static void comprobar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            fallos++;
+            System.out.println("FALLO: " + mensaje);
+        }
+    }
+    
+    /**
+     * Cuenta repartos y acciones junto al registro (que así comparte el
+     * Juego con otro oyente, como en el juego de consola)
+     */
+    private static class Contador implements OyenteAcciones {
+        long manos;
+        long acciones;
+        
+        @Override
+        public void alRepartir(long semilla) {
+            manos++;
+        }
+        
+        @Override
+        public void alTomarDelMazo() {
+            acciones++;
+        }
+        
+        @Override
+        public void alReciclarPozo(long semilla) {
+        }
+        
+        @Override
+        public void alTomarDelPozo() {
+            acciones++;
+        }
+        
+        @Override
+        public void alDescartar(int indiceCarta) {
+            acciones++;
+        }
+        
+        @Override
+        public void alColocarGrupos() {
+            acciones++;
+        }
+        
+        @Override
+        public void alReenganchar() {
+            acciones++;
+        }
+    }
+    
+    private static void probarIdaYVuelta(Path archivo, int partidas) throws IOException {
+        List<String> grabados = new ArrayList<>();
+        Contador contador = new Contador();
+        try (RegistroAcciones registro = new RegistroAcciones(archivo)) {
+            for (int i = 0; i < partidas; i++) {
+                // 2 a 4 jugadores, 0 a 2 comodines y estrategias que reenganchan o no
+                int comodines = i % 3;
+                Juego juego = new Juego(2 + i % 3, comodines > 0, comodines, new SplittableRandom(i));
+                contador.manos++; // el primer reparto ocurre en el constructor
+                registro.grabar(juego);
+                juego.agregarOyenteAcciones(contador);
+                jugar(juego, i % 2 == 0 ? new EstrategiaVoraz() : new EstrategiaAleatoria(new SplittableRandom(i)),
+                      i % 4 < 2);
+                grabados.add(estado(juego));
+                registro.terminar();
+                juego.quitarOyenteAcciones(contador);
+            }
+        }
+        
+        List<String> reproducidos = new ArrayList<>();
+        ReproductorAcciones reproductor = new ReproductorAcciones(archivo);
+        long reproducidas = reproductor.reproducir(juego -> reproducidos.add(estado(juego)));
+        comprobar(reproducidas == partidas && reproductor.getPartidas() == partidas,
+            "partidas reproducidas " + reproducidas + " de " + partidas);
+        comprobar(reproductor.getManos() == contador.manos,
+            "manos reproducidas " + reproductor.getManos() + ", grabadas " + contador.manos);
+        comprobar(reproductor.getAcciones() == contador.acciones,
+            "acciones reproducidas " + reproductor.getAcciones() + ", grabadas " + contador.acciones);
+        for (int i = 0; i < Math.min(grabados.size(), reproducidos.size()); i++) {
+            comprobar(grabados.get(i).equals(reproducidos.get(i)), "estado final de la partida " + (i + 1));
+        }
+        System.out.println("Ida y vuelta: " + partidas + " partidas, " + contador.manos + " manos, "
+            + contador.acciones + " acciones, " + Files.size(archivo) + " bytes");
+    }
+    
+    /**
+     * Los últimos 2 bytes son los puntos grabados del último jugador de la
+     * última partida: cambiarlos tiene que hacer fallar la verificación
+     */
+    private static void probarPuntosAlterados(Path archivo, Path alterado) throws IOException {
+        byte[] bytes = Files.readAllBytes(archivo);
+        bytes[bytes.length - 2] ^= 1;
+        Files.write(alterado, bytes);
+        try {
+            new ReproductorAcciones(alterado).reproducir(juego -> { });
+            comprobar(false, "se reprodujo un registro con los puntos alterados");
+        } catch (IllegalStateException e) {
+            // esperado
+        }
+    }
+    
+    private static void probarCabeceraInvalida(Path archivo) throws IOException {
+        Files.write(archivo, new byte[] {1, 2, 3, 4, 5});
+        try {
+            new ReproductorAcciones(archivo);
+            comprobar(false, "se abrió un archivo que no es un registro");
+        } catch (IOException e) {
+            // esperado
+        }
+    }
+    
+    private static void jugar(Juego juego, Estrategia estrategia, boolean reenganchar) {
+        for (int turnos = 0; !juego.isPartidaTerminada() && turnos < MAX_TURNOS; turnos++) {
+            if (juego.isManoCerrada()) {
+                juego.colocarGruposEnMesa();
+                continue;
+            }
+            Jugador jugador = juego.getJugadorActual();
+            if (reenganchar && jugador.getPuntos() > 100 && !jugador.estaReenganchado()) {
+                juego.reenganchar();
+            }
+            boolean delPozo = estrategia.tomarDelPozo(juego, jugador);
+            boolean tomo = delPozo ? juego.tomarDelPozo() || juego.tomarDelMazo()
+                                   : juego.tomarDelMazo() || juego.tomarDelPozo();
+            if (!tomo) {
+                break;
+            }
+            if (!juego.descartarCarta(estrategia.elegirDescarte(juego, jugador))) {
+                juego.descartarCarta(0);
+            }
+        }
+    }
+    
+    private static String estado(Juego juego) {
+        StringBuilder estado = new StringBuilder();
+        for (Jugador jugador : juego.getJugadores()) {
+            estado.append(jugador.getPuntos()).append('/').append(jugador.getMano().getMascara())
+                  .append('/').append(jugador.estaEliminado()).append(';');
+        }
+        return estado.append(juego.getPozo().getCartas()).append(juego.getMazo().getNumeroCartas())
+                     .append(' ').append(juego.getIndiceJugadorActual())
+                     .append(' ').append(juego.isPartidaTerminada()).toString();
+    }
+}
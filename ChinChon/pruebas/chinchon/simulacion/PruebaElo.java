@@ -0,0 +1,178 @@
+package chinchon.simulacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+/**
+ * Clase PruebaElo - prueba las cuentas de Elo de Torneo con resultados
+ * armados a mano, sin jugar partidas: puntaje esperado y su inversa, lo que
+ * se mueve con K en una partida, que el total de puntos de Elo no cambie,
+ * empates y eliminados en mesas de 4, y que el rating converja a la
+ * diferencia que corresponde a una probabilidad de ganar conocida.
+ * 
+ * Uso: java -cp <clases> chinchon.simulacion.PruebaElo
+ * 
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+public class PruebaElo
+{
+    private static final double RATING_INICIAL = 1500.0;
+    private static final double K = 16.0;
+    
+    private static int fallos = 0;
+    
+    public static void main(String[] args) {
+        probarPuntajeEsperado();
+        probarUnaPartida();
+        probarMesaDeCuatro();
+        probarSumaConstante();
+        probarConvergencia();
+        
+        System.out.println(fallos + " fallos");
+        if (fallos > 0) {
+            System.exit(1);
+        }
+    }
+    
+    private static void comprobar(boolean condicion, String mensaje) {
+        if (!condicion) {
+            fallos++;
+            System.out.println("FALLO: " + mensaje);
+        }
+    }
+    
+    private static boolean cerca(double a, double b, double tolerancia) {
+        return Math.abs(a - b) <= tolerancia;
+    }
+    
+    private static Torneo torneo(int estrategias) {
+        List<String> nombres = new ArrayList<>();
+        List<LongFunction<Estrategia>> fabricas = new ArrayList<>();
+        for (int i = 0; i < estrategias; i++) {
+            nombres.add("E" + i);
+            fabricas.add(semilla -> new EstrategiaVoraz());
+        }
+        return new Torneo(nombres, fabricas, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Rating de la estrategia con el nombre "E" + i
+     */
+    private static Torneo.Posicion posicion(Torneo torneo, int i) {
+        for (Torneo.Posicion posicion : torneo.getClasificacion()) {
+            if (posicion.getNombre().equals("E" + i)) {
+                return posicion;
+            }
+        }
+        throw new IllegalArgumentException("No está E" + i);
+    }
+    
+    private static void probarPuntajeEsperado() {
+        comprobar(cerca(Torneo.puntajeEsperado(1500, 1500), 0.5, 1e-12), "esperado con ratings iguales");
+        comprobar(cerca(Torneo.puntajeEsperado(1900, 1500), 10.0 / 11.0, 1e-12), "esperado con 400 de diferencia");
+        for (double diferencia = -600; diferencia <= 600; diferencia += 50) {
+            double esperado = Torneo.puntajeEsperado(1500 + diferencia, 1500);
+            comprobar(cerca(esperado + Torneo.puntajeEsperado(1500, 1500 + diferencia), 1.0, 1e-12),
+                "esperados complementarios con " + diferencia);
+            comprobar(cerca(Torneo.eloDePuntaje(esperado), diferencia, 1e-6),
+                "eloDePuntaje no invierte el esperado con " + diferencia);
+        }
+        // Fuera de 0.001 a 0.999 se acota para no dar infinito
+        comprobar(Torneo.eloDePuntaje(1.0) == Torneo.eloDePuntaje(0.999)
+            && Double.isFinite(Torneo.eloDePuntaje(0.0)), "puntajes extremos acotados");
+    }
+    
+    private static void probarUnaPartida() {
+        Torneo torneo = torneo(2);
+        torneo.registrarResultado(new int[] {0, 1}, new int[] {Torneo.CLAVE_GANADOR, 40});
+        comprobar(cerca(posicion(torneo, 0).getRating(), RATING_INICIAL + K / 2, 1e-9), "el ganador suma K/2");
+        comprobar(cerca(posicion(torneo, 1).getRating(), RATING_INICIAL - K / 2, 1e-9), "el perdedor resta K/2");
+        comprobar(posicion(torneo, 0).getVictorias() == 1 && posicion(torneo, 1).getVictorias() == 0,
+            "victorias de una partida");
+        
+        // El ganador con puntos negativos sigue ganándole a un rival con menos puntos
+        torneo = torneo(2);
+        torneo.registrarResultado(new int[] {0, 1}, new int[] {Torneo.CLAVE_GANADOR, -10});
+        comprobar(posicion(torneo, 0).getRating() > posicion(torneo, 1).getRating(),
+            "un rival con puntos negativos le ganó al ganador");
+    }
+    
+    /**
+     * Ganador (E2), dos empatados en puntos (E0 y E3) y un eliminado (E1):
+     * medios puntos 6, 3, 3 y 0
+     */
+    private static void probarMesaDeCuatro() {
+        Torneo torneo = torneo(4);
+        torneo.registrarResultado(new int[] {2, 0, 3, 1},
+            new int[] {Torneo.CLAVE_GANADOR, 30, 30, Torneo.CLAVE_ELIMINADO});
+        comprobar(cerca(posicion(torneo, 2).getPuntaje(), 1.0, 1e-12), "el ganador se lleva todo");
+        comprobar(cerca(posicion(torneo, 0).getPuntaje(), 0.5, 1e-12)
+            && cerca(posicion(torneo, 3).getPuntaje(), 0.5, 1e-12), "los empatados se llevan medio punto entre sí");
+        comprobar(cerca(posicion(torneo, 1).getPuntaje(), 0.0, 1e-12), "el eliminado pierde contra todos");
+        // Con ratings iguales cada uno se mueve K/3 por rival: (medios/2 - 1.5) * K/3
+        comprobar(cerca(posicion(torneo, 2).getRating(), RATING_INICIAL + K / 3 * 1.5, 1e-9)
+            && cerca(posicion(torneo, 0).getRating(), RATING_INICIAL, 1e-9)
+            && cerca(posicion(torneo, 1).getRating(), RATING_INICIAL - K / 3 * 1.5, 1e-9),
+            "ratings después de una mesa de 4");
+    }
+    
+    /**
+     * Cada enfrentamiento le da a uno lo que le quita al otro
+     */
+    private static void probarSumaConstante() {
+        Torneo torneo = torneo(5);
+        SplittableRandom azar = new SplittableRandom(11);
+        for (int partida = 0; partida < 20000; partida++) {
+            int n = 2 + azar.nextInt(3);
+            int[] asientos = azar.ints(0, 5).distinct().limit(n).toArray();
+            int[] clave = new int[n];
+            for (int i = 0; i < n; i++) {
+                clave[i] = azar.nextInt(6) == 0 ? Torneo.CLAVE_ELIMINADO : azar.nextInt(-10, 60);
+            }
+            clave[azar.nextInt(n)] = Torneo.CLAVE_GANADOR;
+            torneo.registrarResultado(asientos, clave);
+        }
+        double suma = 0;
+        for (Torneo.Posicion posicion : torneo.getClasificacion()) {
+            suma += posicion.getRating();
+        }
+        comprobar(cerca(suma, 5 * RATING_INICIAL, 1e-6), "la suma de ratings cambió: " + suma);
+    }
+    
+    /**
+     * Si E0 le gana a E1 con probabilidad p, la diferencia de rating tiene que
+     * rondar eloDePuntaje(p), y el intervalo de confianza de E0 (contra el
+     * rival medio, que es E1) tiene que contenerla
+     */
+    private static void probarConvergencia() {
+        double p = 0.75;
+        Torneo torneo = torneo(2);
+        SplittableRandom azar = new SplittableRandom(13);
+        double sumaDiferencias = 0;
+        int partidas = 40000;
+        for (int partida = 0; partida < partidas; partida++) {
+            boolean ganaCero = azar.nextDouble() < p;
+            torneo.registrarResultado(new int[] {0, 1}, ganaCero ? new int[] {Torneo.CLAVE_GANADOR, 20}
+                                                                   : new int[] {20, Torneo.CLAVE_GANADOR});
+            if (partida >= partidas / 2) {
+                sumaDiferencias += posicion(torneo, 0).getRating() - posicion(torneo, 1).getRating();
+            }
+        }
+        double esperada = Torneo.eloDePuntaje(p);
+        double media = sumaDiferencias / (partidas / 2);
+        comprobar(cerca(media, esperada, 20), "diferencia media " + media + ", esperada " + esperada);
+        
+        Torneo.Posicion cero = posicion(torneo, 0);
+        double centro = Torneo.eloDePuntaje(cero.getPuntaje());
+        comprobar(cero.getMargen() > 0 && Math.abs(centro - esperada) <= cero.getMargen(),
+            "el intervalo +-" + cero.getMargen() + " alrededor de " + centro + " no contiene " + esperada);
+        List<Torneo.Posicion> clasificacion = torneo.getClasificacion();
+        comprobar(clasificacion.get(0).getNombre().equals("E0"), "E0 no quedó primero");
+        System.out.println("Convergencia: diferencia media " + Math.round(media) + ", esperada "
+            + Math.round(esperada) + ", intervalo +-" + Math.round(cero.getMargen()));
+    }
+}
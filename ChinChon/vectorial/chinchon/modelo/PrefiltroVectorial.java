@@ -0,0 +1,98 @@
+package chinchon.modelo;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Clase PrefiltroVectorial - la primera pasada de EvaluadorLotes (cartas
+ * aisladas y clave canónica) con la Vector API, una mano por carril
+ *
+ * Está en una carpeta aparte porque necesita Java 19 o superior y el módulo
+ * jdk.incubator.vector para compilar (ver LEEME). EvaluadorLotes la carga
+ * por nombre solo si el módulo está en el arranque (java --add-modules
+ * jdk.incubator.vector ...); si no, o si no se compiló, hace el mismo
+ * cálculo con un ciclo común.
+ *
+ * @author Valentin Ziegenbein
+ * @version 1.0
+ */
+final class PrefiltroVectorial implements EvaluadorLotes.PrimeraPasada
+{
+    private static final VectorSpecies<Long> ESPECIE = LongVector.SPECIES_PREFERRED;
+
+    PrefiltroVectorial() {
+    }
+
+    /**
+     * Llena aisladas[i] y claves[i] para las primeras cantidad manos
+     */
+    @Override
+    public void preparar(long[] manos, long[] aisladas, long[] claves, int cantidad) {
+        int limite = ESPECIE.loopBound(cantidad);
+        int i = 0;
+        for (; i < limite; i += ESPECIE.length()) {
+            LongVector mano = LongVector.fromArray(ESPECIE, manos, i);
+            LongVector comodines = mano.and(Mano.MASCARA_COMODINES).lanewise(VectorOperators.BIT_COUNT);
+            LongVector sueltas = aislar(mano, comodines);
+            sueltas.intoArray(aisladas, i);
+            clave(mano, sueltas, comodines).intoArray(claves, i);
+        }
+        for (; i < cantidad; i++) {
+            aisladas[i] = EvaluadorLotes.aisladas(manos[i]);
+            claves[i] = EvaluadorLotes.clave(manos[i], aisladas[i]);
+        }
+    }
+
+    private static LongVector aislar(LongVector mano, LongVector comodines) {
+        LongVector reales = mano.and(EvaluadorLotes.MASCARA_REALES);
+
+        // Mismo número: las cartas a 10, 20 o 30 bits
+        LongVector vecinas = reales.lanewise(VectorOperators.LSHL, 10)
+            .or(reales.lanewise(VectorOperators.LSHR, 10))
+            .or(reales.lanewise(VectorOperators.LSHL, 20))
+            .or(reales.lanewise(VectorOperators.LSHR, 20))
+            .or(reales.lanewise(VectorOperators.LSHL, 30))
+            .or(reales.lanewise(VectorOperators.LSHR, 30))
+            .and(EvaluadorLotes.MASCARA_REALES);
+
+        // Mismo palo: cada distancia solo en los carriles cuyos comodines la cubren
+        for (int d = 1; d < Mano.CARTAS_POR_PALO; d++) {
+            VectorMask<Long> alcanza = comodines.compare(VectorOperators.GE, d - 1);
+            if (!alcanza.anyTrue()) {
+                break;
+            }
+            LongVector cerca = reales.lanewise(VectorOperators.LSHL, d).and(EvaluadorLotes.DESPLAZABLES_ARRIBA[d])
+                .or(reales.lanewise(VectorOperators.LSHR, d).and(EvaluadorLotes.DESPLAZABLES_ABAJO[d]));
+            vecinas = vecinas.lanewise(VectorOperators.OR, cerca, alcanza);
+        }
+        return reales.lanewise(VectorOperators.AND_NOT, vecinas);
+    }
+
+    /**
+     * Igual que EvaluadorLotes.clave, con la red de ordenamiento de palos hecha con mínimos y máximos
+     */
+    private static LongVector clave(LongVector mano, LongVector aisladas, LongVector comodines) {
+        VectorMask<Long> cierre = mano.lanewise(VectorOperators.BIT_COUNT).compare(VectorOperators.EQ, 7)
+            .and(aisladas.lanewise(VectorOperators.BIT_COUNT).compare(VectorOperators.LE, 1))
+            .and(aisladas.lanewise(VectorOperators.AND_NOT, Mano.CARTAS_BAJAS).compare(VectorOperators.EQ, 0));
+        LongVector objetivo = mano.lanewise(VectorOperators.AND_NOT, aisladas).blend(mano, cierre);
+
+        LongVector a = objetivo.and(EvaluadorLotes.MASCARA_PALO);
+        LongVector b = objetivo.lanewise(VectorOperators.LSHR, 10).and(EvaluadorLotes.MASCARA_PALO);
+        LongVector c = objetivo.lanewise(VectorOperators.LSHR, 20).and(EvaluadorLotes.MASCARA_PALO);
+        LongVector d = objetivo.lanewise(VectorOperators.LSHR, 30).and(EvaluadorLotes.MASCARA_PALO);
+        LongVector t = a.min(b); a = a.max(b); b = t;
+        t = c.min(d); c = c.max(d); d = t;
+        t = a.min(c); a = a.max(c); c = t;
+        t = b.min(d); b = b.max(d); d = t;
+        t = b.min(c); b = b.max(c); c = t;
+
+        return a.or(b.lanewise(VectorOperators.LSHL, 10))
+            .or(c.lanewise(VectorOperators.LSHL, 20))
+            .or(d.lanewise(VectorOperators.LSHL, 30))
+            .or(comodines.lanewise(VectorOperators.LSHL, EvaluadorLotes.BIT_CANTIDAD_COMODINES))
+            .or(LongVector.zero(ESPECIE).blend(EvaluadorLotes.CON_CIERRE, cierre));
+    }
+}